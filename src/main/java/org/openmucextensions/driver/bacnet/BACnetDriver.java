@@ -17,6 +17,8 @@
 package org.openmucextensions.driver.bacnet;
 
 import java.net.InetAddress;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -258,6 +260,73 @@ public class BACnetDriver implements DriverService {
                     ? parseWritePriority(settings.get(Settings.SETTING_WRITE_PRIORITY)) : null;
             connection.setWritePriority(writePriority);
 
+            if (settings.containsKey(Settings.SETTING_MAX_REQUESTS_IN_FLIGHT))
+                connection.setMaxRequestsInFlight(parseInt(Settings.SETTING_MAX_REQUESTS_IN_FLIGHT,
+                        settings.get(Settings.SETTING_MAX_REQUESTS_IN_FLIGHT), 1));
+
+            if (settings.containsKey(Settings.SETTING_WRITE_TIMEOUT))
+                connection.setWriteTimeout(parseInt(Settings.SETTING_WRITE_TIMEOUT,
+                        settings.get(Settings.SETTING_WRITE_TIMEOUT), 1));
+
+            if (settings.containsKey(Settings.SETTING_WRITE_COALESCE_WINDOW))
+                connection.setWriteCoalesceWindow(parseInt(Settings.SETTING_WRITE_COALESCE_WINDOW,
+                        settings.get(Settings.SETTING_WRITE_COALESCE_WINDOW), 0));
+
+            if (settings.containsKey(Settings.SETTING_WRITE_DEADBAND))
+                connection.setWriteDeadband(parseDouble(Settings.SETTING_WRITE_DEADBAND,
+                        settings.get(Settings.SETTING_WRITE_DEADBAND), 0));
+
+            if (settings.containsKey(Settings.SETTING_WRITE_REFRESH_INTERVAL))
+                connection.setWriteRefreshInterval(parseInt(Settings.SETTING_WRITE_REFRESH_INTERVAL,
+                        settings.get(Settings.SETTING_WRITE_REFRESH_INTERVAL), 0));
+
+            if (settings.containsKey(Settings.SETTING_WHO_HAS_TIMEOUT))
+                connection.setNameResolutionTimeout(parseInt(Settings.SETTING_WHO_HAS_TIMEOUT,
+                        settings.get(Settings.SETTING_WHO_HAS_TIMEOUT), 0));
+
+            if (settings.containsKey(Settings.SETTING_WHO_HAS_MAX_NAMES))
+                connection.setNameResolutionLimit(parseInt(Settings.SETTING_WHO_HAS_MAX_NAMES,
+                        settings.get(Settings.SETTING_WHO_HAS_MAX_NAMES), 0));
+
+            if (settings.containsKey(Settings.SETTING_COV_CACHE_MAX_AGE))
+                connection.setCovCacheMaxAge(parseInt(Settings.SETTING_COV_CACHE_MAX_AGE,
+                        settings.get(Settings.SETTING_COV_CACHE_MAX_AGE), 0));
+
+            if (settings.containsKey(Settings.SETTING_COV_QUEUE_CAPACITY))
+                connection.setCovQueueCapacity(parseInt(Settings.SETTING_COV_QUEUE_CAPACITY,
+                        settings.get(Settings.SETTING_COV_QUEUE_CAPACITY), 1));
+
+            if (settings.containsKey(Settings.SETTING_COV_LIFETIME))
+                connection.setCovLifetime(parseInt(Settings.SETTING_COV_LIFETIME,
+                        settings.get(Settings.SETTING_COV_LIFETIME), 0));
+
+            if (settings.containsKey(Settings.SETTING_COV_CONFIRMED_NOTIFICATIONS))
+                connection.setCovConfirmedNotifications(
+                        Boolean.parseBoolean(settings.get(Settings.SETTING_COV_CONFIRMED_NOTIFICATIONS)));
+
+            if (settings.containsKey(Settings.SETTING_COV_RECONCILE_INTERVAL))
+                connection.setCovReconcileInterval(parseInt(Settings.SETTING_COV_RECONCILE_INTERVAL,
+                        settings.get(Settings.SETTING_COV_RECONCILE_INTERVAL), 0));
+
+            if (settings.containsKey(Settings.SETTING_TREND_LOG_INTERVAL))
+                connection.setTrendLogInterval(parseInt(Settings.SETTING_TREND_LOG_INTERVAL,
+                        settings.get(Settings.SETTING_TREND_LOG_INTERVAL), 1));
+
+            if (settings.containsKey(Settings.SETTING_INDEXED_OBJECT_LIST))
+                connection.setIndexedObjectList(Boolean.parseBoolean(settings.get(Settings.SETTING_INDEXED_OBJECT_LIST)));
+
+            String catalogDirectory = (settings.containsKey(Settings.SETTING_CATALOG_DIRECTORY))
+                    ? settings.get(Settings.SETTING_CATALOG_DIRECTORY)
+                    : System.getProperty("org.openmucextensions.driver.bacnet.catalogDirectory");
+            if (catalogDirectory != null) {
+                try {
+                    connection.setCatalogStore(new ObjectCatalogStore(Paths.get(catalogDirectory)));
+                } catch (InvalidPathException e) {
+                    throw new ArgumentSyntaxException("catalogDirectory is not a valid path: " + catalogDirectory);
+                }
+                connection.loadObjectCatalog();
+            }
+
             return connection;
         }
     }
@@ -372,6 +441,30 @@ public class BACnetDriver implements DriverService {
         }
     }
 
+    private int parseInt(String settingName, String value, int minimum) throws ArgumentSyntaxException {
+        try {
+            int result = Integer.decode(value);
+            if (result < minimum) {
+                throw new ArgumentSyntaxException(settingName + " value must be at least " + minimum);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new ArgumentSyntaxException(settingName + " value is not a number");
+        }
+    }
+
+    private double parseDouble(String settingName, String value, double minimum) throws ArgumentSyntaxException {
+        try {
+            double result = Double.parseDouble(value);
+            if (!(result >= minimum)) {
+                throw new ArgumentSyntaxException(settingName + " value must be at least " + minimum);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new ArgumentSyntaxException(settingName + " value is not a number");
+        }
+    }
+
     private DeviceAddress parseDeviceAddress(String deviceAddress) throws ArgumentSyntaxException {
         Integer remoteInstance;
         String hostIp = "";
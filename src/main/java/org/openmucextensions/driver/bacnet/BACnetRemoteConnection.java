@@ -16,15 +16,20 @@
  */
 package org.openmucextensions.driver.bacnet;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Vector;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import org.openmuc.framework.config.ArgumentSyntaxException;
@@ -46,45 +51,30 @@ import com.google.gson.JsonPrimitive;
 import com.serotonin.bacnet4j.LocalDevice;
 import com.serotonin.bacnet4j.RemoteDevice;
 import com.serotonin.bacnet4j.RemoteObject;
-import com.serotonin.bacnet4j.ServiceFuture;
+import com.serotonin.bacnet4j.ResponseConsumer;
+import com.serotonin.bacnet4j.apdu.AckAPDU;
+import com.serotonin.bacnet4j.event.DeviceEventAdapter;
 import com.serotonin.bacnet4j.event.DeviceEventListener;
 import com.serotonin.bacnet4j.exception.BACnetException;
-import com.serotonin.bacnet4j.exception.PropertyValueException;
-import com.serotonin.bacnet4j.obj.BACnetObject;
 import com.serotonin.bacnet4j.obj.ObjectProperties;
 import com.serotonin.bacnet4j.obj.PropertyTypeDefinition;
-import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyMultipleAck;
-import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
-import com.serotonin.bacnet4j.service.confirmed.ReadPropertyMultipleRequest;
-import com.serotonin.bacnet4j.service.confirmed.ReinitializeDeviceRequest.ReinitializedStateOfDevice;
+import com.serotonin.bacnet4j.service.acknowledgement.AcknowledgementService;
 import com.serotonin.bacnet4j.service.confirmed.SubscribeCOVRequest;
-import com.serotonin.bacnet4j.service.confirmed.WritePropertyRequest;
 import com.serotonin.bacnet4j.type.Encodable;
-import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
 import com.serotonin.bacnet4j.type.constructed.CalendarEntry;
-import com.serotonin.bacnet4j.type.constructed.Choice;
 import com.serotonin.bacnet4j.type.constructed.DailySchedule;
 import com.serotonin.bacnet4j.type.constructed.DateRange;
-import com.serotonin.bacnet4j.type.constructed.DateTime;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
 import com.serotonin.bacnet4j.type.constructed.PropertyReference;
 import com.serotonin.bacnet4j.type.constructed.PropertyValue;
-import com.serotonin.bacnet4j.type.constructed.ReadAccessResult;
-import com.serotonin.bacnet4j.type.constructed.ReadAccessResult.Result;
-import com.serotonin.bacnet4j.type.constructed.ReadAccessSpecification;
-import com.serotonin.bacnet4j.type.constructed.Sequence;
 import com.serotonin.bacnet4j.type.constructed.SequenceOf;
 import com.serotonin.bacnet4j.type.constructed.SpecialEvent;
-import com.serotonin.bacnet4j.type.constructed.TimeStamp;
 import com.serotonin.bacnet4j.type.constructed.TimeValue;
 import com.serotonin.bacnet4j.type.constructed.WeekNDay;
 import com.serotonin.bacnet4j.type.enumerated.EngineeringUnits;
-import com.serotonin.bacnet4j.type.enumerated.EventState;
-import com.serotonin.bacnet4j.type.enumerated.EventType;
-import com.serotonin.bacnet4j.type.enumerated.MessagePriority;
-import com.serotonin.bacnet4j.type.enumerated.NotifyType;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
 import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
-import com.serotonin.bacnet4j.type.notificationParameters.NotificationParameters;
-import com.serotonin.bacnet4j.type.primitive.CharacterString;
 import com.serotonin.bacnet4j.type.primitive.Date;
 import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
 import com.serotonin.bacnet4j.type.primitive.Primitive;
@@ -102,7 +92,7 @@ import com.serotonin.bacnet4j.util.RequestUtils;
  * @author Mike Pichler
  *
  */
-public class BACnetRemoteConnection extends BACnetConnection implements DeviceEventListener {
+public class BACnetRemoteConnection extends BACnetConnection {
 
     // ignores channels that contain a '.'-char (Siemens compound connectors)
     private boolean ignoreCompoundChannels = true;
@@ -110,16 +100,87 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
     private final LocalDevice LOCAL_DEVICE;
     private final RemoteDevice REMOTE_DEVICE;
 
-    private final UnsignedInteger subscriberProcessIdentifier = new UnsignedInteger(0);
+    // routes the events of the local device to this connection
+    private final EventDemultiplexer events;
+    // subscriber process identifier of the COV subscriptions, unique for the local device
+    private final UnsignedInteger subscriberProcessIdentifier;
+    // receives the events the demultiplexer routes to this connection
+    private final DeviceEventListener eventListener = new DeviceEventAdapter() {
+
+        @Override
+        public void covNotificationReceived(UnsignedInteger subscriberProcessIdentifier,
+                RemoteDevice initiatingDevice, ObjectIdentifier monitoredObjectIdentifier,
+                UnsignedInteger timeRemaining, SequenceOf<PropertyValue> listOfValues) {
+            BACnetRemoteConnection.this.covNotificationReceived(subscriberProcessIdentifier, initiatingDevice,
+                    monitoredObjectIdentifier, timeRemaining, listOfValues);
+        }
+
+        @Override
+        public void iHaveReceived(RemoteDevice d, RemoteObject o) {
+            BACnetRemoteConnection.this.iHaveReceived(d, o);
+        }
+    };
 
     // BACnet write priority between 1 and 16 or null for relinquish_default
     private Integer writePriority = null;
 
+    // number of ReadPropertyMultiple and WritePropertyMultiple requests that are outstanding at the same time
+    private int maxRequestsInFlight = PropertyReader.DEFAULT_MAX_REQUESTS_IN_FLIGHT;
+
+    // time in milliseconds to wait for the acknowledgements of a write call
+    private long writeTimeout = PropertyWriter.DEFAULT_TIMEOUT;
+
+    // coalesces concurrent writes to the same properties, null if writes are sent right away
+    private volatile WriteCoalescer writeCoalescer = null;
+
+    // suppresses writes of unchanged values, null if all writes are sent
+    private volatile WriteSuppressor writeSuppressor = null;
+    private double writeDeadband = 0;
+
+    // true if the object list is always read by index, not as a whole
+    private boolean indexedObjectList = false;
+
     // private final Map<ObjectType, ObjectTypeInfo> acceptedTypes;
-    private Map<String, ObjectIdentifier> objectHandles = null;
+
+    // state shared with all connections to the remote device
+    private final RemoteDeviceContext context;
+    // object handles of the remote device
+    private final ObjectCatalog objectCatalog;
+
+    // resolves object names with Who-Has or null, if unknown names are only resolved by a channel scan
+    private ObjectNameResolver nameResolver;
+    // maximum number of unknown names of a call that are resolved with Who-Has instead of a channel scan
+    private int nameResolutionLimit = ObjectNameResolver.DEFAULT_MAX_NAMES;
+
+    // persistent object catalog or null, if object handles shouldn't be persisted
+    private ObjectCatalogStore catalogStore = null;
+
+    // aggregates the property errors of read
+    private final ReadErrorLog readErrorLog;
+
+    // reads the trend log channels of the listening containers, null if there are none
+    private Timer trendLogTimer = null;
+    // time between two reads of the trend logs in milliseconds
+    private long trendLogInterval = TrendLogTask.DEFAULT_INTERVAL;
+
+    // last values of subscribed objects, served by read while fresh
+    private final CovValueCache covValueCache = new CovValueCache(CovValueCache.DEFAULT_MAX_AGE);
 
     private Map<ObjectIdentifier, ChannelRecordContainer> covContainers = new ConcurrentHashMap<ObjectIdentifier, ChannelRecordContainer>();
-    private RecordsReceivedListener recordsReceivedListener = null;
+    // passes the records of COV notifications to the listener, null if not listening
+    private volatile CovDispatcher covDispatcher = null;
+    private int covQueueCapacity = CovDispatcher.DEFAULT_CAPACITY;
+    // lifetime of the COV subscriptions in seconds, 0 for subscriptions without expiration
+    private int covLifetime = 0;
+    // renews the COV subscriptions before they expire, null if the lifetime is indefinite or not listening
+    private volatile CovSubscriptionRenewer covRenewer = null;
+    // whether the remote device has to confirm the COV notifications
+    private boolean covConfirmedNotifications = true;
+    // time between two reconciliations of the notified values in milliseconds, 0 if off
+    private long covReconcileInterval = 0;
+    // detects lost COV notifications, null if notifications are confirmed and not reconciled or not listening
+    private volatile CovLossDetector covLossDetector = null;
+    private Timer covSupervisionTimer = null;
     /** List of objects with COV-subscription sent but no notification received */
     private List<ObjectIdentifier> openCOVNotifications = new ArrayList<>();
 
@@ -138,233 +199,498 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
 
         LOCAL_DEVICE = localDevice;
         REMOTE_DEVICE = remoteDevice;
-
-        LOCAL_DEVICE.getEventHandler().addListener(this);
+        nameResolver = new ObjectNameResolver(localDevice, remoteDevice, ObjectNameResolver.DEFAULT_TIMEOUT);
+        context = RemoteDeviceRegistry.getInstance().obtainContext(localDevice, remoteDevice.getInstanceNumber());
+        objectCatalog = context.getObjectCatalog();
+        readErrorLog = new ReadErrorLog(remoteDevice.getInstanceNumber(), ReadErrorLog.DEFAULT_INTERVAL);
+
+        events = EventDemultiplexer.obtain(localDevice);
+        subscriberProcessIdentifier = events.allocateProcessIdentifier();
+        events.addDeviceListener(remoteDevice.getInstanceNumber(), eventListener);
     }
 
     @Override
     public List<ChannelScanInfo> scanForChannels(String settings)
             throws UnsupportedOperationException, ArgumentSyntaxException, ScanException, ConnectionException {
 
+        final List<ChannelScanInfo> channelScanInfos = new ArrayList<>();
+        scanForChannels(settings, channels -> channelScanInfos.addAll(channels));
+        return channelScanInfos;
+    }
+
+    /**
+     * Scans for channels of the remote device and reports the channels found to the listener in batches, as soon as
+     * they have been read. If the settings contain the setting <i>startIndex</i>, the objects before this index of the
+     * object list are skipped, e.g. to resume a scan that failed with a {@link ResumableScanException}.
+     * The objects can be restricted by object types, instance range and name (see {@link ChannelScanFilter}). Type
+     * and range filters are applied before any request is sent for an object.
+     * 
+     * @param settings
+     *            the scan settings (see {@link #scanForChannels(String)})
+     * @param listener
+     *            the listener to report the channels and the progress to
+     * @throws ArgumentSyntaxException
+     *             if the settings are invalid
+     * @throws ScanException
+     *             if the scan fails, a {@link ResumableScanException} if some objects have been scanned already
+     * @throws ConnectionException
+     *             if the remote device is not reachable
+     */
+    public void scanForChannels(String settings, ChannelScanListener listener)
+            throws ArgumentSyntaxException, ScanException, ConnectionException {
+
+        Objects.requireNonNull(listener, "listener must not be null");
+
         logger.trace("starting scanForChannes with settings {} on remote device {}...", settings,
                 REMOTE_DEVICE.getInstanceNumber());
         if (!testConnection())
             throw new ConnectionException("Remote device " + REMOTE_DEVICE.getInstanceNumber() + " is not reachable");
 
-        if (settings != null && settings.toLowerCase().equals("parameterlist")) {
-            if (objectHandles == null)
-                scanForChannels("");
-            try {
-                return getParameterList();
-            } catch (BACnetException e) {
-                throw new ScanException(e);
-            } catch (PropertyValueException e) {
-                throw new ScanException(e);
-            }
+        // scans of the same remote device are serialized, even if they are started by different connections
+        objectCatalog.getScanLock().lock();
+        try {
+            scanChannels(settings, listener);
+        } finally {
+            objectCatalog.getScanLock().unlock();
         }
 
-        List<ChannelScanInfo> channelScanInfos = new LinkedList<>();
+        logger.trace("scanForChannels finished on remote device {}.", REMOTE_DEVICE.getInstanceNumber());
+    }
+
+    private void scanChannels(String settings, ChannelScanListener listener)
+            throws ArgumentSyntaxException, ScanException, ConnectionException {
 
-        objectHandles = new HashMap<>();
+        // the parameter list is read in the same pass as the channels, with additional properties per object
+        final boolean parameterList = settings != null && settings.toLowerCase().equals("parameterlist");
+        final int startIndex = parameterList ? 0 : getScanStartIndex(settings);
+        final ChannelScanFilter filter = ChannelScanFilter.parse(parameterList ? null : settings);
+        ChannelScan scan = null;
 
         try {
 
+            // read the database revision before the object list, so that a catalog is never newer than its revision
+            Long databaseRevision = (catalogStore != null) ? readDatabaseRevision() : null;
+
             // get object list from remote device
-            @SuppressWarnings("unchecked")
-            List<ObjectIdentifier> objectIdentifiers = ((SequenceOf<ObjectIdentifier>) RequestUtils
-                    .sendReadPropertyAllowNull(LOCAL_DEVICE, REMOTE_DEVICE, REMOTE_DEVICE.getObjectIdentifier(),
-                            PropertyIdentifier.objectList)).getValues();
+            List<ObjectIdentifier> objectIdentifiers = createPropertyReader().readObjectList(indexedObjectList);
 
             logger.trace("got basic information of {} objects. Filter by supported types...", objectIdentifiers.size());
             // filter object identifiers to just get accepted ones (see constructor)
             // objectIdentifiers = getAcceptedObjects(objectIdentifiers);
-            logger.trace("getting detailed information of {} channels...", objectIdentifiers.size());
-
-            // request name and description for each accepted object
-            for (ObjectIdentifier objectIdentifier : objectIdentifiers) {
-
-                List<ReadAccessSpecification> specifications = new ArrayList<>(3);
-                specifications.add(new ReadAccessSpecification(objectIdentifier, PropertyIdentifier.objectName));
-                specifications.add(new ReadAccessSpecification(objectIdentifier, PropertyIdentifier.description));
-                specifications.add(new ReadAccessSpecification(objectIdentifier, PropertyIdentifier.units));
-
-                SequenceOf<ReadAccessSpecification> sequence = new SequenceOf<>(specifications);
-                ConfirmedRequestService serviceRequest = new ReadPropertyMultipleRequest(sequence);
-
-                ServiceFuture future = LOCAL_DEVICE.send(REMOTE_DEVICE, serviceRequest);
-                ReadPropertyMultipleAck ack = future.get();
-
-                SequenceOf<ReadAccessResult> results = ack.getListOfReadAccessResults();
-
-                String channelAddress = "";
-                String description = "";
-                String unit = "";
-
-                for (ReadAccessResult readAccessResult : results) {
+            logger.trace("getting detailed information of {} channels starting at index {}...",
+                    objectIdentifiers.size(), startIndex);
+
+            scan = new ChannelScan(objectIdentifiers, Math.min(startIndex, objectIdentifiers.size()), parameterList,
+                    filter, listener);
+            if (filter.hasNameFilter()) {
+                // read the names first, the other properties are only read for objects with matching names
+                scan.filterNames(createPropertyReader().readProperties(scan.references));
+            }
 
-                    for (Result result : readAccessResult.getListOfResults()) {
-                        Choice readResult = result.getReadResult();
-                        String readResultStr = readResult.toString();
-                        PropertyIdentifier propertyIdentifier = result.getPropertyIdentifier();
+            // request the properties of all objects with batched ReadPropertyMultiple requests
+            createPropertyReader().readProperties(scan.references, scan);
+            scan.finish();
 
-                        if (propertyIdentifier.equals(PropertyIdentifier.objectName)) {
-                            channelAddress = readResultStr;
-                        }
-                        else if (propertyIdentifier.equals(PropertyIdentifier.description)) {
-                            description = readResultStr;
-                        }
-                        else if (propertyIdentifier.equals(PropertyIdentifier.units)
-                                && readResult.getDatum() instanceof EngineeringUnits) {
-                            unit = readResultStr;
-                        }
-                    }
-                }
+            if (startIndex == 0 && filter.isEmpty()) {
+                objectCatalog.replace(scan.handles, true);
 
-                // scan for channels always returns the type of the present value property
-                PropertyTypeDefinition def = ObjectProperties
-                        .getPropertyTypeDefinition(objectIdentifier.getObjectType(), PropertyIdentifier.presentValue);
-
-                // ChannelScanInfo info =
-                // acceptedTypes.get(objectIdentifier.getObjectType()).getChannelScanInfo(channelAddress, description);
-
-                // objects with unknown property type definition will be ignored
-                // SIEMENS: channel addresses with . mean compound connectors and will be ignored
-                if (def != null && (!channelAddress.contains(".") && ignoreCompoundChannels)) {
-                    ValueType valueType = ConversionUtil.getValueTypeMapping(def.getClazz());
-                    if (valueType == null)
-                        valueType = ValueType.STRING; // default value type
-                    
-                    Integer valueTypeLength = null;
-                    if(valueType.equals(ValueType.STRING)||valueType.equals(ValueType.BYTE_ARRAY)) valueTypeLength = 1024;
-                    
-                    boolean isCommandable = ObjectProperties.isCommandable(objectIdentifier.getObjectType(),
-                            PropertyIdentifier.presentValue);
-
-                    String metadata = createMetaData("", unit);
-                    ChannelScanInfo info = new ChannelScanInfo(channelAddress, description, valueType, valueTypeLength, true,
-                            isCommandable, metadata);
-
-                    channelScanInfos.add(info);
-                    objectHandles.put(channelAddress, objectIdentifier);
+                if (catalogStore != null) {
+                    Integer objectListHash = (databaseRevision == null) ? objectIdentifiers.hashCode() : null;
+                    saveObjectCatalog(new ObjectCatalogStore.Catalog(databaseRevision, objectListHash, scan.handles));
                 }
             }
+            else {
+                objectCatalog.putAll(scan.handles);
+            }
 
         } catch (BACnetException e) {
+
+            // keep the channels scanned so far
+            ResumableScanException resumable = null;
+            if (scan != null) {
+                objectCatalog.putAll(scan.handles);
+                resumable = new ResumableScanException("Error while scanning at object index " + scan.next + ": "
+                        + e.getMessage(), e, scan.next);
+            }
+
             // distinguish between scan exception and connection exception
             if (testConnection()) {
                 logger.error("Error while scanning: " + e.getMessage(), e);
+                if (resumable != null)
+                    throw resumable;
                 throw new ScanException("Error while scanning: " + e.getMessage(), e);
             }
             else {
                 logger.error("Remote device " + REMOTE_DEVICE.getInstanceNumber() + " is not reachable", e);
-                throw new ConnectionException(
-                        "Remote device " + REMOTE_DEVICE.getInstanceNumber() + " is not reachable");
+                final String message = "Remote device " + REMOTE_DEVICE.getInstanceNumber() + " is not reachable";
+                if (resumable != null)
+                    throw new ConnectionException(message, resumable);
+                throw new ConnectionException(message);
             }
         }
+    }
 
-        logger.trace("scanForChannels finished on remote device {}.", REMOTE_DEVICE.getInstanceNumber());
-        return channelScanInfos;
+    private int getScanStartIndex(String settings) throws ArgumentSyntaxException {
+
+        if (settings == null || !Settings.isValidSettingsString(settings))
+            return 0;
+
+        final String startIndex = new Settings(settings).get(Settings.SETTING_SCAN_START_INDEX);
+        if (startIndex == null)
+            return 0;
+        try {
+            final int result = Integer.parseInt(startIndex);
+            if (result < 0)
+                throw new ArgumentSyntaxException("startIndex value must not be negative");
+            return result;
+        } catch (NumberFormatException e) {
+            throw new ArgumentSyntaxException("startIndex value is not a number");
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private List<ChannelScanInfo> getParameterList() throws BACnetException, PropertyValueException {
+    /**
+     * Creates the channel of a trend log object. Trend log channels deliver the records of the log buffer to the
+     * listener, they cannot be sampled.
+     */
+    private ChannelScanInfo createTrendLogScanInfo(ObjectIdentifier objectIdentifier, String objectName,
+            PropertyValues values, Map<String, String> strings) {
 
-        List<ChannelScanInfo> scanInfos = new Vector<>();
+        String description = deduplicate(strings,
+                values.getString(objectIdentifier, PropertyIdentifier.description, ""));
+        String channelAddress = objectName + separator + PropertyIdentifier.logBuffer.toString();
 
-        // create a list of property references that should be read
-        PropertyReferences references = new PropertyReferences();
-        for (String handle : objectHandles.keySet()) {
-            ObjectIdentifier objectId = objectHandles.get(handle);
-            addPropertyIdentifiers(references, objectId);
+        // the type of the logged values is unknown without reading the log
+        return new ChannelScanInfo(channelAddress, description, ValueType.DOUBLE, null, false, false,
+                createMetaData("", ""));
+    }
+
+    /**
+     * Creates the channel scan info of an object out of its name, description and units. Descriptions and metadata
+     * are deduplicated with the given string pool, since many objects of a device share them.
+     */
+    private ChannelScanInfo createChannelScanInfo(ObjectIdentifier objectIdentifier, String channelAddress,
+            PropertyValues values, Map<String, String> strings) {
+
+        String description = deduplicate(strings,
+                values.getString(objectIdentifier, PropertyIdentifier.description, ""));
+        String unit = "";
+
+        Encodable units = values.getNoErrorCheck(objectIdentifier, PropertyIdentifier.units);
+        if (units instanceof EngineeringUnits) {
+            unit = units.toString();
         }
 
-        // read values
-        PropertyValues values = RequestUtils.readProperties(LOCAL_DEVICE, REMOTE_DEVICE, references, null);
+        // scan for channels always returns the type of the present value property
+        PropertyTypeDefinition def = ObjectProperties.getPropertyTypeDefinition(objectIdentifier.getObjectType(),
+                PropertyIdentifier.presentValue);
+
+        // the value type of the converter used by read, types without a converter are read as string
+        ValueType valueType = ValueConverters.forProperty(PropertyIdentifier.presentValue, def.getClazz())
+                .getValueType();
+
+        Integer valueTypeLength = null;
+        if(valueType.equals(ValueType.STRING)||valueType.equals(ValueType.BYTE_ARRAY)) valueTypeLength = 1024;
 
-        // create and add channel scan info including the actual value
-        for (String channelAddress : objectHandles.keySet()) {
+        boolean isCommandable = ObjectProperties.isCommandable(objectIdentifier.getObjectType(),
+                PropertyIdentifier.presentValue);
 
-            final ObjectIdentifier objectId = objectHandles.get(channelAddress);
+        String metadata = deduplicate(strings, createMetaData("", unit));
+        return new ChannelScanInfo(channelAddress, description, valueType, valueTypeLength, true, isCommandable,
+                metadata);
+    }
+
+    /**
+     * Creates the parameter list entries of an object, one for each property added by
+     * {@link #addPropertyIdentifiers(PropertyReferences, ObjectIdentifier)} except units and description.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ChannelScanInfo> createParameterScanInfos(ObjectIdentifier objectIdentifier, String channelAddress,
+            List<PropertyReference> references, PropertyValues values, Map<String, String> strings) {
+
+        final List<ChannelScanInfo> scanInfos = new ArrayList<>();
+
+        Encodable eUnit = values.getNullOnError(objectIdentifier, PropertyIdentifier.units);
+        String unit = (eUnit instanceof EngineeringUnits) ? eUnit.toString() : "";
+        String description = deduplicate(strings,
+                values.getString(objectIdentifier, PropertyIdentifier.description, ""));
+
+        for (PropertyReference propertyReference : references) {
 
-            // check if object is relevant for parameter list
-            if (!references.getProperties().containsKey(objectId)) {
+            final PropertyIdentifier propertyIdentifier = propertyReference.getPropertyIdentifier();
+            if (propertyIdentifier.equals(PropertyIdentifier.objectName)
+                    || propertyIdentifier.equals(PropertyIdentifier.units)
+                    || propertyIdentifier.equals(PropertyIdentifier.description)) {
                 continue;
             }
 
-            ListIterator<PropertyReference> it = references.getProperties().get(objectId).listIterator();
+            Encodable value = values.getNullOnError(objectIdentifier, propertyIdentifier);
+            if (value == null) {
+                logger.debug("could not read property {} of object {} on remote device {}, parameter will be ignored",
+                        propertyIdentifier, channelAddress, REMOTE_DEVICE.getInstanceNumber());
+                continue;
+            }
 
-            while (it.hasNext()) {
-                PropertyReference engineeringUnit = it.next();
+            String newChannelAddress = channelAddress + separator + propertyIdentifier.toString();
 
-                Encodable eUnit = values.getNullOnError(objectId, engineeringUnit.getPropertyIdentifier());
+            String valueStr;
+            /*
+             * TODO if (propertyReference.getPropertyIdentifier().equals(PropertyIdentifier.presentValue)) {
+             * continue; } else
+             */
+            if (propertyIdentifier.equals(PropertyIdentifier.weeklySchedule)) {
+                checkIfSequenceOf(value);
+                JsonArray list = new JsonArray();
+                ((SequenceOf<DailySchedule>) value).forEach(ds -> list.add(dailyScheduleToJson(ds)));
 
-                String unit;
-                if (eUnit != null && eUnit instanceof EngineeringUnits) {
-                    unit = eUnit.toString();
-                }
-                else {
-                    unit = "";
+                valueStr = list.toString();
+            }
+            else if (propertyIdentifier.equals(PropertyIdentifier.exceptionSchedule)) {
+                checkIfSequenceOf(value);
+                JsonArray list = new JsonArray();
+                ((SequenceOf<SpecialEvent>) value).forEach(se -> list.add(specialEventToJson(se)));
+
+                valueStr = list.toString();
+            }
+            else if (propertyIdentifier.equals(PropertyIdentifier.dateList)) {
+                checkIfSequenceOf(value);
+                JsonArray list = new JsonArray();
+
+                ((SequenceOf<CalendarEntry>) value).forEach(c -> list.add(calendarToJson(c)));
+
+                valueStr = list.toString();
+            }
+            else {
+                valueStr = value.toString();
+            }
+
+            String metadata = deduplicate(strings, createMetaData(valueStr, unit));
+
+            ChannelScanInfo channelScanInfo = new ChannelScanInfo(newChannelAddress, description, ValueType.STRING,
+                    1024, true, true, metadata);
+
+            scanInfos.add(channelScanInfo);
+        }
+
+        return scanInfos;
+    }
+
+    private static String deduplicate(Map<String, String> strings, String value) {
+        final String existing = strings.putIfAbsent(value, value);
+        return (existing == null) ? value : existing;
+    }
+
+    /**
+     * State of a streaming channel scan. Objects are decoded in the order of the object list as soon as all of their
+     * properties have been read, and reported to the listener in batches. A channel scan reads name, description and
+     * units of each object; a parameter list scan reads the name and the properties relevant for a parameter list
+     * (see {@link #addPropertyIdentifiers(PropertyReferences, ObjectIdentifier)}) in the same pass.
+     */
+    private class ChannelScan implements PropertyReader.Listener {
+
+        private final List<ObjectIdentifier> objectIdentifiers;
+        private final boolean parameterList;
+        private final ChannelScanFilter filter;
+        private final ChannelScanListener listener;
+        private PropertyReferences references = new PropertyReferences();
+        private final Map<String, ObjectIdentifier> handles = new HashMap<>();
+        // pool of descriptions and metadata of the channels found
+        private final Map<String, String> strings = new HashMap<>();
+        // index of the next object to decode
+        private int next;
+        // values read so far
+        private PropertyValues last = null;
+        // names read before the other properties in case of a name filter, otherwise null
+        private PropertyValues names = null;
+
+        ChannelScan(List<ObjectIdentifier> objectIdentifiers, int startIndex, boolean parameterList,
+                ChannelScanFilter filter, ChannelScanListener listener) {
+            this.objectIdentifiers = objectIdentifiers;
+            this.parameterList = parameterList;
+            this.filter = filter;
+            this.listener = listener;
+            this.next = startIndex;
+
+            for (ObjectIdentifier objectIdentifier : objectIdentifiers.subList(startIndex, objectIdentifiers.size())) {
+                // objects with unknown property type definition are no channels, don't read them at all
+                if (!isChannelObjectType(objectIdentifier) || !filter.acceptsObject(objectIdentifier)) {
+                    continue;
                 }
+                if (filter.hasNameFilter())
+                    references.add(objectIdentifier, PropertyIdentifier.objectName);
+                else
+                    addReferences(objectIdentifier, true);
+            }
+        }
+
+        private void addReferences(ObjectIdentifier objectIdentifier, boolean withName) {
+            if (withName)
+                references.add(objectIdentifier, PropertyIdentifier.objectName);
+            if (parameterList) {
+                addPropertyIdentifiers(references, objectIdentifier);
+            }
+            else {
+                references.add(objectIdentifier, PropertyIdentifier.description, PropertyIdentifier.units);
+            }
+        }
 
-                Encodable desc = values.getNullOnError(objectId, it.next().getPropertyIdentifier());
-                String description = desc.toString();
+        /**
+         * Replaces the references by the references of the objects with a name accepted by the filter.
+         */
+        void filterNames(PropertyValues names) {
+            this.names = names;
+            final Set<ObjectIdentifier> objects = references.getProperties().keySet();
+            references = new PropertyReferences();
+            for (ObjectIdentifier objectIdentifier : objects) {
+                Encodable name = names.getNullOnError(objectIdentifier, PropertyIdentifier.objectName);
+                if (name != null && filter.acceptsName(name.toString()))
+                    addReferences(objectIdentifier, false);
+            }
+        }
 
-                while (it.hasNext()) {
-                    PropertyReference propertyReference = it.next();
+        @Override
+        public void partitionRead(PropertyReferences partition, PropertyValues values) {
+            decode(values, false);
+        }
 
-                    Encodable value = values.get(objectId, propertyReference.getPropertyIdentifier());
-                    if (value instanceof EngineeringUnits) {
-                        it.previous(); // set pointer to previous
-                        break;
-                    }
+        void finish() {
+            decode(null, true);
+        }
 
-                    String newChannelAddress = channelAddress + separator
-                            + propertyReference.getPropertyIdentifier().toString();
+        private void decode(PropertyValues values, boolean all) {
 
-                    String valueStr;
-                    /*
-                     * TODO if (propertyReference.getPropertyIdentifier().equals(PropertyIdentifier.presentValue)) {
-                     * continue; } else
-                     */
-                    if (propertyReference.getPropertyIdentifier().equals(PropertyIdentifier.weeklySchedule)) {
-                        checkIfSequenceOf(value);
-                        JsonArray list = new JsonArray();
-                        ((SequenceOf<DailySchedule>) value).forEach(ds -> list.add(dailyScheduleToJson(ds)));
+            if (values != null)
+                last = values;
 
-                        valueStr = list.toString();
-                    }
-                    else if (propertyReference.getPropertyIdentifier().equals(PropertyIdentifier.exceptionSchedule)) {
-                        checkIfSequenceOf(value);
-                        JsonArray list = new JsonArray();
-                        ((SequenceOf<SpecialEvent>) value).forEach(se -> list.add(specialEventToJson(se)));
+            final List<ChannelScanInfo> channels = new ArrayList<>();
+            while (next < objectIdentifiers.size() && (all || isRead(objectIdentifiers.get(next), last))) {
+                decodeObject(objectIdentifiers.get(next), channels);
+                next++;
+            }
 
-                        valueStr = list.toString();
-                    }
-                    else if (propertyReference.getPropertyIdentifier().equals(PropertyIdentifier.dateList)) {
-                        checkIfSequenceOf(value);
-                        JsonArray list = new JsonArray();
+            if (!channels.isEmpty())
+                listener.channelsFound(channels);
+            listener.scanProgressUpdate(next, objectIdentifiers.size());
+        }
 
-                        ((SequenceOf<CalendarEntry>) value).forEach(c -> list.add(calendarToJson(c)));
+        private void decodeObject(ObjectIdentifier objectIdentifier, List<ChannelScanInfo> channels) {
 
-                        valueStr = list.toString();
-                    }
-                    else {
-                        valueStr = value.toString();
-                    }
+            final List<PropertyReference> objectReferences = references.getProperties().get(objectIdentifier);
+            if (objectReferences == null || last == null)
+                return;
 
-                    String metadata = createMetaData(valueStr, unit);
+            Encodable name = ((names != null) ? names : last).getNullOnError(objectIdentifier,
+                    PropertyIdentifier.objectName);
+            if (name == null) {
+                logger.debug("could not read name of object {} on remote device {}, object will be ignored",
+                        objectIdentifier, REMOTE_DEVICE.getInstanceNumber());
+                return;
+            }
 
-                    ChannelScanInfo channelScanInfo = new ChannelScanInfo(newChannelAddress, description,
-                            ValueType.STRING, 1024, true, true, metadata);
+            final String channelAddress = name.toString();
+            if (!isChannelObject(objectIdentifier, channelAddress))
+                return;
 
-                    scanInfos.add(channelScanInfo);
-                }
+            handles.put(channelAddress, objectIdentifier);
+            if (ObjectType.trendLog.equals(objectIdentifier.getObjectType())) {
+                if (!parameterList)
+                    channels.add(createTrendLogScanInfo(objectIdentifier, channelAddress, last, strings));
             }
+            else if (parameterList)
+                channels.addAll(
+                        createParameterScanInfos(objectIdentifier, channelAddress, objectReferences, last, strings));
+            else
+                channels.add(createChannelScanInfo(objectIdentifier, channelAddress, last, strings));
+        }
 
+        private boolean isRead(ObjectIdentifier objectIdentifier, PropertyValues values) {
+            final List<PropertyReference> objectReferences = references.getProperties().get(objectIdentifier);
+            if (objectReferences == null)
+                return true;
+            if (values == null)
+                return false;
+            for (PropertyReference reference : objectReferences) {
+                if (values.getNoErrorCheck(objectIdentifier, reference) == null)
+                    return false;
+            }
+            return true;
         }
+    }
 
-        // return parameter list
-        return scanInfos;
+    /**
+     * Loads the object handles of the remote device from the persistent object catalog, if a catalog store is set
+     * and the stored catalog is still valid for the remote device (same database revision or same object list). If
+     * the object handles can be loaded, no channel scan is necessary to resolve channel addresses. If another
+     * connection to the remote device has loaded or scanned the object handles already, they are used instead.
+     * 
+     * @return true if the object handles have been loaded from the catalog or are known already
+     */
+    public boolean loadObjectCatalog() {
+
+        if (objectCatalog.isComplete())
+            return true;
+        if (catalogStore == null)
+            return false;
+
+        final ObjectCatalogStore.Catalog catalog = catalogStore.load(REMOTE_DEVICE.getInstanceNumber());
+        if (catalog == null)
+            return false;
+
+        try {
+            final Long databaseRevision = readDatabaseRevision();
+            Integer objectListHash = null;
+            if (databaseRevision == null) {
+                objectListHash = createPropertyReader().readObjectList(indexedObjectList).hashCode();
+            }
+
+            if (!catalog.isValidFor(databaseRevision, objectListHash)) {
+                logger.debug("object catalog of remote device {} is outdated and will be ignored",
+                        REMOTE_DEVICE.getInstanceNumber());
+                return false;
+            }
+        } catch (BACnetException e) {
+            logger.warn("cannot validate object catalog of remote device {}: {}", REMOTE_DEVICE.getInstanceNumber(),
+                    e.getMessage());
+            return false;
+        }
+
+        objectCatalog.replace(catalog.getHandles(), false);
+        logger.debug("loaded {} object handles of remote device {} from catalog", objectCatalog.size(),
+                REMOTE_DEVICE.getInstanceNumber());
+        return true;
+    }
+
+    /**
+     * Returns true if the object is mapped to a channel. Objects with unknown property type definition of the present
+     * value will be ignored, except trend logs.
+     */
+    private boolean isChannelObject(ObjectIdentifier objectIdentifier, String channelAddress) {
+        // SIEMENS: channel addresses with . mean compound connectors and will be ignored
+        return isChannelObjectType(objectIdentifier) && (!channelAddress.contains(".") && ignoreCompoundChannels);
+    }
+
+    private static boolean isChannelObjectType(ObjectIdentifier objectIdentifier) {
+        return ObjectType.trendLog.equals(objectIdentifier.getObjectType()) || ObjectProperties
+                .getPropertyTypeDefinition(objectIdentifier.getObjectType(), PropertyIdentifier.presentValue) != null;
+    }
+
+    private void saveObjectCatalog(ObjectCatalogStore.Catalog catalog) {
+        try {
+            catalogStore.save(REMOTE_DEVICE.getInstanceNumber(), catalog);
+        } catch (IOException e) {
+            logger.warn("cannot save object catalog of remote device {}: {}", REMOTE_DEVICE.getInstanceNumber(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the database revision of the remote device.
+     * 
+     * @return the database revision or <code>null</code>, if the property is not supported by the remote device
+     */
+    private Long readDatabaseRevision() throws BACnetException {
+        final Encodable revision = RequestUtils.sendReadPropertyAllowNull(LOCAL_DEVICE, REMOTE_DEVICE,
+                REMOTE_DEVICE.getObjectIdentifier(), PropertyIdentifier.databaseRevision);
+        return (revision instanceof UnsignedInteger) ? ((UnsignedInteger) revision).longValue() : null;
     }
 
     private JsonArray dailyScheduleToJson(DailySchedule ds) {
@@ -489,70 +815,204 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
             logger.trace("reading value for channels {}", channelAddresses);
         }
 
-        final PropertyReferences references;
-
-        if (containerListHandle == null || !(containerListHandle instanceof PropertyReferences)) {
-            references = new PropertyReferences();
-            for (ChannelRecordContainer container : containers) {
-                final ObjectIdentifier identifier = getObjectIdentifier(container);
-                if (identifier == null) {
-                    // do not add PropertyReference with "null" identifier to references (since this causes an Exception
-                    // in BACnet4j)
-                    // logger.warn("identifier for " + container.getChannelAddress() + " is null. Probably unknown
-                    // BACnet object name.");
-                    continue;
-                }
-                references.add(identifier, getPropertyIdentifier(container.getChannelAddress()));
-            }
+        final ReadPlan plan;
+        if (containerListHandle instanceof ReadPlan && ((ReadPlan) containerListHandle).isCompiledFor(containers)) {
+            plan = (ReadPlan) containerListHandle;
         }
         else {
-            references = (PropertyReferences) containerListHandle;
+            plan = compileReadPlan(containers);
         }
 
-        try {
-            PropertyValues values = RequestUtils.readProperties(LOCAL_DEVICE, REMOTE_DEVICE, references, null);
-            long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < plan.size(); i++) {
+            final Flag error = plan.getError(i);
+            if (error != null)
+                containers.get(i).setRecord(new Record(error));
+        }
 
-            for (ChannelRecordContainer channelRecordContainer : containers) {
-                final ObjectIdentifier objectIdentifier = getObjectIdentifier(channelRecordContainer);
-                if (objectIdentifier == null) {
-                    channelRecordContainer.setRecord(new Record(Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND));
+        final int[] readOrder = plan.getReadOrder();
+        final boolean cacheActive = !covValueCache.isInactive();
+        final long now = System.currentTimeMillis();
+        final InFlightReads inFlightReads = context.getInFlightReads();
+
+        // references read by this call and by concurrent reads of other calls
+        final PropertyReferences references = new PropertyReferences();
+        final int[] ownOrder = new int[readOrder.length];
+        final int[] sharedOrder = new int[readOrder.length];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final CompletableFuture<Encodable>[] futures = new CompletableFuture[plan.size()];
+        int owned = 0;
+        int shared = 0;
+
+        for (int i : readOrder) {
+            final ObjectPropertyReference reference = plan.getReference(i);
+
+            if (cacheActive) {
+                // serve subscribed objects from the cache
+                final CovValueCache.CachedValue cachedValue = covValueCache.get(reference, now);
+                if (cachedValue != null) {
+                    containers.get(i).setRecord(new Record(plan.getConverter(i).convert(cachedValue.getValue()),
+                            cachedValue.getTimestamp(), Flag.VALID));
                     continue;
                 }
+            }
 
-                try {
-
-                    PropertyIdentifier propertyIdentifier = getPropertyIdentifier(
-                            channelRecordContainer.getChannelAddress());
-                    final Encodable propertyValue = values.get(objectIdentifier, propertyIdentifier);
-
-                    if (logger.isTraceEnabled()) {
-                        logger.trace("read new value for channel {} is type {} with value {}",
-                                channelRecordContainer.getChannel().getId(), propertyValue.getClass().getName(),
-                                propertyValue.toString());
-                    }
+            final CompletableFuture<Encodable> future = new CompletableFuture<>();
+            final CompletableFuture<Encodable> outstanding = inFlightReads.register(reference, future);
+            if (outstanding == null) {
+                references.add(reference.getObjectIdentifier(), reference.getPropertyIdentifier());
+                ownOrder[owned++] = i;
+                futures[i] = future;
+            }
+            else {
+                sharedOrder[shared++] = i;
+                futures[i] = outstanding;
+            }
+        }
 
-                    final PropertyTypeDefinition propertyTypeDefinition = ObjectProperties
-                            .getPropertyTypeDefinition(objectIdentifier.getObjectType(), propertyIdentifier);
-                    final Value value = ConversionUtil.convertValue(propertyValue, propertyTypeDefinition);
-                    channelRecordContainer.setRecord(new Record(value, timestamp, Flag.VALID));
-
-                } catch (PropertyValueException e) {
-                    logger.warn(String.format("error while reading property of channel %s",
-                            channelRecordContainer.getChannel().getId()), e);
-                    try {
-                        logger.warn("BACnet read-error caused by {}", values.toString());
-                    } catch (Throwable t) {
+        if (owned > 0) {
+            Throwable failure = null;
+            try {
+                // the values are merged into the containers as the responses arrive
+                createPropertyReader().readProperties(references,
+                        new ReadDecoder(plan, containers, ownOrder, futures));
+            } catch (BACnetException e) {
+                failure = e;
+                throw new ConnectionException(e.getMessage());
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            } finally {
+                // never leave concurrent readers waiting for a read that has been aborted
+                for (int n = 0; n < owned; n++) {
+                    final int i = ownOrder[n];
+                    if (!futures[i].isDone()) {
+                        inFlightReads.fail(plan.getReference(i), futures[i],
+                                (failure != null) ? failure : new IllegalStateException("value not received"));
                     }
-                    channelRecordContainer.setRecord(new Record(Flag.DRIVER_ERROR_READ_FAILURE));
                 }
             }
+        }
 
-        } catch (BACnetException e) {
-            throw new ConnectionException(e.getMessage());
+        for (int n = 0; n < shared; n++) {
+            final int i = sharedOrder[n];
+            try {
+                setRecord(plan, containers, i, futures[i].get(), System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectionException("interrupted while waiting for concurrent read");
+            } catch (ExecutionException e) {
+                throw new ConnectionException(e.getCause().getMessage());
+            }
+        }
+
+        readErrorLog.flush(System.currentTimeMillis());
+        return plan;
+    }
+
+    /**
+     * Sets the record of a container from the result of a read.
+     */
+    private void setRecord(ReadPlan plan, List<ChannelRecordContainer> containers, int i, Encodable propertyValue,
+            long timestamp) {
+
+        final ChannelRecordContainer channelRecordContainer = containers.get(i);
+
+        if (propertyValue == null || propertyValue instanceof BACnetError) {
+            final BACnetError error = (BACnetError) propertyValue;
+            readErrorLog.add(channelRecordContainer.getChannel().getId(), error);
+            channelRecordContainer.setRecord(new Record(ConversionUtil.getReadErrorFlag(error)));
+            return;
+        }
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("read new value for channel {} is type {} with value {}",
+                    channelRecordContainer.getChannel().getId(), propertyValue.getClass().getName(),
+                    propertyValue.toString());
+        }
+
+        final Value value = plan.getConverter(i).convert(propertyValue);
+        channelRecordContainer.setRecord(new Record(value, timestamp, Flag.VALID));
+    }
+
+    /**
+     * Sets the records of the containers of a read plan each time a part of its references has been read, and passes
+     * the values to concurrent reads of the same properties. The parts are reported in the order of the references,
+     * also after a part has been split, so the decoder walks through the read order with a cursor.
+     */
+    private class ReadDecoder implements PropertyReader.Listener {
+
+        private final ReadPlan plan;
+        private final List<ChannelRecordContainer> containers;
+        private final int[] readOrder;
+        private final CompletableFuture<Encodable>[] futures;
+        private final InFlightReads inFlightReads = context.getInFlightReads();
+        private final boolean cacheValues = !covValueCache.isInactive();
+        private int next = 0;
+
+        ReadDecoder(ReadPlan plan, List<ChannelRecordContainer> containers, int[] readOrder,
+                CompletableFuture<Encodable>[] futures) {
+            this.plan = plan;
+            this.containers = containers;
+            this.readOrder = readOrder;
+            this.futures = futures;
+        }
+
+        @Override
+        public void partitionRead(PropertyReferences partition, PropertyValues values) {
+
+            final long timestamp = System.currentTimeMillis();
+            final int end = next + partition.size();
+
+            for (; next < end; next++) {
+                final int i = readOrder[next];
+                final ObjectPropertyReference reference = plan.getReference(i);
+                final Encodable propertyValue = values.getNoErrorCheck(reference);
+
+                inFlightReads.complete(reference, futures[i], propertyValue);
+                setRecord(plan, containers, i, propertyValue, timestamp);
+
+                // keeps the cached values of subscribed objects fresh, if their values don't change
+                if (cacheValues && propertyValue != null && !(propertyValue instanceof BACnetError))
+                    covValueCache.put(reference, propertyValue, timestamp);
+            }
         }
+    }
+
+    /**
+     * Compiles the read plan for the specified container list. Object names are resolved to object identifiers here,
+     * so that the read loop itself doesn't have to parse channel addresses.
+     */
+    private ReadPlan compileReadPlan(List<ChannelRecordContainer> containers)
+            throws UnsupportedOperationException, ConnectionException {
+
+        resolveObjectNames(containers.stream()
+                .filter(container -> !(container.getChannelHandle() instanceof ObjectIdentifier))
+                .map(container -> getObjectAddress(container.getChannelAddress()))
+                .collect(Collectors.toList()));
+
+        final ReadPlan plan = new ReadPlan(containers.size());
+        for (ChannelRecordContainer container : containers) {
+            final String channelAddress = container.getChannelAddress();
+            final ObjectIdentifier objectIdentifier = getObjectIdentifier(container);
+            final PropertyIdentifier propertyIdentifier = getPropertyIdentifier(channelAddress);
 
-        return references;
+            if (objectIdentifier == null) {
+                // do not add PropertyReference with "null" identifier to references (since this causes an Exception
+                // in BACnet4j)
+                plan.addError(channelAddress, Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND);
+            }
+            else if (propertyIdentifier == null) {
+                plan.addError(channelAddress, Flag.DRIVER_ERROR_CHANNEL_ADDRESS_SYNTAX_INVALID);
+            }
+            else if (PropertyIdentifier.logBuffer.equals(propertyIdentifier)) {
+                // trend logs are read by listening
+                plan.addError(channelAddress, Flag.ACCESS_METHOD_NOT_SUPPORTED);
+            }
+            else {
+                plan.add(channelAddress, objectIdentifier, propertyIdentifier);
+            }
+        }
+        return plan;
     }
 
     private ObjectIdentifier getObjectIdentifier(ChannelValueContainer container)
@@ -579,17 +1039,80 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
             return (ObjectIdentifier) origChannelHandle;
         }
 
-        if (objectHandles == null) {
-            // scan for channels to get channel handles
+        if (channelAddress == null)
+            return null;
+
+        // names have been resolved with Who-Has by resolveObjectNames before, if possible
+        ObjectIdentifier objectIdentifier = objectCatalog.get(channelAddress);
+        if (objectIdentifier != null || objectCatalog.isUnresolved(channelAddress))
+            return objectIdentifier;
+
+        if (!objectCatalog.isScanned()) {
+            // scan for channels to get channel handles, unless another connection has just scanned the device
+            objectCatalog.getScanLock().lock();
             try {
-                scanForChannels(null);
+                if (!objectCatalog.isScanned())
+                    scanForChannels(null);
             } catch (ArgumentSyntaxException e) {
                 throw new ConnectionException(e);
             } catch (ScanException e) {
                 throw new ConnectionException(e);
+            } finally {
+                objectCatalog.getScanLock().unlock();
+            }
+            objectIdentifier = objectCatalog.get(channelAddress);
+        }
+
+        if (objectIdentifier == null) {
+            logger.debug("channel address {} not found on remote device {}", channelAddress,
+                    REMOTE_DEVICE.getInstanceNumber());
+            objectCatalog.markUnresolved(channelAddress);
+        }
+        return objectIdentifier;
+    }
+
+    /**
+     * Resolves the object names that are unknown to the connection with Who-Has and adds the results to the object
+     * handles. All names are resolved in a single round, so that the channels don't wait for their answers one after
+     * another. Names that cannot be resolved unambiguously are left to a channel scan.
+     * <p>
+     * Who-Has is only used for a few channels added to a device whose catalog is complete. Without a complete
+     * catalog, or with more unknown names than the limit, the channel scan is cheaper than waiting for the I-Have
+     * broadcasts of every name.
+     * 
+     * @param objectNames
+     *            the object names of the channels, including names that are known already
+     */
+    private void resolveObjectNames(List<String> objectNames) {
+
+        final ObjectNameResolver resolver = nameResolver;
+        if (resolver == null)
+            return;
+
+        final Set<String> unknown = new LinkedHashSet<>();
+        for (String objectName : objectNames) {
+            if (objectName != null && objectCatalog.get(objectName) == null
+                    && !objectCatalog.isUnresolved(objectName))
+                unknown.add(objectName);
+        }
+        if (unknown.isEmpty() || !objectCatalog.isComplete() || unknown.size() > nameResolutionLimit)
+            return;
+
+        // the catalog copies its table on each modification, so the names are added at once
+        final Map<String, ObjectIdentifier> resolved = new HashMap<>();
+        for (Map.Entry<String, List<ObjectIdentifier>> result : resolver.resolve(unknown).entrySet()) {
+            final String objectName = result.getKey();
+            final List<ObjectIdentifier> identifiers = result.getValue();
+            if (identifiers.size() > 1) {
+                logger.debug("object name {} is ambiguous on remote device {}: {}", objectName,
+                        REMOTE_DEVICE.getInstanceNumber(), identifiers);
+            }
+            else if (identifiers.size() == 1 && isChannelObject(identifiers.get(0), objectName)) {
+                resolved.put(objectName, identifiers.get(0));
             }
         }
-        return objectHandles.get(channelAddress);
+        if (!resolved.isEmpty())
+            objectCatalog.putAll(resolved);
     }
 
     @Override
@@ -606,13 +1129,26 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
             logger.trace("starting listening for channels {}", channelAddresses);
         }
 
-        UnsignedInteger lifetime = new UnsignedInteger(0);
-        com.serotonin.bacnet4j.type.primitive.Boolean issueConfirmedNotifications = new com.serotonin.bacnet4j.type.primitive.Boolean(
-                true);
-
         // according to the OpenMUC specification, the new subscription list replaces the old one
         removeSubscriptions();
 
+        final CovSubscriptionRenewer renewer = (covLifetime > 0)
+                ? new CovSubscriptionRenewer(covLifetime, this::renewSubscription)
+                : null;
+        covRenewer = renewer;
+
+        final CovLossDetector detector = (listener != null && (!covConfirmedNotifications || covReconcileInterval > 0))
+                ? new CovLossDetector(covLifetime, CovLossDetector.DEFAULT_NOTIFICATION_TIMEOUT)
+                : null;
+        covLossDetector = detector;
+
+        final Map<ObjectIdentifier, List<ChannelRecordContainer>> trendLogs = new LinkedHashMap<>();
+
+        resolveObjectNames(containers.stream()
+                .filter(container -> !(container.getChannelHandle() instanceof ObjectIdentifier))
+                .map(container -> getObjectAddress(container.getChannelAddress()))
+                .collect(Collectors.toList()));
+
         for (ChannelRecordContainer channelRecordContainer : containers) {
 
             final ObjectIdentifier objectIdentifier = getObjectIdentifier(channelRecordContainer);
@@ -621,70 +1157,265 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
                 continue;
             }
 
+            if (ObjectType.trendLog.equals(objectIdentifier.getObjectType())) {
+                // trend logs are read in bulk instead of subscribing to changes
+                trendLogs.computeIfAbsent(objectIdentifier, log -> new ArrayList<>()).add(channelRecordContainer);
+                continue;
+            }
+
             synchronized (openCOVNotifications) {
                 openCOVNotifications.add(objectIdentifier);
             }
             if (!covContainers.containsKey(objectIdentifier)) {
-                SubscribeCOVRequest request = new SubscribeCOVRequest(subscriberProcessIdentifier, objectIdentifier,
-                        issueConfirmedNotifications, lifetime);
-                LOCAL_DEVICE.send(REMOTE_DEVICE, request);
+                covValueCache.subscribed(objectIdentifier);
+                events.addCovListener(REMOTE_DEVICE.getInstanceNumber(), subscriberProcessIdentifier, objectIdentifier,
+                        eventListener);
+                if (renewer != null)
+                    renewer.add(objectIdentifier);
                 covContainers.put(objectIdentifier, channelRecordContainer);
+                sendSubscription(objectIdentifier, renewer);
             }
 
         } // foreach
 
-        recordsReceivedListener = listener;
-    }
+        if (listener != null)
+            covDispatcher = new CovDispatcher(REMOTE_DEVICE.getInstanceNumber(), covQueueCapacity, listener);
 
-    @Override
-    public Object write(List<ChannelValueContainer> containers, Object containerListHandle)
-            throws UnsupportedOperationException, ConnectionException {
+        if (!trendLogs.isEmpty() && listener != null) {
+            final TrendLogCursorStore cursorStore = (catalogStore != null)
+                    ? new TrendLogCursorStore(catalogStore.getDirectory())
+                    : null;
+            trendLogTimer = new Timer("BACnet trend logs " + REMOTE_DEVICE.getInstanceNumber(), true);
+            trendLogTimer.schedule(new TrendLogTask(LOCAL_DEVICE, REMOTE_DEVICE, trendLogs, listener, cursorStore), 0,
+                    trendLogInterval);
+        }
 
-        if (logger.isTraceEnabled()) {
-            final String channelAddresses = containers.stream()
-                    .map(ChannelValueContainer::getChannelAddress)
-                    .collect(Collectors.joining(","));
-            logger.trace("writing value to channels {}", channelAddresses);
+        if (detector != null) {
+            final long period = (covReconcileInterval > 0)
+                    ? Math.min(covReconcileInterval, CovLossDetector.DEFAULT_NOTIFICATION_TIMEOUT)
+                    : CovLossDetector.DEFAULT_NOTIFICATION_TIMEOUT;
+            covSupervisionTimer = new Timer("BACnet COV supervision " + REMOTE_DEVICE.getInstanceNumber(), true);
+            covSupervisionTimer.schedule(new CovSupervisionTask(detector), period, period);
         }
+    }
 
-        // TODO add multiple write
+    private void sendSubscription(ObjectIdentifier objectIdentifier, CovSubscriptionRenewer renewer) {
+        final UnsignedInteger lifetime = new UnsignedInteger((renewer != null) ? covLifetime : 0);
+        final com.serotonin.bacnet4j.type.primitive.Boolean issueConfirmedNotifications = covConfirmedNotifications
+                ? com.serotonin.bacnet4j.type.primitive.Boolean.TRUE
+                : com.serotonin.bacnet4j.type.primitive.Boolean.FALSE;
+        final SubscribeCOVRequest request = new SubscribeCOVRequest(subscriberProcessIdentifier, objectIdentifier,
+                issueConfirmedNotifications, lifetime);
+        LOCAL_DEVICE.send(REMOTE_DEVICE, request, new SubscriptionConsumer(objectIdentifier, renewer));
+    }
 
-        for (ChannelValueContainer channelValueContainer : containers) {
-            final ObjectIdentifier objectIdentifier = getObjectIdentifier(channelValueContainer);
+    // called by the timing wheel of the renewer
+    private void renewSubscription(ObjectIdentifier objectIdentifier) {
+        final CovSubscriptionRenewer renewer = covRenewer;
+        // the renewer may have been replaced by a new subscription list in the meantime
+        if (renewer == null || !covContainers.containsKey(objectIdentifier))
+            return;
+        logger.trace("renewing COV subscription for {} on remote device {}", objectIdentifier,
+                REMOTE_DEVICE.getInstanceNumber());
+        sendSubscription(objectIdentifier, renewer);
+    }
+
+    /**
+     * Marks a subscription as confirmed in the value cache as soon as the remote device has acknowledged it and
+     * reports the outcome to the renewer of finite-lifetime subscriptions.
+     */
+    private class SubscriptionConsumer implements ResponseConsumer {
+
+        private final ObjectIdentifier objectIdentifier;
+        private final CovSubscriptionRenewer renewer;
+
+        SubscriptionConsumer(ObjectIdentifier objectIdentifier, CovSubscriptionRenewer renewer) {
+            this.objectIdentifier = objectIdentifier;
+            this.renewer = renewer;
+        }
+
+        @Override
+        public void success(AcknowledgementService ack) {
+            // the subscription may have been removed in the meantime
+            if (covContainers.containsKey(objectIdentifier)) {
+                covValueCache.confirmed(objectIdentifier);
+                final CovLossDetector detector = covLossDetector;
+                if (detector != null)
+                    detector.subscribed(objectIdentifier, System.currentTimeMillis());
+            }
+            if (renewer != null)
+                renewer.succeeded(objectIdentifier);
+        }
+
+        @Override
+        public void fail(AckAPDU ack) {
+            logger.debug("remote device {} refused COV subscription for {}: {}", REMOTE_DEVICE.getInstanceNumber(),
+                    objectIdentifier, ack);
+            failed(ack.toString());
+        }
+
+        @Override
+        public void ex(BACnetException e) {
+            logger.debug("COV subscription for {} on remote device {} failed: {}", objectIdentifier,
+                    REMOTE_DEVICE.getInstanceNumber(), e.getMessage());
+            failed(e.getMessage());
+        }
+
+        private void failed(String error) {
+            // the values of a lapsed subscription may be outdated
+            covValueCache.unconfirmed(objectIdentifier);
+            if (renewer != null)
+                renewer.failed(objectIdentifier, error);
+        }
+    }
+
+    /**
+     * Subscribes the objects that lost COV notifications again, so that the remote device sends their actual values
+     * with the initial notifications, and periodically reconciles the notified values with the present values read
+     * from the remote device.
+     */
+    private class CovSupervisionTask extends TimerTask {
+
+        private final CovLossDetector detector;
+        private long nextReconciliation;
+
+        CovSupervisionTask(CovLossDetector detector) {
+            this.detector = detector;
+            this.nextReconciliation = System.currentTimeMillis() + covReconcileInterval;
+        }
+
+        @Override
+        public void run() {
+            final long now = System.currentTimeMillis();
+
+            final List<ObjectIdentifier> suspects = detector.collectSuspects(now);
+            if (!suspects.isEmpty()) {
+                logger.debug("subscribing {} objects of remote device {} again after lost COV notifications",
+                        suspects.size(), REMOTE_DEVICE.getInstanceNumber());
+                final CovSubscriptionRenewer renewer = covRenewer;
+                for (ObjectIdentifier objectIdentifier : suspects) {
+                    if (covContainers.containsKey(objectIdentifier))
+                        sendSubscription(objectIdentifier, renewer);
+                }
+            }
+
+            if (covReconcileInterval > 0 && now >= nextReconciliation) {
+                nextReconciliation = now + covReconcileInterval;
+                reconcile();
+            }
+        }
+
+        private void reconcile() {
+            final PropertyReferences references = new PropertyReferences();
+            for (ObjectIdentifier objectIdentifier : covContainers.keySet()) {
+                references.add(objectIdentifier, PropertyIdentifier.presentValue);
+            }
+            if (references.size() == 0)
+                return;
+
+            final PropertyValues values;
+            try {
+                values = createPropertyReader().readProperties(references);
+            } catch (BACnetException e) {
+                logger.debug("reconciliation of COV values of remote device {} failed: {}",
+                        REMOTE_DEVICE.getInstanceNumber(), e.getMessage());
+                return;
+            }
+
+            final long timestamp = System.currentTimeMillis();
+            for (ObjectIdentifier objectIdentifier : covContainers.keySet()) {
+                final Encodable value = values.getNoErrorCheck(objectIdentifier, PropertyIdentifier.presentValue);
+                if (value == null || value instanceof BACnetError)
+                    continue;
+                if (detector.reconcile(objectIdentifier, value))
+                    dispatchValue(objectIdentifier, PropertyIdentifier.presentValue, value, timestamp);
+            }
+        }
+    }
+
+    @Override
+    public Object write(List<ChannelValueContainer> containers, Object containerListHandle)
+            throws UnsupportedOperationException, ConnectionException {
+
+        if (logger.isTraceEnabled()) {
+            final String channelAddresses = containers.stream()
+                    .map(ChannelValueContainer::getChannelAddress)
+                    .collect(Collectors.joining(","));
+            logger.trace("writing value to channels {}", channelAddresses);
+        }
+
+        final UnsignedInteger priority = (writePriority == null) ? null
+                : new UnsignedInteger(writePriority.intValue());
+        final WriteSuppressor suppressor = writeSuppressor;
+        final long now = System.currentTimeMillis();
+        final List<PropertyWrite> writes = new ArrayList<>(containers.size());
+        final List<ChannelValueContainer> written = new ArrayList<>(containers.size());
+
+        resolveObjectNames(containers.stream()
+                .filter(container -> !(container.getChannelHandle() instanceof ObjectIdentifier))
+                .map(ChannelValueContainer::getChannelAddress)
+                .collect(Collectors.toList()));
+
+        for (ChannelValueContainer channelValueContainer : containers) {
+            final ObjectIdentifier objectIdentifier = getObjectIdentifier(channelValueContainer);
             if (objectIdentifier == null) {
                 channelValueContainer.setFlag(Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND);
                 continue;
             }
 
-            if (objectIdentifier != null) {
-                final PropertyTypeDefinition propertyTypeDefinition = ObjectProperties
-                        .getPropertyTypeDefinition(objectIdentifier.getObjectType(), PropertyIdentifier.presentValue);
-                Encodable value = ConversionUtil.convertValue(channelValueContainer.getValue(), propertyTypeDefinition);
+            final PropertyTypeDefinition propertyTypeDefinition = ObjectProperties
+                    .getPropertyTypeDefinition(objectIdentifier.getObjectType(), PropertyIdentifier.presentValue);
+            Encodable value = ConversionUtil.convertValue(channelValueContainer.getValue(), propertyTypeDefinition);
 
-                if (value != null) {
-                    UnsignedInteger priority = (writePriority == null) ? null
-                            : new UnsignedInteger(writePriority.intValue());
-
-                    WritePropertyRequest request = new WritePropertyRequest(objectIdentifier,
-                            PropertyIdentifier.presentValue, null, value, priority);
-                    LOCAL_DEVICE.send(REMOTE_DEVICE, request);
+            if (value != null) {
+                final PropertyWrite write = new PropertyWrite(objectIdentifier,
+                        new PropertyValue(PropertyIdentifier.presentValue, null, value, priority));
+                if (suppressor != null && suppressor.isSuppressed(write, now)) {
+                    // the remote device has this value already
                     channelValueContainer.setFlag(Flag.VALID);
+                    continue;
                 }
-                else {
-                    // tried to write a not supported object type
-                    logger.debug("cannot write value of type " + objectIdentifier.getObjectType());
-                    channelValueContainer.setFlag(Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION);
-                }
+                writes.add(write);
+                written.add(channelValueContainer);
+            }
+            else {
+                // tried to write a not supported object type
+                logger.debug("cannot write value of type " + objectIdentifier.getObjectType());
+                channelValueContainer.setFlag(Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION);
             }
         }
 
+        final WriteCoalescer coalescer = writeCoalescer;
+        final Flag[] flags = (coalescer != null) ? coalescer.write(writes) : sendWrites(writes);
+        for (int i = 0; i < flags.length; i++) {
+            written.get(i).setFlag(flags[i]);
+        }
+
         return null; // according to method documentation
     }
 
+    private Flag[] sendWrites(List<PropertyWrite> writes) {
+        // the values are packed into as few requests as the remote device accepts
+        final Flag[] flags = new PropertyWriter(LOCAL_DEVICE, REMOTE_DEVICE, maxRequestsInFlight)
+                .writeProperties(writes, writeTimeout);
+
+        final WriteSuppressor suppressor = writeSuppressor;
+        if (suppressor != null) {
+            final long now = System.currentTimeMillis();
+            for (int i = 0; i < flags.length; i++) {
+                if (flags[i] == Flag.VALID)
+                    suppressor.acknowledged(writes.get(i), now);
+            }
+        }
+        return flags;
+    }
+
     @Override
     public void disconnect() {
         removeSubscriptions();
-        LOCAL_DEVICE.getEventHandler().removeListener(this);
+        events.removeDeviceListener(REMOTE_DEVICE.getInstanceNumber(), eventListener);
+        events.dismiss();
+        RemoteDeviceRegistry.getInstance().dismissContext(context);
         LocalDeviceFactory.getInstance().dismissLocalDevice(LOCAL_DEVICE);
     }
 
@@ -718,13 +1449,463 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
         this.writePriority = writePriority;
     }
 
+    /**
+     * Gets the maximum number of requests that are sent to the remote device without waiting for a response.
+     * 
+     * @return the maximum number of requests in flight
+     */
+    public int getMaxRequestsInFlight() {
+        return maxRequestsInFlight;
+    }
+
+    /**
+     * Gets the time to wait for the acknowledgements of the requests sent by a write call.
+     * 
+     * @return the write timeout in milliseconds
+     */
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    /**
+     * Sets the time to wait for the acknowledgements of the requests sent by a write call. Channels without
+     * acknowledgement at the end of the timeout are flagged with {@link Flag#DRIVER_ERROR_TIMEOUT}.
+     * 
+     * @param writeTimeout
+     *            the write timeout in milliseconds
+     */
+    public void setWriteTimeout(long writeTimeout) {
+        if (writeTimeout <= 0)
+            throw new IllegalArgumentException("write timeout must be positive");
+        this.writeTimeout = writeTimeout;
+    }
+
+    /**
+     * Gets the number of COV records waiting to be passed to the listener.
+     * 
+     * @return the dispatch queue depth
+     */
+    public int getCovQueueDepth() {
+        final CovDispatcher dispatcher = covDispatcher;
+        return (dispatcher != null) ? dispatcher.getQueueDepth() : 0;
+    }
+
+    /**
+     * Gets the number of COV records dropped since listening has been started, because the listener couldn't keep
+     * up with the notifications.
+     * 
+     * @return the number of dropped records
+     */
+    public long getCovDroppedRecords() {
+        final CovDispatcher dispatcher = covDispatcher;
+        return (dispatcher != null) ? dispatcher.getDropped() : 0;
+    }
+
+    /**
+     * Gets the lifetime of the COV subscriptions.
+     * 
+     * @return the lifetime in seconds, 0 if the subscriptions don't expire
+     */
+    public int getCovLifetime() {
+        return covLifetime;
+    }
+
+    /**
+     * Sets the lifetime of the COV subscriptions. Subscriptions with a finite lifetime are renewed before they expire,
+     * so that they are restored after the remote device has lost them, e.g. by a restart. The lifetime is applied by
+     * the next call of {@link #startListening(List, RecordsReceivedListener)}.
+     * 
+     * @param lifetime
+     *            the lifetime in seconds, 0 for subscriptions that don't expire
+     */
+    public void setCovLifetime(int lifetime) {
+        if (lifetime < 0)
+            throw new IllegalArgumentException("COV lifetime must not be negative");
+        covLifetime = lifetime;
+    }
+
+    /**
+     * Returns whether the remote device is asked to send confirmed COV notifications.
+     * 
+     * @return true for confirmed, false for unconfirmed notifications
+     */
+    public boolean isCovConfirmedNotifications() {
+        return covConfirmedNotifications;
+    }
+
+    /**
+     * Sets whether the remote device is asked to send confirmed COV notifications. Unconfirmed notifications save the
+     * acknowledgement of every notification, but may get lost unnoticed; they are therefore supervised for lost
+     * notifications and the affected objects are subscribed again. The mode is applied by the next call of
+     * {@link #startListening(List, RecordsReceivedListener)}.
+     * 
+     * @param confirmed
+     *            true for confirmed, false for unconfirmed notifications
+     */
+    public void setCovConfirmedNotifications(boolean confirmed) {
+        covConfirmedNotifications = confirmed;
+    }
+
+    /**
+     * Gets the time between two reconciliations of the notified values with the present values of the remote device.
+     * 
+     * @return the reconciliation interval in milliseconds, 0 if off
+     */
+    public long getCovReconcileInterval() {
+        return covReconcileInterval;
+    }
+
+    /**
+     * Sets the time between two reconciliations of the notified values. Each reconciliation reads the present values
+     * of all subscribed objects with ReadPropertyMultiple and passes the values that haven't been notified to the
+     * listener. The interval is applied by the next call of {@link #startListening(List, RecordsReceivedListener)}.
+     * 
+     * @param interval
+     *            the reconciliation interval in milliseconds, 0 to turn reconciliation off
+     */
+    public void setCovReconcileInterval(long interval) {
+        if (interval < 0)
+            throw new IllegalArgumentException("COV reconcile interval must not be negative");
+        covReconcileInterval = interval;
+    }
+
+    /**
+     * Gets the number of COV notifications detected as lost since listening has been started, including
+     * notifications with an unexpected time remaining and subscriptions that lapsed.
+     * 
+     * @return the number of lost notifications, always 0 if notifications are confirmed and not reconciled
+     */
+    public long getCovLostNotifications() {
+        final CovLossDetector detector = covLossDetector;
+        return (detector != null) ? detector.getLostNotifications() + detector.getInconsistentNotifications()
+                + detector.getLapsedSubscriptions() : 0;
+    }
+
+    /**
+     * Gets the number of value changes found by reconciliation that haven't been notified since listening has been
+     * started.
+     * 
+     * @return the number of missed changes
+     */
+    public long getCovMissedChanges() {
+        final CovLossDetector detector = covLossDetector;
+        return (detector != null) ? detector.getMissedChanges() : 0;
+    }
+
+    /**
+     * Gets the renewal state of the COV subscription of an object.
+     * 
+     * @param objectIdentifier
+     *            the subscribed object
+     * @return the renewal state or null, if the object isn't subscribed with a finite lifetime
+     */
+    public CovSubscriptionRenewer.Renewal getCovRenewal(ObjectIdentifier objectIdentifier) {
+        final CovSubscriptionRenewer renewer = covRenewer;
+        return (renewer != null) ? renewer.getRenewal(objectIdentifier) : null;
+    }
+
+    /**
+     * Gets the number of COV subscriptions whose last subscription or renewal has failed.
+     * 
+     * @return the number of failed subscriptions, always 0 if the subscriptions don't expire
+     */
+    public int getFailedCovSubscriptions() {
+        final CovSubscriptionRenewer renewer = covRenewer;
+        return (renewer != null) ? renewer.getFailedSubscriptions() : 0;
+    }
+
+    /**
+     * Gets the maximum number of COV records waiting to be passed to the listener.
+     * 
+     * @return the dispatch queue capacity
+     */
+    public int getCovQueueCapacity() {
+        return covQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of COV records waiting to be passed to the listener. Records of notifications received
+     * while the queue is full are dropped. The capacity is applied by the next call of
+     * {@link #startListening(List, RecordsReceivedListener)}.
+     * 
+     * @param capacity
+     *            the dispatch queue capacity (at least 1)
+     */
+    public void setCovQueueCapacity(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("COV queue capacity must be at least 1");
+        covQueueCapacity = capacity;
+    }
+
+    /**
+     * Gets the time after which an unchanged value is written again.
+     * 
+     * @return the refresh interval in milliseconds, 0 if unchanged values are not suppressed
+     */
+    public long getWriteRefreshInterval() {
+        final WriteSuppressor suppressor = writeSuppressor;
+        return (suppressor != null) ? suppressor.getRefreshInterval() : 0;
+    }
+
+    /**
+     * Sets the time after which an unchanged value is written again. Writes of values the remote device has
+     * acknowledged within the interval are not sent, the channels are flagged as valid nevertheless.
+     * 
+     * @param refreshInterval
+     *            the refresh interval in milliseconds (0 = send all writes)
+     */
+    public void setWriteRefreshInterval(long refreshInterval) {
+        if (refreshInterval < 0)
+            throw new IllegalArgumentException("write refresh interval must not be negative");
+        writeSuppressor = (refreshInterval > 0) ? new WriteSuppressor(writeDeadband, refreshInterval) : null;
+    }
+
+    /**
+     * Gets the maximum difference of real values that counts as unchanged while suppressing writes.
+     * 
+     * @return the write deadband
+     */
+    public double getWriteDeadband() {
+        return writeDeadband;
+    }
+
+    /**
+     * Sets the maximum difference of real and double values that counts as unchanged while suppressing writes. The
+     * deadband has no effect as long as the write refresh interval is 0.
+     * 
+     * @param deadband
+     *            the write deadband (0 = only equal values are unchanged)
+     */
+    public void setWriteDeadband(double deadband) {
+        if (deadband < 0 || Double.isNaN(deadband))
+            throw new IllegalArgumentException("write deadband must not be negative");
+        writeDeadband = deadband;
+        final WriteSuppressor suppressor = writeSuppressor;
+        if (suppressor != null)
+            writeSuppressor = new WriteSuppressor(deadband, suppressor.getRefreshInterval());
+    }
+
+    /**
+     * Gets the time writes are held back to be coalesced with later writes.
+     * 
+     * @return the coalescing window in milliseconds, 0 if writes are sent right away
+     */
+    public long getWriteCoalesceWindow() {
+        final WriteCoalescer coalescer = writeCoalescer;
+        return (coalescer != null) ? coalescer.getWindow() : 0;
+    }
+
+    /**
+     * Sets the time writes are held back to be coalesced with later writes. All writes within the window are sent
+     * together, and of several writes to the same property only the latest value is sent.
+     * 
+     * @param window
+     *            the coalescing window in milliseconds (0 = send writes right away)
+     */
+    public void setWriteCoalesceWindow(long window) {
+        if (window < 0)
+            throw new IllegalArgumentException("write coalescing window must not be negative");
+        writeCoalescer = (window > 0) ? new WriteCoalescer(window, this::sendWrites) : null;
+    }
+
+    /**
+     * Gets the time between two reads of the trend log channels.
+     * 
+     * @return the interval in milliseconds
+     */
+    public long getTrendLogInterval() {
+        return trendLogInterval;
+    }
+
+    /**
+     * Sets the time between two reads of the trend log channels. The interval is applied by the next call of
+     * {@link #startListening(List, RecordsReceivedListener)}.
+     * 
+     * @param trendLogInterval
+     *            the interval in milliseconds
+     */
+    public void setTrendLogInterval(long trendLogInterval) {
+        if (trendLogInterval <= 0)
+            throw new IllegalArgumentException("trend log interval must be positive");
+        this.trendLogInterval = trendLogInterval;
+    }
+
+    /**
+     * Gets the maximum age of values served from the COV value cache.
+     * 
+     * @return the maximum age in milliseconds
+     */
+    public long getCovCacheMaxAge() {
+        return covValueCache.getMaxAge();
+    }
+
+    /**
+     * Sets the maximum age of values received with COV notifications that are returned by read instead of reading
+     * the value from the remote device. Values are only served from the cache while the subscription of the object
+     * is confirmed. The cache is off by default.
+     * 
+     * @param maxAge
+     *            the maximum age in milliseconds (0 = always read from the remote device)
+     */
+    public void setCovCacheMaxAge(long maxAge) {
+        if (maxAge < 0)
+            throw new IllegalArgumentException("maximum age must not be negative");
+        covValueCache.setMaxAge(maxAge);
+    }
+
+    /**
+     * Gets the number of property references per ReadPropertyMultiple request, as learned from the responses of the
+     * remote device. The value is shared by all connections to the remote device.
+     * 
+     * @return the actual read chunk size
+     */
+    public int getReadChunkSize() {
+        return context.getChunkSizeController(REMOTE_DEVICE).getChunkSize();
+    }
+
+    private PropertyReader createPropertyReader() {
+        return new PropertyReader(LOCAL_DEVICE, REMOTE_DEVICE, maxRequestsInFlight,
+                context.getChunkSizeController(REMOTE_DEVICE));
+    }
+
+    /**
+     * Sets the maximum number of requests that are sent to the remote device without waiting for a response (e.g.
+     * while scanning for channels). The value must be at least 1.
+     * 
+     * @param maxRequestsInFlight
+     *            maximum number of requests in flight
+     */
+    public void setMaxRequestsInFlight(int maxRequestsInFlight) {
+        if (maxRequestsInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of requests in flight must be at least 1");
+        }
+        this.maxRequestsInFlight = maxRequestsInFlight;
+    }
+
+    /**
+     * Returns true if the object list of the remote device is always read by index.
+     * 
+     * @return true if the object list is read by index
+     */
+    public boolean isIndexedObjectList() {
+        return indexedObjectList;
+    }
+
+    /**
+     * Sets whether the object list of the remote device is always read by index. If false, the object list is read
+     * as a whole first and only read by index, if the remote device cannot send the whole list. Reading by index
+     * avoids the failed first request on devices with very large object lists.
+     * 
+     * @param indexedObjectList
+     *            true to always read the object list by index
+     */
+    public void setIndexedObjectList(boolean indexedObjectList) {
+        this.indexedObjectList = indexedObjectList;
+    }
+
+    /**
+     * Gets the store of the persistent object catalog.
+     * 
+     * @return the catalog store or <code>null</code>, if object handles are not persisted
+     */
+    public ObjectCatalogStore getCatalogStore() {
+        return catalogStore;
+    }
+
+    /**
+     * Sets the store of the persistent object catalog. After a channel scan, the object handles of the remote device
+     * will be saved to this store. If the reference is <code>null</code>, object handles will not be persisted.
+     * 
+     * @param catalogStore
+     *            the catalog store or <code>null</code>
+     */
+    public void setCatalogStore(ObjectCatalogStore catalogStore) {
+        this.catalogStore = catalogStore;
+    }
+
+    /**
+     * Gets the time in milliseconds to wait for I-Have answers when resolving object names.
+     * 
+     * @return the timeout in milliseconds or 0, if names are only resolved by a channel scan
+     */
+    public long getNameResolutionTimeout() {
+        return (nameResolver == null) ? 0 : nameResolver.getTimeout();
+    }
+
+    /**
+     * Sets the time in milliseconds to wait for I-Have answers when resolving object names. A few channel addresses
+     * that are unknown to a complete catalog will be resolved with Who-Has requests first (see
+     * {@link #setNameResolutionLimit(int)}). Only if a name cannot be resolved or the answers are ambiguous, a
+     * channel scan of the whole device will be done. If the value is 0, unknown channel addresses will only be
+     * resolved by a channel scan.
+     * 
+     * @param timeout
+     *            timeout in milliseconds or 0
+     */
+    public void setNameResolutionTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Name resolution timeout must not be negative");
+        }
+        nameResolver = (timeout == 0) ? null : new ObjectNameResolver(LOCAL_DEVICE, REMOTE_DEVICE, timeout);
+    }
+
+    /**
+     * Gets the maximum number of unknown object names of a call that are resolved with Who-Has.
+     * 
+     * @return the maximum number of names
+     */
+    public int getNameResolutionLimit() {
+        return nameResolutionLimit;
+    }
+
+    /**
+     * Sets the maximum number of unknown object names of a call that are resolved with Who-Has. Names are only
+     * resolved with Who-Has if the object catalog of the remote device is complete; if more names of a read, write or
+     * startListening call are unknown, they are resolved by a channel scan instead. If the value is 0, unknown channel
+     * addresses will only be resolved by a channel scan.
+     * 
+     * @param limit
+     *            maximum number of names or 0
+     */
+    public void setNameResolutionLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Name resolution limit must not be negative");
+        }
+        nameResolutionLimit = limit;
+    }
+
     private void removeSubscriptions() {
 
+        final CovDispatcher dispatcher = covDispatcher;
+        if (dispatcher != null) {
+            dispatcher.stop();
+            covDispatcher = null;
+        }
+
+        if (trendLogTimer != null) {
+            trendLogTimer.cancel();
+            trendLogTimer = null;
+        }
+
+        if (covSupervisionTimer != null) {
+            covSupervisionTimer.cancel();
+            covSupervisionTimer = null;
+        }
+        covLossDetector = null;
+
+        final CovSubscriptionRenewer renewer = covRenewer;
+        if (renewer != null) {
+            renewer.removeAll();
+            covRenewer = null;
+        }
+
         if (!covContainers.isEmpty()) {
             for (ObjectIdentifier object : covContainers.keySet()) {
                 LOCAL_DEVICE.send(REMOTE_DEVICE,
                         new SubscribeCOVRequest(subscriberProcessIdentifier, object, null, null));
                 covContainers.remove(object);
+                events.removeCovListener(REMOTE_DEVICE.getInstanceNumber(), subscriberProcessIdentifier, object);
+                covValueCache.unsubscribed(object);
                 synchronized (openCOVNotifications) {
                     openCOVNotifications.remove(object);
                 }
@@ -732,37 +1913,16 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
         }
     }
 
-    @Override
-    public void listenerException(Throwable e) {
-        logger.trace(String.format("%s: received listenerException on connection to remote %s",
-                LOCAL_DEVICE.getConfiguration().getId(), REMOTE_DEVICE.getName()), e);
-    }
-
-    @Override
-    public void iAmReceived(RemoteDevice d) {
-        logger.trace(
-                String.format("%s: received iAm from remote %s", LOCAL_DEVICE.getConfiguration().getId(), d.getName()));
-    }
-
-    @Override
-    public boolean allowPropertyWrite(Address from, BACnetObject obj, PropertyValue pv) {
-        return false;
-    }
-
-    @Override
-    public void propertyWritten(Address from, BACnetObject obj, PropertyValue pv) {
-        logger.trace(String.format("%s: received propertyWritten from %s, to object %s, property %s",
-                LOCAL_DEVICE.getConfiguration().getId(), from.toString(), obj.getObjectName(), pv));
-    }
-
-    @Override
-    public void iHaveReceived(RemoteDevice d, RemoteObject o) {
+    private void iHaveReceived(RemoteDevice d, RemoteObject o) {
         logger.trace(String.format("%s: received iHave from remote %s for object %s",
                 LOCAL_DEVICE.getConfiguration().getId(), d.getName(), o.getObjectName()));
+
+        final ObjectNameResolver resolver = nameResolver;
+        if (resolver != null)
+            resolver.iHaveReceived(d, o);
     }
 
-    @Override
-    public void covNotificationReceived(UnsignedInteger subscriberProcessIdentifier, RemoteDevice initiatingDevice,
+    private void covNotificationReceived(UnsignedInteger subscriberProcessIdentifier, RemoteDevice initiatingDevice,
             ObjectIdentifier monitoredObjectIdentifier, UnsignedInteger timeRemaining,
             SequenceOf<PropertyValue> listOfValues) {
 
@@ -774,7 +1934,39 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
             openCOVNotifications.remove(monitoredObjectIdentifier);
         }
 
-        if (recordsReceivedListener != null) {
+        final long timestamp = System.currentTimeMillis();
+        for (PropertyValue propertyValue : listOfValues) {
+            if (propertyValue.getPropertyArrayIndex() == null)
+                covValueCache.put(monitoredObjectIdentifier, propertyValue.getPropertyIdentifier(),
+                        propertyValue.getValue(), timestamp);
+        }
+
+        final CovLossDetector detector = covLossDetector;
+        if (detector != null) {
+            final Encodable presentValue = listOfValues.getValues()
+                    .stream()
+                    .filter(v -> PropertyIdentifier.presentValue.equals(v.getPropertyIdentifier()))
+                    .map(PropertyValue::getValue)
+                    .findFirst()
+                    .orElse(null);
+            if (!detector.notificationReceived(monitoredObjectIdentifier, timeRemaining.longValue(), presentValue,
+                    timestamp)) {
+                logger.debug("COV notification for {} of remote device {} reports unexpected time remaining {}",
+                        monitoredObjectIdentifier, REMOTE_DEVICE.getInstanceNumber(), timeRemaining);
+            }
+        }
+
+        final WriteSuppressor suppressor = writeSuppressor;
+        if (suppressor != null) {
+            for (PropertyValue propertyValue : listOfValues) {
+                if (propertyValue.getPropertyArrayIndex() == null)
+                    suppressor.valueReceived(monitoredObjectIdentifier, propertyValue.getPropertyIdentifier(),
+                            propertyValue.getValue());
+            }
+        }
+
+        final CovDispatcher dispatcher = covDispatcher;
+        if (dispatcher != null) {
 
             ChannelRecordContainer container = covContainers.get(monitoredObjectIdentifier);
 
@@ -798,54 +1990,34 @@ public class BACnetRemoteConnection extends BACnetConnection implements DeviceEv
                             newPropertyValue.getValue().toString());
                 }
 
-                final PropertyTypeDefinition propertyTypeDefinition = ObjectProperties.getPropertyTypeDefinition(
-                        monitoredObjectIdentifier.getObjectType(), newPropertyValue.getPropertyIdentifier());
-                Record record = new Record(
-                        ConversionUtil.convertValue(newPropertyValue.getValue(), propertyTypeDefinition),
-                        new Long(System.currentTimeMillis()), Flag.VALID);
-
-                container.setRecord(record);
-                List<ChannelRecordContainer> containers = new ArrayList<ChannelRecordContainer>();
-                containers.add(container);
-
-                recordsReceivedListener.newRecords(containers);
+                dispatchValue(monitoredObjectIdentifier, newPropertyValue.getPropertyIdentifier(),
+                        newPropertyValue.getValue(), timestamp);
             }
         }
 
     } // covNotificationReceived()
 
-    @Override
-    public void eventNotificationReceived(UnsignedInteger processIdentifier, RemoteDevice initiatingDevice,
-            ObjectIdentifier eventObjectIdentifier, TimeStamp timeStamp, UnsignedInteger notificationClass,
-            UnsignedInteger priority, EventType eventType, CharacterString messageText, NotifyType notifyType,
-            com.serotonin.bacnet4j.type.primitive.Boolean ackRequired, EventState fromState, EventState toState,
-            NotificationParameters eventValues) {
-        logger.trace(String.format(
-                "%s: received eventNotification from remote device %s with objectIdentifier %s, event-/notificationType %s/%s and message %s",
-                LOCAL_DEVICE.getConfiguration().getId(), initiatingDevice.getName(), eventObjectIdentifier, eventType,
-                notifyType, messageText));
-    }
-
-    @Override
-    public void textMessageReceived(RemoteDevice textMessageSourceDevice, Choice messageClass,
-            MessagePriority messagePriority, CharacterString message) {
-        logger.trace(String.format("%s: received text-message from remote device %s: %s",
-                LOCAL_DEVICE.getConfiguration().getId(), textMessageSourceDevice.getName(), message));
-    }
+    /**
+     * Passes a new value of a subscribed object to the listener.
+     */
+    private void dispatchValue(ObjectIdentifier objectIdentifier, PropertyIdentifier propertyIdentifier,
+            Encodable value, long timestamp) {
 
-    @Override
-    public void privateTransferReceived(Address from, UnsignedInteger vendorId, UnsignedInteger serviceNumber,
-            Sequence serviceParameters) {
-    }
+        final CovDispatcher dispatcher = covDispatcher;
+        final ChannelRecordContainer container = covContainers.get(objectIdentifier);
+        if (dispatcher == null || container == null)
+            return;
 
-    @Override
-    public void reinitializeDevice(Address from, ReinitializedStateOfDevice reinitializedStateOfDevice) {
-        logger.trace(String.format("%s: reinitializeDevice request received from %s with state %s",
-                LOCAL_DEVICE.getConfiguration().getId(), from, reinitializedStateOfDevice));
-    }
+        final PropertyTypeDefinition propertyTypeDefinition = ObjectProperties
+                .getPropertyTypeDefinition(objectIdentifier.getObjectType(), propertyIdentifier);
+        Record record = new Record(ConversionUtil.convertValue(value, propertyTypeDefinition), new Long(timestamp),
+                Flag.VALID);
 
-    @Override
-    public void synchronizeTime(Address from, DateTime dateTime, boolean utc) {
+        // the listener is called by the dispatcher thread, it gets a container of its own per record
+        final ChannelRecordContainer received = container.copy();
+        received.setRecord(record);
+        if (!dispatcher.offer(received))
+            logger.trace("dropped new value for channel {}, dispatch queue is full", container.getChannel().getId());
     }
 
     /**
@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import com.serotonin.bacnet4j.type.enumerated.EngineeringUnits;
 import com.serotonin.bacnet4j.type.enumerated.ObjectType;
 import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
 
 public abstract class BACnetUtils {
     private final static Logger logger = LoggerFactory.getLogger(BACnetUtils.class);
@@ -65,6 +66,29 @@ public abstract class BACnetUtils {
         }
     }
     
+    /**
+     * Packs an object identifier into an int the way it is encoded in BACnet (10 bits object type, 22 bits instance
+     * number).
+     * 
+     * @param objectIdentifier
+     *            the object identifier to pack
+     * @return the packed object identifier
+     */
+    public static int packObjectIdentifier(ObjectIdentifier objectIdentifier) {
+        return (objectIdentifier.getObjectType().intValue() << 22) | (objectIdentifier.getInstanceNumber() & 0x3FFFFF);
+    }
+
+    /**
+     * Unpacks an object identifier packed by {@link #packObjectIdentifier(ObjectIdentifier)}.
+     * 
+     * @param packed
+     *            the packed object identifier
+     * @return the object identifier
+     */
+    public static ObjectIdentifier unpackObjectIdentifier(int packed) {
+        return new ObjectIdentifier(new ObjectType(packed >>> 22), packed & 0x3FFFFF);
+    }
+
     public static ObjectPropertyIdentification getNameAndPropertyType(final String channelAddress) {
         final int delimiterCount = StringUtils.countMatches(channelAddress, OBJNAME_PROPERTY_DELIMITER);
         if (delimiterCount > 1) {
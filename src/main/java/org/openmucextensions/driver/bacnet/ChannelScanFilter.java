@@ -0,0 +1,210 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.openmuc.framework.config.ArgumentSyntaxException;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Filter for the objects of a channel scan, created out of the scan settings. Object types and instance ranges are
+ * checked with the object identifier only, so that filtered objects don't have to be read at all. Name patterns need
+ * the object name, so only names are read for objects that don't match.
+ * <p>
+ * Supported settings:
+ * <ul>
+ * <li><i>objectTypes</i>: comma separated list of object types, e.g. <code>analogInput,binaryValue</code> or
+ * <code>0,5</code></li>
+ * <li><i>instanceRange</i>: range of instance numbers, e.g. <code>100-199</code> or a single instance number</li>
+ * <li><i>namePattern</i>: object name glob with the wildcards <code>*</code> and <code>?</code></li>
+ * <li><i>nameRegex</i>: regular expression the whole object name has to match</li>
+ * </ul>
+ */
+public class ChannelScanFilter {
+
+    private final Set<ObjectType> objectTypes;
+    private final int minInstance;
+    private final int maxInstance;
+    private final Pattern namePattern;
+
+    private ChannelScanFilter(Set<ObjectType> objectTypes, int minInstance, int maxInstance, Pattern namePattern) {
+        this.objectTypes = objectTypes;
+        this.minInstance = minInstance;
+        this.maxInstance = maxInstance;
+        this.namePattern = namePattern;
+    }
+
+    /**
+     * Creates the filter out of the scan settings string. An empty settings string results in a filter accepting
+     * all objects.
+     *
+     * @param settings
+     *            the scan settings string or <code>null</code>
+     * @return the filter
+     * @throws ArgumentSyntaxException
+     *             if the settings string is not in the key-value format or a filter setting is invalid
+     */
+    public static ChannelScanFilter parse(String settings) throws ArgumentSyntaxException {
+
+        if (settings == null || settings.isEmpty())
+            return new ChannelScanFilter(null, 0, Integer.MAX_VALUE, null);
+        if (!Settings.isValidSettingsString(settings))
+            throw new ArgumentSyntaxException("scan settings are not in the key-value format: " + settings);
+
+        return parse(new Settings(settings));
+    }
+
+    /**
+     * Creates the filter out of the scan settings.
+     *
+     * @param settings
+     *            the scan settings
+     * @return the filter
+     * @throws ArgumentSyntaxException
+     *             if a filter setting is invalid
+     */
+    public static ChannelScanFilter parse(Settings settings) throws ArgumentSyntaxException {
+
+        Set<ObjectType> objectTypes = null;
+        if (settings.containsKey(Settings.SETTING_SCAN_OBJECT_TYPES)) {
+            objectTypes = new HashSet<>();
+            for (String type : settings.get(Settings.SETTING_SCAN_OBJECT_TYPES).split(",")) {
+                objectTypes.add(parseObjectType(type.trim()));
+            }
+        }
+
+        int minInstance = 0;
+        int maxInstance = Integer.MAX_VALUE;
+        if (settings.containsKey(Settings.SETTING_SCAN_INSTANCE_RANGE)) {
+            final String range = settings.get(Settings.SETTING_SCAN_INSTANCE_RANGE);
+            final String[] limits = range.split("-", -1);
+            try {
+                if (limits.length == 1) {
+                    minInstance = maxInstance = Integer.parseInt(limits[0].trim());
+                }
+                else if (limits.length == 2) {
+                    minInstance = Integer.parseInt(limits[0].trim());
+                    maxInstance = Integer.parseInt(limits[1].trim());
+                }
+                else {
+                    throw new ArgumentSyntaxException("instanceRange value is invalid: " + range);
+                }
+            } catch (NumberFormatException e) {
+                throw new ArgumentSyntaxException("instanceRange value is invalid: " + range);
+            }
+            if (minInstance < 0 || maxInstance < minInstance)
+                throw new ArgumentSyntaxException("instanceRange value is invalid: " + range);
+        }
+
+        if (settings.containsKey(Settings.SETTING_SCAN_NAME_PATTERN)
+                && settings.containsKey(Settings.SETTING_SCAN_NAME_REGEX)) {
+            throw new ArgumentSyntaxException("namePattern and nameRegex must not be used together");
+        }
+
+        Pattern namePattern = null;
+        try {
+            if (settings.containsKey(Settings.SETTING_SCAN_NAME_PATTERN))
+                namePattern = Pattern.compile(globToRegex(settings.get(Settings.SETTING_SCAN_NAME_PATTERN)));
+            else if (settings.containsKey(Settings.SETTING_SCAN_NAME_REGEX))
+                namePattern = Pattern.compile(settings.get(Settings.SETTING_SCAN_NAME_REGEX));
+        } catch (PatternSyntaxException e) {
+            throw new ArgumentSyntaxException("nameRegex value is not a valid regular expression: " + e.getMessage());
+        }
+
+        return new ChannelScanFilter(objectTypes, minInstance, maxInstance, namePattern);
+    }
+
+    /**
+     * Returns true if this filter accepts all objects.
+     *
+     * @return true if no filter has been set
+     */
+    public boolean isEmpty() {
+        return objectTypes == null && minInstance == 0 && maxInstance == Integer.MAX_VALUE && namePattern == null;
+    }
+
+    /**
+     * Returns true if the object is accepted by the object type and instance range filters.
+     *
+     * @param objectIdentifier
+     *            the object identifier
+     * @return true if the object is accepted
+     */
+    public boolean acceptsObject(ObjectIdentifier objectIdentifier) {
+        if (objectTypes != null && !objectTypes.contains(objectIdentifier.getObjectType()))
+            return false;
+        final int instance = objectIdentifier.getInstanceNumber();
+        return instance >= minInstance && instance <= maxInstance;
+    }
+
+    /**
+     * Returns true if a name filter has been set, so that the object names have to be read before the objects can be
+     * filtered.
+     *
+     * @return true if a name filter has been set
+     */
+    public boolean hasNameFilter() {
+        return namePattern != null;
+    }
+
+    /**
+     * Returns true if the object name is accepted by the name filter.
+     *
+     * @param objectName
+     *            the object name
+     * @return true if the name is accepted or no name filter has been set
+     */
+    public boolean acceptsName(String objectName) {
+        return namePattern == null || namePattern.matcher(objectName).matches();
+    }
+
+    private static ObjectType parseObjectType(String type) throws ArgumentSyntaxException {
+        try {
+            if (!type.isEmpty() && Character.isDigit(type.charAt(0)))
+                return new ObjectType(Integer.parseInt(type));
+            return BACnetUtils.getObjectTypeByString(type);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new ArgumentSyntaxException("objectTypes contains an unknown object type: " + type);
+        }
+    }
+
+    static String globToRegex(String glob) {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            }
+            else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0)
+            regex.append(Pattern.quote(literal.toString()));
+        return regex.toString();
+    }
+}
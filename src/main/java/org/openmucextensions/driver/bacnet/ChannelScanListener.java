@@ -0,0 +1,50 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.List;
+
+import org.openmuc.framework.config.ChannelScanInfo;
+
+/**
+ * Listener for a streaming channel scan of a remote device (see
+ * {@link BACnetRemoteConnection#scanForChannels(String, ChannelScanListener)}). The channels are reported in batches as
+ * soon as they have been read, so that large devices don't have to be scanned completely before the first results are
+ * available.
+ */
+public interface ChannelScanListener {
+
+    /**
+     * Called with the channels found since the last call.
+     *
+     * @param channels
+     *            the channels found, never empty
+     */
+    void channelsFound(List<ChannelScanInfo> channels);
+
+    /**
+     * Called after each batch with the number of objects of the remote device that have been scanned so far. The
+     * number of scanned objects is also the object list index a failed scan can be resumed at.
+     *
+     * @param objectsDone
+     *            number of objects scanned (including the objects skipped at the start of a resumed scan)
+     * @param objectsTotal
+     *            number of objects in the object list of the remote device
+     */
+    default void scanProgressUpdate(int objectsDone, int objectsTotal) {
+    }
+}
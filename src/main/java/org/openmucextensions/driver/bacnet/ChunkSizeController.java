@@ -0,0 +1,132 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+
+/**
+ * Learns the number of property references per ReadPropertyMultiple request a remote device can handle. The chunk
+ * size starts from an estimate based on the max-APDU length and segmentation support of the device. It is halved
+ * each time a request is aborted, rejected or times out and grows again by one reference after a number of
+ * successful requests of full size, up to a multiple of the initial estimate.
+ */
+public class ChunkSizeController {
+
+    private final static Logger logger = LoggerFactory.getLogger(ChunkSizeController.class);
+
+    /** Number of successful requests of full size before the chunk size is increased */
+    public final static int SUCCESSES_PER_INCREASE = 8;
+
+    // estimated number of bytes per property in a response without segmentation (tags, identifiers and a short
+    // character string)
+    private final static int ESTIMATED_BYTES_PER_RESULT = 32;
+    // number of bytes reserved for the APDU header of a response
+    private final static int RESPONSE_HEADER_SIZE = 8;
+    // factor the chunk size may grow beyond the initial estimate
+    private final static int MAXIMUM_GROWTH = 4;
+
+    private final int remoteInstance;
+    private final int maximum;
+
+    private int chunkSize;
+    private int successes = 0;
+
+    /**
+     * Constructs a new controller.
+     *
+     * @param remoteInstance
+     *            the instance number of the remote device (for logging)
+     * @param initial
+     *            the initial chunk size
+     * @param maximum
+     *            the maximum chunk size
+     */
+    public ChunkSizeController(int remoteInstance, int initial, int maximum) {
+        if (initial < 1 || maximum < initial)
+            throw new IllegalArgumentException("invalid chunk size " + initial + " (maximum " + maximum + ")");
+        this.remoteInstance = remoteInstance;
+        this.chunkSize = initial;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Creates a controller for the specified remote device. If the remote device is able to segment its responses,
+     * the maximum number of references known by the library is used as initial size. Otherwise, the initial size is
+     * estimated from the max-APDU length accepted by the remote device.
+     *
+     * @param remoteDevice
+     *            the remote device
+     * @return the new controller
+     */
+    public static ChunkSizeController forDevice(RemoteDevice remoteDevice) {
+        final int initial;
+        if (remoteDevice.getSegmentationSupported() != null
+                && remoteDevice.getSegmentationSupported().hasTransmitSegmentation()) {
+            initial = remoteDevice.getMaxReadMultipleReferences();
+        }
+        else {
+            final int maxApdu = remoteDevice.getMaxAPDULengthAccepted();
+            initial = Math.max(1, (maxApdu - RESPONSE_HEADER_SIZE) / ESTIMATED_BYTES_PER_RESULT);
+        }
+        return new ChunkSizeController(remoteDevice.getInstanceNumber(), initial, initial * MAXIMUM_GROWTH);
+    }
+
+    /**
+     * Gets the number of references to pack into a single request.
+     *
+     * @return the actual chunk size
+     */
+    public synchronized int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Reports a successful request.
+     *
+     * @param size
+     *            the number of references of the request
+     */
+    public synchronized void success(int size) {
+        // smaller requests (e.g. the last chunk of a read) don't prove that the chunk size works
+        if (size < chunkSize || chunkSize >= maximum)
+            return;
+
+        if (++successes >= SUCCESSES_PER_INCREASE) {
+            successes = 0;
+            chunkSize++;
+            logger.trace("increased chunk size of remote device {} to {}", remoteInstance, chunkSize);
+        }
+    }
+
+    /**
+     * Reports a request that has been aborted, rejected or timed out.
+     *
+     * @param size
+     *            the number of references of the request
+     */
+    public synchronized void failure(int size) {
+        successes = 0;
+        final int reduced = Math.max(1, size / 2);
+        if (reduced < chunkSize) {
+            chunkSize = reduced;
+            logger.debug("reduced chunk size of remote device {} to {}", remoteInstance, chunkSize);
+        }
+    }
+}
@@ -4,11 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
-import org.openmuc.framework.data.BooleanValue;
-import org.openmuc.framework.data.DoubleValue;
-import org.openmuc.framework.data.FloatValue;
-import org.openmuc.framework.data.IntValue;
-import org.openmuc.framework.data.StringValue;
+import org.openmuc.framework.data.Flag;
 import org.openmuc.framework.data.Value;
 import org.openmuc.framework.data.ValueType;
 
@@ -20,8 +16,11 @@ import com.serotonin.bacnet4j.obj.ObjectProperties;
 import com.serotonin.bacnet4j.obj.PropertyTypeDefinition;
 import com.serotonin.bacnet4j.type.Encodable;
 import com.serotonin.bacnet4j.type.constructed.BACnetArray;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
 import com.serotonin.bacnet4j.type.enumerated.BinaryPV;
 import com.serotonin.bacnet4j.type.enumerated.EngineeringUnits;
+import com.serotonin.bacnet4j.type.enumerated.ErrorClass;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
 import com.serotonin.bacnet4j.type.enumerated.ObjectType;
 import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
 import com.serotonin.bacnet4j.type.primitive.Boolean;
@@ -35,7 +34,7 @@ public abstract class ConversionUtil {
     private ConversionUtil() {}
     
     private static final Map<Class<? extends Encodable>, ValueType> BACNET_2_OPENMUCMUC_TYPEMAPPING;
-    
+
     static {
         BACNET_2_OPENMUCMUC_TYPEMAPPING = new HashMap<Class<? extends Encodable>, ValueType>();
         BACNET_2_OPENMUCMUC_TYPEMAPPING.put(Real.class, ValueType.FLOAT);
@@ -45,6 +44,32 @@ public abstract class ConversionUtil {
         BACNET_2_OPENMUCMUC_TYPEMAPPING.put(UnsignedInteger.class, ValueType.INTEGER);
     }
     
+    private static final Map<ErrorCode, Flag> ERROR_2_FLAG_MAPPING;
+
+    static {
+        ERROR_2_FLAG_MAPPING = new HashMap<ErrorCode, Flag>();
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.unknownObject, Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.unknownProperty, Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.readAccessDenied, Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.accessDenied, Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.deviceBusy, Flag.DEVICE_OR_INTERFACE_BUSY);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.busy, Flag.DEVICE_OR_INTERFACE_BUSY);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.configurationInProgress, Flag.DEVICE_OR_INTERFACE_BUSY);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.timeout, Flag.DRIVER_ERROR_TIMEOUT);
+        ERROR_2_FLAG_MAPPING.put(ErrorCode.valueNotInitialized, Flag.NO_VALUE_RECEIVED_YET);
+    }
+
+    private static final Map<ErrorCode, Flag> WRITE_ERROR_2_FLAG_MAPPING;
+
+    static {
+        WRITE_ERROR_2_FLAG_MAPPING = new HashMap<ErrorCode, Flag>();
+        WRITE_ERROR_2_FLAG_MAPPING.put(ErrorCode.writeAccessDenied, Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE);
+        WRITE_ERROR_2_FLAG_MAPPING.put(ErrorCode.invalidDataType, Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION);
+        WRITE_ERROR_2_FLAG_MAPPING.put(ErrorCode.datatypeNotSupported, Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION);
+        WRITE_ERROR_2_FLAG_MAPPING.put(ErrorCode.valueOutOfRange, Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION);
+        WRITE_ERROR_2_FLAG_MAPPING.put(ErrorCode.invalidArrayIndex, Flag.DRIVER_ERROR_CHANNEL_ADDRESS_SYNTAX_INVALID);
+    }
+    
     public static ValueType getValueTypeMapping(Class<? extends Encodable> encodableClass) {
         return BACNET_2_OPENMUCMUC_TYPEMAPPING.get(encodableClass);
     }
@@ -56,49 +81,58 @@ public abstract class ConversionUtil {
      * @return the OpenMUC-representation of the value
      */
     public static Value convertValue(Encodable value, PropertyTypeDefinition typeDefinition) {
+        return getConverter(typeDefinition).convert(value);
+    }
+
+    /**
+     * Selects the converter for BACnet values of the specified type. Callers converting many values of the same
+     * property should keep the converter instead of calling {@link #convertValue(Encodable, PropertyTypeDefinition)}
+     * for each value.
+     * @param typeDefinition The type of the (source) BACnet values (must not be <code>null</code>).
+     * @return the converter to the OpenMUC-representation
+     */
+    public static ValueConverter getConverter(PropertyTypeDefinition typeDefinition) {
         Objects.requireNonNull(typeDefinition, "typeDefinition must not be null");
-        
-        final Class<? extends Encodable> bacnetType = typeDefinition.getClazz();
-        final ValueType openMUCType = BACNET_2_OPENMUCMUC_TYPEMAPPING.get(bacnetType);
-        if (openMUCType == null)
-            // default behavior in case of not handled object type
-            return new StringValue(value.toString());
+        return ValueConverters.forProperty(typeDefinition.getPropertyIdentifier(), typeDefinition.getClazz());
+    }
 
-        switch (openMUCType) {
-        case FLOAT:
-            if (bacnetType.equals(Real.class)) {
-                Real realValue = (Real) value;
-                return new FloatValue(realValue.floatValue());
-            }
-            break;
-        case BOOLEAN:
-            if (bacnetType.equals(BinaryPV.class)) {
-                BinaryPV booleanValue = (BinaryPV) value;
-                return (booleanValue.intValue()==0) ? new BooleanValue(false) : new BooleanValue(true);
-            }
-            if (bacnetType.equals(Boolean.class)) {
-                Boolean booleanValue = (Boolean) value;
-                return new BooleanValue(booleanValue.booleanValue());
-            }
-            break;
-        case INTEGER:
-            if (bacnetType.equals(UnsignedInteger.class)) {
-                UnsignedInteger integerValue = (UnsignedInteger) value;
-                return new IntValue(integerValue.intValue());
-            }
-            break;
-        case DOUBLE:
-            if (bacnetType.equals(Double.class)) {
-                Double doubleValue = (Double) value;
-                return new DoubleValue(doubleValue.doubleValue());
-            }
-            break;
-        default:
-            throw new InternalError("Reached default-branch of conversion-switch");
-        }
-        throw new InternalError("Program-error: conversion from " + openMUCType + " to " + bacnetType + " not implemented");
+    /**
+     * Gets the flag representing a property read error
+     * @param error The error returned by the remote device or <code>null</code>, if no value has been received.
+     * @return the flag of the error
+     */
+    public static Flag getReadErrorFlag(BACnetError error) {
+        if (error == null)
+            return Flag.DRIVER_ERROR_READ_FAILURE;
+
+        final Flag flag = ERROR_2_FLAG_MAPPING.get(error.getErrorCode());
+        if (flag != null)
+            return flag;
+        // aborts, rejects and network errors
+        if (ErrorClass.communication.equals(error.getErrorClass()))
+            return Flag.DRIVER_ERROR_CHANNEL_TEMPORARILY_NOT_ACCESSIBLE;
+        return Flag.DRIVER_ERROR_READ_FAILURE;
     }
-    
+
+    /**
+     * Gets the flag representing a property write error
+     * @param error The error returned by the remote device.
+     * @return the flag of the error
+     */
+    public static Flag getWriteErrorFlag(BACnetError error) {
+        if (error == null)
+            return Flag.DRIVER_ERROR_UNSPECIFIED;
+
+        Flag flag = WRITE_ERROR_2_FLAG_MAPPING.get(error.getErrorCode());
+        if (flag == null)
+            flag = ERROR_2_FLAG_MAPPING.get(error.getErrorCode());
+        if (flag != null)
+            return flag;
+        if (ErrorClass.communication.equals(error.getErrorClass()))
+            return Flag.DRIVER_ERROR_CHANNEL_TEMPORARILY_NOT_ACCESSIBLE;
+        return Flag.DRIVER_ERROR_UNSPECIFIED;
+    }
+
     /**
      * Convert an OpenMUC value to it's BACnet representation
      * @param value The value coming from the OpenMUC framework
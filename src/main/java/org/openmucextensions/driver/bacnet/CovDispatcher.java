@@ -0,0 +1,205 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+import org.openmuc.framework.driver.spi.RecordsReceivedListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the records received with COV notifications over to a dedicated thread, which passes them to the
+ * {@link RecordsReceivedListener} in batches. The thread receiving the notifications (the event thread of the local
+ * device) only appends the record to a bounded queue, so a slow listener cannot stall the BACnet communication. If the
+ * queue is full, the record is dropped. Dropped records are logged in aggregated form, at most once per interval.
+ */
+public class CovDispatcher {
+
+    private final static Logger logger = LoggerFactory.getLogger(CovDispatcher.class);
+
+    /** Default maximum number of records waiting for dispatch */
+    public final static int DEFAULT_CAPACITY = 10000;
+    /** Maximum number of records passed to the listener with a single call */
+    public final static int MAX_BATCH_SIZE = 256;
+
+    // minimum time in milliseconds between two log entries about dropped records
+    private final static long DROP_LOG_INTERVAL = 60000;
+    // time the dispatcher thread sleeps without being woken up, limits the delay of a lost wake-up
+    private final static long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int remoteInstance;
+    private final int capacity;
+    private final RecordsReceivedListener listener;
+
+    private final Queue<ChannelRecordContainer> queue = new ConcurrentLinkedQueue<>();
+    // number of records in the queue, the size of a ConcurrentLinkedQueue is expensive to compute
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private final Thread thread;
+    private volatile boolean running = true;
+    // set by the dispatcher thread before parking, saves the unpark calls while it is busy
+    private volatile boolean idle = false;
+
+    private long droppedLogged = 0;
+    private long lastDropLog = 0;
+
+    /**
+     * Constructs and starts a new dispatcher.
+     *
+     * @param remoteInstance
+     *            the instance number of the remote device (for the thread name and logging)
+     * @param capacity
+     *            the maximum number of records waiting for dispatch
+     * @param listener
+     *            the listener to pass the records to
+     */
+    public CovDispatcher(int remoteInstance, int capacity, RecordsReceivedListener listener) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        this.remoteInstance = remoteInstance;
+        this.capacity = capacity;
+        this.listener = Objects.requireNonNull(listener, "listener must not be null");
+        this.thread = new Thread(this::dispatch, "BACnet COV dispatcher " + remoteInstance);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a record for dispatch. The container must not be modified afterwards.
+     *
+     * @param container
+     *            the container holding the received record
+     * @return false if the queue is full and the record has been dropped
+     */
+    public boolean offer(ChannelRecordContainer container) {
+
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        queue.add(container);
+        if (idle)
+            LockSupport.unpark(thread);
+        return true;
+    }
+
+    /**
+     * Stops the dispatcher thread. Records still in the queue are discarded.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Gets the number of records waiting for dispatch.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Gets the number of records that have been dropped because the queue was full.
+     *
+     * @return the number of dropped records
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of records that have been passed to the listener.
+     *
+     * @return the number of dispatched records
+     */
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * Gets the number of calls of the listener.
+     *
+     * @return the number of dispatched batches
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    private void dispatch() {
+
+        final List<ChannelRecordContainer> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (running) {
+
+            logDropped();
+
+            ChannelRecordContainer container;
+            while (batch.size() < MAX_BATCH_SIZE && (container = queue.poll()) != null) {
+                depth.decrementAndGet();
+                batch.add(container);
+            }
+
+            if (batch.isEmpty()) {
+                idle = true;
+                // the queue may have been filled between the last poll and setting the idle flag
+                if (queue.isEmpty() && running)
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                idle = false;
+                continue;
+            }
+
+            try {
+                // the listener gets its own list, it may keep a reference to it
+                listener.newRecords(new ArrayList<>(batch));
+            } catch (RuntimeException e) {
+                logger.warn("listener of remote device {} failed to process {} records", remoteInstance,
+                        batch.size(), e);
+            }
+            dispatched.addAndGet(batch.size());
+            batches.incrementAndGet();
+            batch.clear();
+        }
+    }
+
+    private void logDropped() {
+        final long total = dropped.get();
+        final long now = System.currentTimeMillis();
+        if (total == droppedLogged || now - lastDropLog < DROP_LOG_INTERVAL)
+            return;
+        logger.warn("dropped {} COV records of remote device {} because the listener is too slow (queue capacity {})",
+                total - droppedLogged, remoteInstance, capacity);
+        droppedLogged = total;
+        lastDropLog = now;
+    }
+}
@@ -0,0 +1,221 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Detects COV subscriptions that lost notifications. Unconfirmed notifications are not acknowledged and carry no
+ * sequence number, so a lost notification can only be detected from the course of the subscription:
+ * <ul>
+ * <li>After every accepted subscription the remote device has to send an initial notification. A subscription
+ * without one within the notification timeout has lost it.</li>
+ * <li>Every notification reports the time remaining of the subscription. A time that doesn't match the lifetime of
+ * the last accepted subscription means that the remote device doesn't have the subscription it is expected to have,
+ * e.g. because it has been restarted or a renewal got lost.</li>
+ * <li>A finite-lifetime subscription that hasn't been renewed in time has lapsed.</li>
+ * </ul>
+ * Objects detected this way are reported as suspects, which should be subscribed again. Changes missed without
+ * any of these symptoms are found by reconciling the notified values with values read from the remote device.
+ */
+public class CovLossDetector {
+
+    /** Default time in milliseconds to wait for the initial notification of a subscription */
+    public final static long DEFAULT_NOTIFICATION_TIMEOUT = 10000;
+
+    /** Maximum deviation in milliseconds of the reported from the expected time remaining of a subscription */
+    public final static long TIME_REMAINING_TOLERANCE = 5000;
+
+    private final long lifetime;
+    private final long notificationTimeout;
+
+    private final Map<ObjectIdentifier, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicLong lostNotifications = new AtomicLong();
+    private final AtomicLong inconsistentNotifications = new AtomicLong();
+    private final AtomicLong lapsedSubscriptions = new AtomicLong();
+    private final AtomicLong missedChanges = new AtomicLong();
+
+    /**
+     * Constructs a new detector.
+     *
+     * @param lifetime
+     *            the lifetime of the subscriptions in seconds, 0 for subscriptions that don't expire
+     * @param notificationTimeout
+     *            the time in milliseconds to wait for the initial notification of a subscription
+     */
+    public CovLossDetector(int lifetime, long notificationTimeout) {
+        if (lifetime < 0)
+            throw new IllegalArgumentException("lifetime must not be negative");
+        this.lifetime = lifetime * 1000L;
+        this.notificationTimeout = notificationTimeout;
+    }
+
+    /**
+     * Reports that the remote device has accepted the subscription of an object.
+     */
+    public void subscribed(ObjectIdentifier objectIdentifier, long now) {
+        final Subscription subscription = subscriptions.computeIfAbsent(objectIdentifier, o -> new Subscription());
+        synchronized (subscription) {
+            subscription.notificationDue = now + notificationTimeout;
+            subscription.expiry = (lifetime > 0) ? now + lifetime : 0;
+        }
+    }
+
+    /**
+     * Reports a notification of an object.
+     *
+     * @param objectIdentifier
+     *            the monitored object
+     * @param timeRemaining
+     *            the time remaining of the subscription in seconds as reported by the notification
+     * @param value
+     *            the notified value of the monitored property
+     * @param now
+     *            the time the notification has been received
+     * @return false, if the time remaining doesn't match the subscription
+     */
+    public boolean notificationReceived(ObjectIdentifier objectIdentifier, long timeRemaining, Encodable value,
+            long now) {
+        final Subscription subscription = subscriptions.get(objectIdentifier);
+        if (subscription == null)
+            return true;
+
+        synchronized (subscription) {
+            subscription.notificationDue = 0;
+            subscription.value = value;
+            if (subscription.expiry == 0 && lifetime > 0) {
+                // the notification has been received before the acknowledgement of the subscription
+                return true;
+            }
+            if (isConsistent(subscription.expiry, timeRemaining * 1000, now))
+                return true;
+
+            subscription.suspect = true;
+        }
+        inconsistentNotifications.incrementAndGet();
+        return false;
+    }
+
+    private boolean isConsistent(long expiry, long timeRemaining, long now) {
+        if (lifetime == 0)
+            return timeRemaining == 0;
+        // the initial notification of a renewal may overtake the acknowledgement of the subscription
+        return Math.abs(now + timeRemaining - expiry) <= TIME_REMAINING_TOLERANCE
+                || Math.abs(timeRemaining - lifetime) <= TIME_REMAINING_TOLERANCE;
+    }
+
+    /**
+     * Returns the objects whose subscription lost notifications since the last call and resets their state until
+     * they are subscribed again.
+     *
+     * @param now
+     *            the actual time in milliseconds
+     * @return the suspected objects
+     */
+    public List<ObjectIdentifier> collectSuspects(long now) {
+        final List<ObjectIdentifier> suspects = new ArrayList<>();
+        for (Map.Entry<ObjectIdentifier, Subscription> entry : subscriptions.entrySet()) {
+            final Subscription subscription = entry.getValue();
+            synchronized (subscription) {
+                if (subscription.notificationDue != 0 && now > subscription.notificationDue) {
+                    lostNotifications.incrementAndGet();
+                    subscription.suspect = true;
+                }
+                if (subscription.expiry != 0 && now > subscription.expiry + TIME_REMAINING_TOLERANCE) {
+                    lapsedSubscriptions.incrementAndGet();
+                    subscription.suspect = true;
+                }
+                if (subscription.suspect) {
+                    subscription.suspect = false;
+                    subscription.notificationDue = 0;
+                    subscription.expiry = 0;
+                    suspects.add(entry.getKey());
+                }
+            }
+        }
+        return suspects;
+    }
+
+    /**
+     * Compares a value read from the remote device with the last notified value of an object.
+     *
+     * @param objectIdentifier
+     *            the monitored object
+     * @param value
+     *            the value read from the remote device
+     * @return true, if the value has not been notified yet
+     */
+    public boolean reconcile(ObjectIdentifier objectIdentifier, Encodable value) {
+        final Subscription subscription = subscriptions.get(objectIdentifier);
+        if (subscription == null)
+            return false;
+
+        synchronized (subscription) {
+            if (value.equals(subscription.value))
+                return false;
+            if (subscription.value != null)
+                missedChanges.incrementAndGet();
+            subscription.value = value;
+            return true;
+        }
+    }
+
+    /**
+     * Stops monitoring the subscription of an object.
+     */
+    public void remove(ObjectIdentifier objectIdentifier) {
+        subscriptions.remove(objectIdentifier);
+    }
+
+    /** Returns the number of subscriptions without initial notification. */
+    public long getLostNotifications() {
+        return lostNotifications.get();
+    }
+
+    /** Returns the number of notifications whose time remaining didn't match the subscription. */
+    public long getInconsistentNotifications() {
+        return inconsistentNotifications.get();
+    }
+
+    /** Returns the number of finite-lifetime subscriptions that haven't been renewed in time. */
+    public long getLapsedSubscriptions() {
+        return lapsedSubscriptions.get();
+    }
+
+    /** Returns the number of value changes found by reconciliation that have not been notified. */
+    public long getMissedChanges() {
+        return missedChanges.get();
+    }
+
+    private static class Subscription {
+        // time the initial notification is due or 0, if it has been received
+        private long notificationDue = 0;
+        // time the subscription expires at the remote device or 0, if it doesn't expire or is unknown
+        private long expiry = 0;
+        private boolean suspect = false;
+        // last notified or reconciled value of the monitored property
+        private Encodable value = null;
+    }
+}
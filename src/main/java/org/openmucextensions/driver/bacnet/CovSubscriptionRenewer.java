@@ -0,0 +1,250 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Keeps COV subscriptions with a finite lifetime alive by renewing them before they expire at the remote device. A
+ * remote device that restarts loses its subscriptions; with a finite lifetime they are restored by the next renewal.
+ * <p>
+ * Renewals are scheduled on a timing wheel shared by all connections. The renewal time of an object is derived from
+ * its identifier and lies between half and three quarters of the lifetime, so that subscriptions made at the same
+ * time are not renewed in a single burst. Failed renewals are retried with an increasing delay. The outcome of the
+ * renewals is tracked per object.
+ */
+public class CovSubscriptionRenewer {
+
+    // one tick per second is precise enough for lifetimes in seconds, one rotation takes more than an hour
+    private final static long TICK_DURATION = 1000;
+    private final static int TICKS_PER_WHEEL = 4096;
+
+    private static TimingWheel sharedWheel = null;
+
+    /**
+     * Sends a subscription to the remote device. Must not block; the outcome is reported with
+     * {@link CovSubscriptionRenewer#succeeded(ObjectIdentifier)} or
+     * {@link CovSubscriptionRenewer#failed(ObjectIdentifier, String)}.
+     */
+    public interface Subscriber {
+        void subscribe(ObjectIdentifier objectIdentifier);
+    }
+
+    private final TimingWheel wheel;
+    private final long lifetime;
+    private final Subscriber subscriber;
+
+    private final Map<ObjectIdentifier, Renewal> renewals = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new renewer scheduling on the shared timing wheel.
+     *
+     * @param lifetime
+     *            the lifetime of the subscriptions in seconds
+     * @param subscriber
+     *            sends the renewals
+     */
+    public CovSubscriptionRenewer(int lifetime, Subscriber subscriber) {
+        this(getSharedWheel(), lifetime, subscriber);
+    }
+
+    CovSubscriptionRenewer(TimingWheel wheel, int lifetime, Subscriber subscriber) {
+        if (lifetime <= 0)
+            throw new IllegalArgumentException("lifetime must be positive");
+        this.wheel = wheel;
+        this.lifetime = lifetime * 1000L;
+        this.subscriber = subscriber;
+    }
+
+    private static synchronized TimingWheel getSharedWheel() {
+        if (sharedWheel == null) {
+            sharedWheel = new TimingWheel(TICK_DURATION, TICKS_PER_WHEEL, System.currentTimeMillis());
+            sharedWheel.start("BACnet COV subscription renewal");
+        }
+        return sharedWheel;
+    }
+
+    /**
+     * Starts tracking the subscription of an object that is being sent to the remote device. The first renewal is
+     * scheduled as soon as its outcome is reported.
+     */
+    public void add(ObjectIdentifier objectIdentifier) {
+        renewals.computeIfAbsent(objectIdentifier, Renewal::new);
+    }
+
+    /**
+     * Stops renewing the subscription of an object.
+     */
+    public void remove(ObjectIdentifier objectIdentifier) {
+        final Renewal renewal = renewals.remove(objectIdentifier);
+        if (renewal != null)
+            renewal.cancel();
+    }
+
+    /**
+     * Stops renewing all subscriptions.
+     */
+    public void removeAll() {
+        for (ObjectIdentifier objectIdentifier : renewals.keySet()) {
+            remove(objectIdentifier);
+        }
+    }
+
+    /**
+     * Reports that the remote device has accepted the subscription of an object.
+     */
+    public void succeeded(ObjectIdentifier objectIdentifier) {
+        final Renewal renewal = renewals.get(objectIdentifier);
+        if (renewal != null)
+            renewal.succeeded(System.currentTimeMillis());
+    }
+
+    /**
+     * Reports that the subscription of an object has been refused or could not be sent.
+     */
+    public void failed(ObjectIdentifier objectIdentifier, String error) {
+        final Renewal renewal = renewals.get(objectIdentifier);
+        if (renewal != null)
+            renewal.failed(error);
+    }
+
+    /**
+     * Returns the renewal state of an object.
+     *
+     * @return the renewal state or null, if the object isn't subscribed
+     */
+    public Renewal getRenewal(ObjectIdentifier objectIdentifier) {
+        return renewals.get(objectIdentifier);
+    }
+
+    /**
+     * Returns the number of subscriptions whose last renewal has failed.
+     */
+    public int getFailedSubscriptions() {
+        return (int) renewals.values().stream().filter(r -> r.getConsecutiveFailures() > 0).count();
+    }
+
+    public long getLifetime() {
+        return lifetime;
+    }
+
+    /**
+     * Returns the delay in milliseconds after a successful subscription until it is renewed. The delay lies between
+     * half and three quarters of the lifetime, depending on the object identifier.
+     */
+    long getRenewalDelay(ObjectIdentifier objectIdentifier) {
+        // spread the objects evenly with a multiplicative hash of the identifier
+        final int hash = objectIdentifier.hashCode() * 0x9E3779B9;
+        final long offset = ((hash >>> 16) * (lifetime / 4)) >>> 16;
+        return lifetime / 2 + offset;
+    }
+
+    /**
+     * Returns the delay in milliseconds until a failed subscription is retried, starting with an eighth of the
+     * lifetime and doubling with every consecutive failure up to the lifetime.
+     */
+    long getRetryDelay(int consecutiveFailures) {
+        final int shift = Math.min(Math.max(consecutiveFailures - 1, 0), 3);
+        return Math.max((lifetime / 8) << shift, TICK_DURATION);
+    }
+
+    /**
+     * Renewal state of the subscription of a single object.
+     */
+    public class Renewal {
+
+        private final ObjectIdentifier objectIdentifier;
+
+        private long successes = 0;
+        private long failures = 0;
+        private int consecutiveFailures = 0;
+        private long lastSuccess = 0;
+        private String lastError = null;
+
+        private TimingWheel.Timeout timeout = null;
+        private boolean cancelled = false;
+
+        Renewal(ObjectIdentifier objectIdentifier) {
+            this.objectIdentifier = objectIdentifier;
+        }
+
+        synchronized void succeeded(long now) {
+            successes++;
+            consecutiveFailures = 0;
+            lastSuccess = now;
+            schedule(getRenewalDelay(objectIdentifier));
+        }
+
+        synchronized void failed(String error) {
+            failures++;
+            consecutiveFailures++;
+            lastError = error;
+            schedule(getRetryDelay(consecutiveFailures));
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (timeout != null)
+                timeout.cancel();
+        }
+
+        private void schedule(long delay) {
+            if (cancelled)
+                return;
+            if (timeout != null)
+                timeout.cancel();
+            timeout = wheel.schedule(() -> subscriber.subscribe(objectIdentifier), delay);
+        }
+
+        public ObjectIdentifier getObjectIdentifier() {
+            return objectIdentifier;
+        }
+
+        /** Returns the number of accepted subscriptions including the initial one. */
+        public synchronized long getSuccesses() {
+            return successes;
+        }
+
+        /** Returns the number of refused or failed subscriptions. */
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        /** Returns the number of failures since the last accepted subscription. */
+        public synchronized int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        /** Returns the time in milliseconds of the last accepted subscription or 0, if there is none. */
+        public synchronized long getLastSuccess() {
+            return lastSuccess;
+        }
+
+        /** Returns the description of the last failure or null, if there is none. */
+        public synchronized String getLastError() {
+            return lastError;
+        }
+
+        /** Returns the time in milliseconds the latest renewal is scheduled for or 0, if none is scheduled. */
+        public synchronized long getNextRenewal() {
+            return (timeout == null || timeout.isCancelled()) ? 0 : timeout.getDeadline();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Last values of the objects a connection has subscribed to with SubscribeCOV. The cache is filled by COV
+ * notifications and by reads of subscribed objects. Values are only served while the subscription of their object
+ * has been confirmed by the remote device and as long as they are younger than the maximum age.
+ */
+public class CovValueCache {
+
+    /** Default maximum age of a cached value in milliseconds, the cache is off unless a maximum age is set */
+    public final static long DEFAULT_MAX_AGE = 0;
+
+    private final ConcurrentMap<ObjectPropertyReference, CachedValue> values = new ConcurrentHashMap<>();
+    // objects with a subscription sent, mapped to true once the subscription has been confirmed
+    private final ConcurrentMap<ObjectIdentifier, Boolean> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger confirmedSubscriptions = new AtomicInteger();
+
+    private volatile long maxAge;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxAge
+     *            the maximum age of a cached value in milliseconds (0 = values are never served)
+     */
+    public CovValueCache(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns true if there is no confirmed subscription or if the cache is disabled, so that a lookup will never
+     * return a value.
+     *
+     * @return true if the cache cannot serve values
+     */
+    public boolean isInactive() {
+        return maxAge <= 0 || confirmedSubscriptions.get() == 0;
+    }
+
+    /**
+     * Registers a subscription that has been sent to the remote device.
+     */
+    public void subscribed(ObjectIdentifier objectIdentifier) {
+        subscriptions.putIfAbsent(objectIdentifier, Boolean.FALSE);
+    }
+
+    /**
+     * Marks the subscription of the specified object as confirmed by the remote device.
+     */
+    public void confirmed(ObjectIdentifier objectIdentifier) {
+        if (subscriptions.replace(objectIdentifier, Boolean.FALSE, Boolean.TRUE))
+            confirmedSubscriptions.incrementAndGet();
+    }
+
+    /**
+     * Marks the subscription of the specified object as no longer confirmed, e.g. after a failed renewal.
+     */
+    public void unconfirmed(ObjectIdentifier objectIdentifier) {
+        if (subscriptions.replace(objectIdentifier, Boolean.TRUE, Boolean.FALSE))
+            confirmedSubscriptions.decrementAndGet();
+    }
+
+    /**
+     * Removes the subscription and all cached values of the specified object.
+     */
+    public void unsubscribed(ObjectIdentifier objectIdentifier) {
+        if (Boolean.TRUE.equals(subscriptions.remove(objectIdentifier)))
+            confirmedSubscriptions.decrementAndGet();
+        values.keySet().removeIf(reference -> reference.getObjectIdentifier().equals(objectIdentifier));
+    }
+
+    /**
+     * Stores a value of a subscribed object. Values of other objects are ignored.
+     *
+     * @param objectIdentifier
+     *            the object identifier
+     * @param propertyIdentifier
+     *            the property identifier
+     * @param value
+     *            the value
+     * @param timestamp
+     *            the time the value has been received
+     */
+    public void put(ObjectIdentifier objectIdentifier, PropertyIdentifier propertyIdentifier, Encodable value,
+            long timestamp) {
+        put(new ObjectPropertyReference(objectIdentifier, propertyIdentifier), value, timestamp);
+    }
+
+    /**
+     * Stores a value of a subscribed object. Values of other objects are ignored.
+     *
+     * @param reference
+     *            the object property reference
+     * @param value
+     *            the value
+     * @param timestamp
+     *            the time the value has been received
+     */
+    public void put(ObjectPropertyReference reference, Encodable value, long timestamp) {
+        if (subscriptions.containsKey(reference.getObjectIdentifier()))
+            values.put(reference, new CachedValue(value, timestamp));
+    }
+
+    /**
+     * Gets the cached value of the specified reference.
+     *
+     * @param reference
+     *            the object property reference
+     * @param now
+     *            the actual time in milliseconds
+     * @return the cached value or <code>null</code>, if the subscription isn't confirmed or the value is too old
+     */
+    public CachedValue get(ObjectPropertyReference reference, long now) {
+        if (!Boolean.TRUE.equals(subscriptions.get(reference.getObjectIdentifier())))
+            return null;
+        final CachedValue value = values.get(reference);
+        if (value == null || now - value.getTimestamp() > maxAge)
+            return null;
+        return value;
+    }
+
+    /**
+     * Value in the cache together with the time it has been received.
+     */
+    public static class CachedValue {
+
+        private final Encodable value;
+        private final long timestamp;
+
+        CachedValue(Encodable value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+
+        public Encodable getValue() {
+            return value;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.RemoteObject;
+import com.serotonin.bacnet4j.event.DeviceEventAdapter;
+import com.serotonin.bacnet4j.event.DeviceEventListener;
+import com.serotonin.bacnet4j.obj.BACnetObject;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+/**
+ * The single event listener of a local device, which routes the events to the connections they belong to. COV
+ * notifications are routed through an index of remote device instance, subscriber process identifier and monitored
+ * object, so the cost of a notification doesn't depend on the number of connections. Each connection gets a
+ * subscriber process identifier of its own with {@link #allocateProcessIdentifier()}. I-Have answers are routed by
+ * the instance number of the answering device.
+ * <p>
+ * Instances are obtained with {@link #obtain(LocalDevice)} and have to be dismissed with {@link #dismiss()}.
+ */
+public class EventDemultiplexer extends DeviceEventAdapter {
+
+    private final static Logger logger = LoggerFactory.getLogger(EventDemultiplexer.class);
+
+    // demultiplexers by local device, guarded by itself
+    private final static Map<LocalDevice, EventDemultiplexer> instances = new HashMap<>();
+
+    private final LocalDevice localDevice;
+    // number of connections using this instance, guarded by instances
+    private int references = 0;
+
+    private final AtomicInteger nextProcessIdentifier = new AtomicInteger(1);
+    private final ConcurrentMap<CovKey, DeviceEventListener> covListeners = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, List<DeviceEventListener>> deviceListeners = new ConcurrentHashMap<>();
+    private final AtomicLong unroutedNotifications = new AtomicLong();
+
+    EventDemultiplexer(LocalDevice localDevice) {
+        this.localDevice = localDevice;
+    }
+
+    /**
+     * Gets the demultiplexer of the specified local device. The demultiplexer is created and added to the event
+     * handler of the local device on the first call.
+     *
+     * @param localDevice
+     *            the local device
+     * @return the demultiplexer of the local device
+     */
+    public static EventDemultiplexer obtain(LocalDevice localDevice) {
+        Objects.requireNonNull(localDevice, "local device instance must not be null");
+        synchronized (instances) {
+            EventDemultiplexer instance = instances.get(localDevice);
+            if (instance == null) {
+                instance = new EventDemultiplexer(localDevice);
+                localDevice.getEventHandler().addListener(instance);
+                instances.put(localDevice, instance);
+            }
+            instance.references++;
+            return instance;
+        }
+    }
+
+    /**
+     * Dismisses the usage of this demultiplexer. If no references are left, it is removed from the event handler of
+     * the local device.
+     */
+    public void dismiss() {
+        synchronized (instances) {
+            if (--references > 0)
+                return;
+            instances.remove(localDevice);
+            localDevice.getEventHandler().removeListener(this);
+        }
+    }
+
+    /**
+     * Allocates a subscriber process identifier that is unique for the local device.
+     *
+     * @return the subscriber process identifier
+     */
+    public UnsignedInteger allocateProcessIdentifier() {
+        return new UnsignedInteger(nextProcessIdentifier.getAndIncrement());
+    }
+
+    /**
+     * Routes the COV notifications of the specified subscription to a listener. An existing listener of the
+     * subscription is replaced.
+     *
+     * @param remoteInstance
+     *            the instance number of the notifying remote device
+     * @param processIdentifier
+     *            the subscriber process identifier of the subscription
+     * @param objectIdentifier
+     *            the monitored object
+     * @param listener
+     *            the listener to route the notifications to
+     */
+    public void addCovListener(int remoteInstance, UnsignedInteger processIdentifier,
+            ObjectIdentifier objectIdentifier, DeviceEventListener listener) {
+        covListeners.put(new CovKey(remoteInstance, processIdentifier, objectIdentifier),
+                Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * Stops routing the COV notifications of the specified subscription.
+     *
+     * @param remoteInstance
+     *            the instance number of the notifying remote device
+     * @param processIdentifier
+     *            the subscriber process identifier of the subscription
+     * @param objectIdentifier
+     *            the monitored object
+     */
+    public void removeCovListener(int remoteInstance, UnsignedInteger processIdentifier,
+            ObjectIdentifier objectIdentifier) {
+        covListeners.remove(new CovKey(remoteInstance, processIdentifier, objectIdentifier));
+    }
+
+    /**
+     * Routes the events of the specified remote device that don't belong to a subscription (e.g. I-Have answers) to a
+     * listener.
+     *
+     * @param remoteInstance
+     *            the instance number of the remote device
+     * @param listener
+     *            the listener to add
+     */
+    public void addDeviceListener(int remoteInstance, DeviceEventListener listener) {
+        deviceListeners.computeIfAbsent(remoteInstance, instance -> new CopyOnWriteArrayList<>())
+                .add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * Removes a listener added with {@link #addDeviceListener(int, DeviceEventListener)}.
+     *
+     * @param remoteInstance
+     *            the instance number of the remote device
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeDeviceListener(int remoteInstance, DeviceEventListener listener) {
+        final List<DeviceEventListener> listeners = deviceListeners.get(remoteInstance);
+        if (listeners != null)
+            listeners.remove(listener);
+    }
+
+    /**
+     * Gets the number of COV notifications that couldn't be routed to a listener (e.g. notifications of
+     * subscriptions that have been cancelled).
+     *
+     * @return the number of unrouted notifications
+     */
+    public long getUnroutedNotifications() {
+        return unroutedNotifications.get();
+    }
+
+    @Override
+    public void covNotificationReceived(UnsignedInteger subscriberProcessIdentifier, RemoteDevice initiatingDevice,
+            ObjectIdentifier monitoredObjectIdentifier, UnsignedInteger timeRemaining,
+            SequenceOf<PropertyValue> listOfValues) {
+
+        final DeviceEventListener listener = (initiatingDevice == null) ? null
+                : covListeners.get(new CovKey(initiatingDevice.getInstanceNumber(), subscriberProcessIdentifier,
+                        monitoredObjectIdentifier));
+
+        if (listener == null) {
+            unroutedNotifications.incrementAndGet();
+            logger.trace("no listener for COV notification of process {} from remote device {} for object {}",
+                    subscriberProcessIdentifier, initiatingDevice, monitoredObjectIdentifier);
+            return;
+        }
+
+        listener.covNotificationReceived(subscriberProcessIdentifier, initiatingDevice, monitoredObjectIdentifier,
+                timeRemaining, listOfValues);
+    }
+
+    @Override
+    public void iHaveReceived(RemoteDevice d, RemoteObject o) {
+        if (d == null)
+            return;
+        final List<DeviceEventListener> listeners = deviceListeners.get(d.getInstanceNumber());
+        if (listeners != null) {
+            for (DeviceEventListener listener : listeners) {
+                listener.iHaveReceived(d, o);
+            }
+        }
+    }
+
+    /**
+     * Vetoes writes of remote devices to the objects of the local device, as the connections to remote devices don't
+     * serve any objects.
+     */
+    @Override
+    public boolean allowPropertyWrite(Address from, BACnetObject obj, PropertyValue pv) {
+        return false;
+    }
+
+    @Override
+    public void listenerException(Throwable e) {
+        logger.debug("exception in event listener of local device", e);
+    }
+
+    /**
+     * Index key of a COV subscription.
+     */
+    private static class CovKey {
+
+        private final int remoteInstance;
+        private final long processIdentifier;
+        private final int objectIdentifier;
+
+        CovKey(int remoteInstance, UnsignedInteger processIdentifier, ObjectIdentifier objectIdentifier) {
+            this.remoteInstance = remoteInstance;
+            this.processIdentifier = processIdentifier.longValue();
+            this.objectIdentifier = BACnetUtils.packObjectIdentifier(objectIdentifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * remoteInstance + Long.hashCode(processIdentifier)) + objectIdentifier;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof CovKey))
+                return false;
+            final CovKey other = (CovKey) obj;
+            return remoteInstance == other.remoteInstance && processIdentifier == other.processIdentifier
+                    && objectIdentifier == other.objectIdentifier;
+        }
+    }
+}
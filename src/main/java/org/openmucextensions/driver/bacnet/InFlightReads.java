@@ -0,0 +1,87 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+
+/**
+ * Registry of the property reads outstanding on a remote device. Concurrent reads of the same property share a
+ * single request: the first reader registers its future and sends the request, all other readers wait for the
+ * result of that future. The value is the raw result of the read, which may be a
+ * {@link com.serotonin.bacnet4j.type.constructed.BACnetError}.
+ */
+public class InFlightReads {
+
+    private final ConcurrentMap<ObjectPropertyReference, CompletableFuture<Encodable>> reads = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a read of the specified property, unless the property is already being read.
+     *
+     * @param reference
+     *            the property to read
+     * @param future
+     *            the future the caller will complete with {@link #complete} or {@link #fail}
+     * @return <code>null</code> if the caller has to read the property, the future of the outstanding read otherwise
+     */
+    public CompletableFuture<Encodable> register(ObjectPropertyReference reference, CompletableFuture<Encodable> future) {
+        return reads.putIfAbsent(reference, future);
+    }
+
+    /**
+     * Completes a registered read. Later reads of the property will send a new request.
+     *
+     * @param reference
+     *            the property that has been read
+     * @param future
+     *            the future that has been registered for the read
+     * @param value
+     *            the result of the read
+     */
+    public void complete(ObjectPropertyReference reference, CompletableFuture<Encodable> future, Encodable value) {
+        reads.remove(reference, future);
+        future.complete(value);
+    }
+
+    /**
+     * Completes a registered read that has failed.
+     *
+     * @param reference
+     *            the property that has been read
+     * @param future
+     *            the future that has been registered for the read
+     * @param cause
+     *            the cause of the failure
+     */
+    public void fail(ObjectPropertyReference reference, CompletableFuture<Encodable> future, Throwable cause) {
+        reads.remove(reference, future);
+        future.completeExceptionally(cause);
+    }
+
+    /**
+     * Gets the number of properties being read.
+     *
+     * @return the number of outstanding reads
+     */
+    public int size() {
+        return reads.size();
+    }
+}
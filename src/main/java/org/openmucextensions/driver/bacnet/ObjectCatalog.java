@@ -0,0 +1,139 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Object name to object identifier mappings (object handles) of a remote device, shared by all connections to the
+ * device (see {@link RemoteDeviceRegistry}). The handles are kept in an immutable {@link ObjectHandleMap} that is
+ * replaced on modification, so lookups don't block. Channel scans that replace the handles are serialized by the scan
+ * lock, so that a device is scanned only once even if several connections need its handles at the same time.
+ */
+public class ObjectCatalog {
+
+    private volatile ObjectHandleMap handles = ObjectHandleMap.EMPTY;
+    // true if the handles contain all channels of the remote device (not only single resolved names)
+    private volatile boolean complete = false;
+    // true if a channel scan has been done since the catalog has been created
+    private volatile boolean scanned = false;
+    // channel addresses that could neither be resolved nor found by a channel scan
+    private final Set<String> unresolved = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    /**
+     * Gets the object identifier of an object name.
+     *
+     * @param objectName
+     *            the object name
+     * @return the object identifier or <code>null</code>, if the name is unknown
+     */
+    public ObjectIdentifier get(String objectName) {
+        return handles.get(objectName);
+    }
+
+    /**
+     * Gets the number of object handles.
+     *
+     * @return the number of object handles
+     */
+    public int size() {
+        return handles.size();
+    }
+
+    /**
+     * Adds object handles, e.g. of an incomplete channel scan or of resolved object names.
+     *
+     * @param handles
+     *            the object handles to add
+     */
+    public synchronized void putAll(Map<String, ObjectIdentifier> handles) {
+        this.handles = this.handles.withAll(handles);
+        unresolved.removeAll(handles.keySet());
+    }
+
+    /**
+     * Replaces all object handles by the complete handles of the remote device.
+     *
+     * @param handles
+     *            the new object handles
+     * @param scanned
+     *            true if the handles are the result of a channel scan, false if they have been loaded from the
+     *            persistent catalog
+     */
+    public synchronized void replace(Map<String, ObjectIdentifier> handles, boolean scanned) {
+        this.handles = ObjectHandleMap.of(handles);
+        this.complete = true;
+        if (scanned)
+            this.scanned = true;
+        unresolved.clear();
+    }
+
+    /**
+     * Returns true if the handles contain all channels of the remote device.
+     *
+     * @return true if the catalog is complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns true if a channel scan has been done since the catalog has been created.
+     *
+     * @return true if the remote device has been scanned
+     */
+    public boolean isScanned() {
+        return scanned;
+    }
+
+    /**
+     * Returns true if the channel address could neither be resolved nor found by a channel scan.
+     *
+     * @param channelAddress
+     *            the channel address
+     * @return true if the channel address is known to be unresolvable
+     */
+    public boolean isUnresolved(String channelAddress) {
+        return unresolved.contains(channelAddress);
+    }
+
+    /**
+     * Marks a channel address as unresolvable, so that it won't be looked up again until the next channel scan.
+     *
+     * @param channelAddress
+     *            the channel address
+     */
+    public void markUnresolved(String channelAddress) {
+        unresolved.add(channelAddress);
+    }
+
+    /**
+     * Gets the lock that serializes channel scans of the remote device.
+     *
+     * @return the scan lock
+     */
+    public ReentrantLock getScanLock() {
+        return scanLock;
+    }
+}
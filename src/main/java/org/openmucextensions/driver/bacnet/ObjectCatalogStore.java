@@ -0,0 +1,208 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Persists the object catalogs (object name to object identifier mappings) of remote devices as JSON files in a
+ * directory, one file per remote device instance. Each catalog is stored together with the <i>databaseRevision</i>
+ * of the remote device or, if the device doesn't support this property, with a hash of its object list. A stored
+ * catalog is only valid as long as this version information hasn't changed.
+ */
+public class ObjectCatalogStore {
+
+    private final static Logger logger = LoggerFactory.getLogger(ObjectCatalogStore.class);
+
+    private final Path directory;
+    private final Gson gson = new Gson();
+
+    /**
+     * Constructs a new store for the specified directory. The directory will be created on the first save, if it
+     * doesn't exist.
+     *
+     * @param directory
+     *            the directory containing the catalog files
+     */
+    public ObjectCatalogStore(Path directory) {
+        this.directory = Objects.requireNonNull(directory, "directory must not be null");
+    }
+
+    /**
+     * Gets the directory containing the catalog files.
+     *
+     * @return the catalog directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Loads the catalog of the specified remote device.
+     *
+     * @param deviceInstance
+     *            the instance number of the remote device
+     * @return the catalog or <code>null</code>, if there is no (readable) catalog for the device
+     */
+    public Catalog load(int deviceInstance) {
+
+        final Path file = getFile(deviceInstance);
+        if (!Files.isReadable(file))
+            return null;
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            final CatalogFile catalogFile = gson.fromJson(reader, CatalogFile.class);
+            if (catalogFile == null || catalogFile.objects == null || catalogFile.deviceInstance != deviceInstance) {
+                logger.warn("ignoring invalid object catalog file {}", file);
+                return null;
+            }
+
+            final Map<String, ObjectIdentifier> handles = new HashMap<>(catalogFile.objects.size() * 4 / 3 + 1);
+            for (Map.Entry<String, int[]> entry : catalogFile.objects.entrySet()) {
+                final int[] id = entry.getValue();
+                handles.put(entry.getKey(), new ObjectIdentifier(new ObjectType(id[0]), id[1]));
+            }
+            return new Catalog(catalogFile.databaseRevision, catalogFile.objectListHash, handles);
+
+        } catch (IOException | RuntimeException e) {
+            logger.warn("cannot read object catalog file {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the catalog of the specified remote device. An existing catalog will be replaced.
+     *
+     * @param deviceInstance
+     *            the instance number of the remote device
+     * @param catalog
+     *            the catalog to save
+     * @throws IOException
+     *             if the catalog file cannot be written
+     */
+    public void save(int deviceInstance, Catalog catalog) throws IOException {
+
+        final CatalogFile catalogFile = new CatalogFile();
+        catalogFile.deviceInstance = deviceInstance;
+        catalogFile.databaseRevision = catalog.getDatabaseRevision();
+        catalogFile.objectListHash = catalog.getObjectListHash();
+        catalogFile.objects = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectIdentifier> entry : catalog.getHandles().entrySet()) {
+            final ObjectIdentifier id = entry.getValue();
+            catalogFile.objects.put(entry.getKey(),
+                    new int[] { id.getObjectType().intValue(), id.getInstanceNumber() });
+        }
+
+        Files.createDirectories(directory);
+
+        // write to a temporary file first, so that a crash cannot leave a corrupt catalog
+        final Path file = getFile(deviceInstance);
+        final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                gson.toJson(catalogFile, writer);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Path getFile(int deviceInstance) {
+        return directory.resolve("device-" + deviceInstance + ".json");
+    }
+
+    /**
+     * Object catalog of a remote device together with the version information it has been created for.
+     */
+    public static class Catalog {
+
+        private final Long databaseRevision;
+        private final Integer objectListHash;
+        private final Map<String, ObjectIdentifier> handles;
+
+        /**
+         * Constructs a new catalog.
+         *
+         * @param databaseRevision
+         *            the database revision of the remote device or <code>null</code>, if not supported
+         * @param objectListHash
+         *            the hash of the object list or <code>null</code>, if the database revision is used
+         * @param handles
+         *            the object name to object identifier mappings
+         */
+        public Catalog(Long databaseRevision, Integer objectListHash, Map<String, ObjectIdentifier> handles) {
+            this.databaseRevision = databaseRevision;
+            this.objectListHash = objectListHash;
+            this.handles = Objects.requireNonNull(handles, "handles must not be null");
+        }
+
+        public Long getDatabaseRevision() {
+            return databaseRevision;
+        }
+
+        public Integer getObjectListHash() {
+            return objectListHash;
+        }
+
+        public Map<String, ObjectIdentifier> getHandles() {
+            return handles;
+        }
+
+        /**
+         * Returns true if this catalog has been created for the specified version of the remote device.
+         *
+         * @param databaseRevision
+         *            the actual database revision or <code>null</code>
+         * @param objectListHash
+         *            the actual object list hash or <code>null</code>
+         * @return true if the version information matches
+         */
+        public boolean isValidFor(Long databaseRevision, Integer objectListHash) {
+            if (databaseRevision != null)
+                return databaseRevision.equals(this.databaseRevision);
+            return objectListHash != null && objectListHash.equals(this.objectListHash);
+        }
+    }
+
+    /**
+     * JSON representation of a catalog file.
+     */
+    private static class CatalogFile {
+        int deviceInstance;
+        Long databaseRevision;
+        Integer objectListHash;
+        Map<String, int[]> objects;
+    }
+}
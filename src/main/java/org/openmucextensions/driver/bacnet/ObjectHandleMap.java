@@ -0,0 +1,149 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Immutable, compact map of object names to object identifiers. The identifiers are stored as packed ints (see
+ * {@link BACnetUtils#packObjectIdentifier(ObjectIdentifier)}) in an open-addressing hash table with linear probing, so
+ * that an entry takes a slot in two arrays instead of a map entry and an <code>ObjectIdentifier</code> instance.
+ * Modifications return a new map (copy-on-write), so instances can be shared between threads without locking. Names
+ * are interned, so that the catalogs of devices with the same object names share a single instance of each name.
+ */
+public final class ObjectHandleMap {
+
+    /** Empty map */
+    public static final ObjectHandleMap EMPTY = new ObjectHandleMap(new String[2], new int[2], 0);
+
+    private final String[] names;
+    private final int[] identifiers;
+    private final int size;
+
+    private ObjectHandleMap(String[] names, int[] identifiers, int size) {
+        this.names = names;
+        this.identifiers = identifiers;
+        this.size = size;
+    }
+
+    /**
+     * Creates a map containing the specified object handles.
+     *
+     * @param handles
+     *            object name to object identifier mappings
+     * @return the map
+     */
+    public static ObjectHandleMap of(Map<String, ObjectIdentifier> handles) {
+        return EMPTY.withAll(handles);
+    }
+
+    /**
+     * Gets the object identifier of an object name.
+     *
+     * @param objectName
+     *            the object name
+     * @return the object identifier or <code>null</code>, if the name is unknown
+     */
+    public ObjectIdentifier get(String objectName) {
+        final int slot = slotOf(names, objectName);
+        return (names[slot] == null) ? null : BACnetUtils.unpackObjectIdentifier(identifiers[slot]);
+    }
+
+    /**
+     * Gets the number of object handles.
+     *
+     * @return the number of object handles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a map with the specified object handles added. This map is not modified.
+     *
+     * @param handles
+     *            the object handles to add
+     * @return the new map
+     */
+    public ObjectHandleMap withAll(Map<String, ObjectIdentifier> handles) {
+
+        // keep the load factor at 0.5 at most
+        final int capacity = tableSize(size + handles.size());
+        final String[] newNames = new String[capacity];
+        final int[] newIdentifiers = new int[capacity];
+        int newSize = 0;
+
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                final int slot = slotOf(newNames, names[i]);
+                newNames[slot] = names[i];
+                newIdentifiers[slot] = identifiers[i];
+                newSize++;
+            }
+        }
+
+        for (Map.Entry<String, ObjectIdentifier> entry : handles.entrySet()) {
+            final int slot = slotOf(newNames, entry.getKey());
+            if (newNames[slot] == null) {
+                // devices of the same type often share their object names
+                newNames[slot] = entry.getKey().intern();
+                newSize++;
+            }
+            newIdentifiers[slot] = BACnetUtils.packObjectIdentifier(entry.getValue());
+        }
+
+        return new ObjectHandleMap(newNames, newIdentifiers, newSize);
+    }
+
+    /**
+     * Copies the object handles into a new <code>HashMap</code>.
+     *
+     * @return the object handles
+     */
+    public Map<String, ObjectIdentifier> toMap() {
+        final Map<String, ObjectIdentifier> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null)
+                map.put(names[i], BACnetUtils.unpackObjectIdentifier(identifiers[i]));
+        }
+        return map;
+    }
+
+    private static int tableSize(int entries) {
+        int capacity = 2;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Gets the slot of the name in the table or the empty slot the name has to be put in.
+     */
+    private static int slotOf(String[] table, String name) {
+        final int mask = table.length - 1;
+        int h = name.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (table[slot] != null && !table[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,80 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Immutable list of object identifiers backed by an array of packed identifiers (see
+ * {@link BACnetUtils#packObjectIdentifier(ObjectIdentifier)}). The object list of a large device takes 4 bytes per
+ * object instead of an <code>ObjectIdentifier</code> instance per object.
+ */
+public final class ObjectIdentifierList extends AbstractList<ObjectIdentifier> implements RandomAccess {
+
+    private final int[] identifiers;
+
+    /**
+     * Constructs a new list out of an array of packed identifiers. The array is not copied.
+     *
+     * @param identifiers
+     *            packed object identifiers
+     */
+    ObjectIdentifierList(int[] identifiers) {
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * Constructs a new list containing the specified object identifiers.
+     *
+     * @param identifiers
+     *            the object identifiers
+     */
+    public ObjectIdentifierList(Collection<ObjectIdentifier> identifiers) {
+        this.identifiers = new int[identifiers.size()];
+        int i = 0;
+        for (ObjectIdentifier identifier : identifiers) {
+            this.identifiers[i++] = BACnetUtils.packObjectIdentifier(identifier);
+        }
+    }
+
+    @Override
+    public ObjectIdentifier get(int index) {
+        return BACnetUtils.unpackObjectIdentifier(getPacked(index));
+    }
+
+    /**
+     * Gets the packed object identifier at the specified position.
+     *
+     * @param index
+     *            index of the identifier
+     * @return the packed object identifier
+     */
+    public int getPacked(int index) {
+        if (index < 0 || index >= identifiers.length)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + identifiers.length);
+        return identifiers[index];
+    }
+
+    @Override
+    public int size() {
+        return identifiers.length;
+    }
+}
@@ -0,0 +1,208 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.RemoteObject;
+import com.serotonin.bacnet4j.service.unconfirmed.WhoHasRequest;
+import com.serotonin.bacnet4j.type.primitive.CharacterString;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+/**
+ * Resolves object names of a remote device with the Who-Has service, so that channel addresses can be mapped to their
+ * object identifiers without reading the names of all objects of the device. The Who-Has requests are limited to the
+ * instance number of the remote device; the I-Have answers have to be passed to
+ * {@link #iHaveReceived(RemoteDevice, RemoteObject)} by the owner of this resolver. All answers that arrive within
+ * the timeout are collected, since a device may answer more than once for the same name.
+ */
+public class ObjectNameResolver {
+
+    private final static Logger logger = LoggerFactory.getLogger(ObjectNameResolver.class);
+
+    /** Default time in milliseconds to wait for I-Have answers */
+    public final static long DEFAULT_TIMEOUT = 1000;
+
+    /** Default maximum number of unknown names resolved with Who-Has instead of a channel scan */
+    public final static int DEFAULT_MAX_NAMES = 8;
+
+    private final LocalDevice localDevice;
+    private final RemoteDevice remoteDevice;
+    private final long timeout;
+
+    // lookups waiting for an answer, by object name
+    private final ConcurrentMap<String, Lookup> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new resolver for the specified remote device.
+     *
+     * @param localDevice
+     *            the local device instance to send Who-Has requests with
+     * @param remoteDevice
+     *            the remote device instance to resolve object names of
+     * @param timeout
+     *            time in milliseconds to wait for I-Have answers
+     */
+    public ObjectNameResolver(LocalDevice localDevice, RemoteDevice remoteDevice, long timeout) {
+        this.localDevice = Objects.requireNonNull(localDevice, "local device instance must not be null");
+        this.remoteDevice = Objects.requireNonNull(remoteDevice, "remote device instance must not be null");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the time in milliseconds to wait for I-Have answers.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Resolves the specified object names and blocks until the timeout has elapsed. The Who-Has requests of all names
+     * are sent at once, so the names are resolved in a single round. Concurrent calls for the same name share a
+     * single Who-Has request. Object names are unique within a device, so more than one identifier for a name means
+     * that the answers are ambiguous (e.g. because the objects of the device have been renamed).
+     *
+     * @param objectNames
+     *            the object names to resolve
+     * @return the identifiers of all objects that answered by object name, an empty list if a name couldn't be
+     *         resolved or if the remote device doesn't support Who-Has
+     */
+    public Map<String, List<ObjectIdentifier>> resolve(Collection<String> objectNames) {
+
+        final Map<String, List<ObjectIdentifier>> result = new LinkedHashMap<>();
+        if (!isWhoHasSupported()) {
+            for (String objectName : objectNames) {
+                result.put(objectName, new ArrayList<>());
+            }
+            return result;
+        }
+
+        final Map<String, Lookup> own = new HashMap<>();
+        final Map<String, Lookup> all = new LinkedHashMap<>();
+        final long deadline = System.currentTimeMillis() + timeout;
+
+        try {
+            for (String objectName : new LinkedHashSet<>(objectNames)) {
+                final Lookup lookup = new Lookup(deadline);
+                final Lookup existing = lookups.putIfAbsent(objectName, lookup);
+                if (existing == null) {
+                    own.put(objectName, lookup);
+                    all.put(objectName, lookup);
+                    final int instance = remoteDevice.getInstanceNumber();
+                    localDevice.send(remoteDevice.getAddress(), new WhoHasRequest(
+                            new WhoHasRequest.Limits(new UnsignedInteger(instance), new UnsignedInteger(instance)),
+                            new CharacterString(objectName)));
+                }
+                else {
+                    all.put(objectName, existing);
+                }
+            }
+
+            // there is no way to tell that all answers have arrived, so the full timeout is waited for
+            long latest = 0;
+            for (Lookup lookup : all.values()) {
+                latest = Math.max(latest, lookup.deadline);
+            }
+            long remaining = latest - System.currentTimeMillis();
+            if (remaining > 0)
+                Thread.sleep(remaining);
+
+            for (Map.Entry<String, Lookup> lookup : all.entrySet()) {
+                result.put(lookup.getKey(), lookup.getValue().getIdentifiers());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // partial answers could look unambiguous, so nothing is resolved
+            for (String objectName : objectNames) {
+                result.put(objectName, new ArrayList<>());
+            }
+        } finally {
+            for (Map.Entry<String, Lookup> lookup : own.entrySet()) {
+                lookups.remove(lookup.getKey(), lookup.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Passes an I-Have answer to this resolver. Answers of other devices or for names that are not being resolved
+     * are ignored.
+     *
+     * @param d
+     *            the device that sent the answer
+     * @param o
+     *            the object the answer is about
+     */
+    public void iHaveReceived(RemoteDevice d, RemoteObject o) {
+
+        if (d == null || o == null || d.getInstanceNumber() != remoteDevice.getInstanceNumber())
+            return;
+
+        final Lookup lookup = lookups.get(o.getObjectName());
+        if (lookup != null) {
+            logger.trace("resolved object name {} of remote device {} to {}", o.getObjectName(),
+                    remoteDevice.getInstanceNumber(), o.getObjectIdentifier());
+            lookup.add(o.getObjectIdentifier());
+        }
+    }
+
+    private boolean isWhoHasSupported() {
+        // devices without known services supported are asked anyway
+        return remoteDevice.getServicesSupported() == null || remoteDevice.getServicesSupported().isWhoHas();
+    }
+
+    private static class Lookup {
+
+        private final long deadline;
+        private final Set<ObjectIdentifier> identifiers = new LinkedHashSet<>();
+
+        Lookup(long deadline) {
+            this.deadline = deadline;
+        }
+
+        void add(ObjectIdentifier identifier) {
+            synchronized (identifiers) {
+                identifiers.add(identifier);
+            }
+        }
+
+        List<ObjectIdentifier> getIdentifiers() {
+            synchronized (identifiers) {
+                return new ArrayList<>(identifiers);
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.exception.AbortAPDUException;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.exception.BACnetTimeoutException;
+import com.serotonin.bacnet4j.exception.ErrorAPDUException;
+import com.serotonin.bacnet4j.exception.RejectAPDUException;
+import com.serotonin.bacnet4j.exception.ServiceTooBigException;
+import com.serotonin.bacnet4j.service.acknowledgement.AcknowledgementService;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyAck;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyMultipleAck;
+import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
+import com.serotonin.bacnet4j.service.confirmed.ReadPropertyMultipleRequest;
+import com.serotonin.bacnet4j.service.confirmed.ReadPropertyRequest;
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.constructed.PropertyReference;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessResult;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessResult.Result;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessSpecification;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.enumerated.AbortReason;
+import com.serotonin.bacnet4j.type.enumerated.ErrorClass;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.enumerated.RejectReason;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+import com.serotonin.bacnet4j.util.PropertyReferences;
+import com.serotonin.bacnet4j.util.PropertyValues;
+import com.serotonin.bacnet4j.util.RequestUtils;
+
+/**
+ * Reads a large number of property references from a remote device. The references are packed into
+ * ReadPropertyMultiple requests sized by a {@link ChunkSizeController}, and several of these requests are kept in
+ * flight at the same time. If the device rejects or aborts a request because it is too big, the request will be split
+ * and sent again.
+ */
+public class PropertyReader {
+
+    /**
+     * Callback interface to get notified about the progress of {@link PropertyReader#readProperties}.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a part of the references has been read. Parts are reported in the order of the references,
+         * also if a part had to be split and sent again, so all references up to the last one of the given part have
+         * been read. The values contain all results read so far.
+         */
+        void partitionRead(PropertyReferences partition, PropertyValues values);
+    }
+
+    private final static Logger logger = LoggerFactory.getLogger(PropertyReader.class);
+
+    /** Default number of ReadPropertyMultiple requests that are outstanding at the same time */
+    public final static int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 4;
+
+    private final LocalDevice localDevice;
+    private final RemoteDevice remoteDevice;
+    private final int maxRequestsInFlight;
+    private final ChunkSizeController chunkSizeController;
+
+    /**
+     * Constructs a new <code>PropertyReader</code> for the specified remote device.
+     *
+     * @param localDevice
+     *            the local device instance to communicate with
+     * @param remoteDevice
+     *            the remote device instance to read from
+     * @param maxRequestsInFlight
+     *            maximum number of requests outstanding at the same time
+     */
+    public PropertyReader(LocalDevice localDevice, RemoteDevice remoteDevice, int maxRequestsInFlight) {
+        this(localDevice, remoteDevice, maxRequestsInFlight, ChunkSizeController.forDevice(remoteDevice));
+    }
+
+    /**
+     * Constructs a new <code>PropertyReader</code> for the specified remote device that sizes its requests with the
+     * specified controller. The controller learns from the outcome of the requests, so it should be shared by all
+     * readers of the remote device.
+     *
+     * @param localDevice
+     *            the local device instance to communicate with
+     * @param remoteDevice
+     *            the remote device instance to read from
+     * @param maxRequestsInFlight
+     *            maximum number of requests outstanding at the same time
+     * @param chunkSizeController
+     *            the controller of the number of references per request
+     */
+    public PropertyReader(LocalDevice localDevice, RemoteDevice remoteDevice, int maxRequestsInFlight,
+            ChunkSizeController chunkSizeController) {
+        this.localDevice = Objects.requireNonNull(localDevice, "local device instance must not be null");
+        this.remoteDevice = Objects.requireNonNull(remoteDevice, "remote device instance must not be null");
+        this.maxRequestsInFlight = maxRequestsInFlight;
+        this.chunkSizeController = Objects.requireNonNull(chunkSizeController,
+                "chunk size controller must not be null");
+    }
+
+    /**
+     * Reads all specified property references. Properties that could not be read are represented by a
+     * {@link BACnetError} in the result.
+     *
+     * @param references
+     *            the property references to read
+     * @return the values of the references
+     * @throws BACnetException
+     *             if a request fails for another reason than its size (e.g. a timeout)
+     */
+    public PropertyValues readProperties(PropertyReferences references) throws BACnetException {
+        return readProperties(references, null);
+    }
+
+    /**
+     * Reads all specified property references and notifies the listener each time a part of the references has
+     * been read. Properties that could not be read are represented by a {@link BACnetError} in the result.
+     *
+     * @param references
+     *            the property references to read
+     * @param listener
+     *            the listener to notify or <code>null</code>
+     * @return the values of the references
+     * @throws BACnetException
+     *             if a request fails for another reason than its size (e.g. a timeout)
+     */
+    public PropertyValues readProperties(PropertyReferences references, Listener listener) throws BACnetException {
+
+        if (!isReadPropertyMultipleSupported()) {
+            // the library sends the references one at a time
+            final PropertyValues values = RequestUtils.readProperties(localDevice, remoteDevice, references, null);
+            if (listener != null)
+                listener.partitionRead(references, values);
+            return values;
+        }
+
+        final PropertyValues values = new PropertyValues();
+        final List<PropertyReferences> partitions = references.getPropertiesPartitioned(getReferencesPerRequest());
+
+        logger.trace("reading {} properties from remote device {} with {} requests", references.size(),
+                remoteDevice.getInstanceNumber(), partitions.size());
+
+        new RequestPipeline<>(localDevice, remoteDevice, maxRequestsInFlight, new PartitionHandler(values, listener))
+                .execute(partitions);
+
+        return values;
+    }
+
+    /**
+     * Reads the object list of the remote device. The list is read as a whole first. If the remote device cannot send
+     * the whole list (e.g. because it would have to segment the response), the length of the list is read from array
+     * index 0 and the entries are read by index with batched, pipelined requests.
+     *
+     * @param indexed
+     *            true to read the list by index without trying to read it as a whole first
+     * @return the object identifiers of the object list
+     * @throws BACnetException
+     *             if the object list or one of its entries cannot be read
+     */
+    public ObjectIdentifierList readObjectList(boolean indexed) throws BACnetException {
+
+        final ObjectIdentifier deviceIdentifier = remoteDevice.getObjectIdentifier();
+
+        if (!indexed) {
+            try {
+                final AcknowledgementService ack = localDevice
+                        .send(remoteDevice, new ReadPropertyRequest(deviceIdentifier, PropertyIdentifier.objectList))
+                        .get();
+                @SuppressWarnings("unchecked")
+                final SequenceOf<ObjectIdentifier> objectList = (SequenceOf<ObjectIdentifier>) ((ReadPropertyAck) ack)
+                        .getValue();
+                return new ObjectIdentifierList(objectList.getValues());
+            } catch (BACnetException e) {
+                if (!isSizeProblem(e))
+                    throw e;
+                logger.debug("cannot read object list of remote device {} as a whole ({}), reading it by index",
+                        remoteDevice.getInstanceNumber(), e.getMessage());
+            }
+        }
+
+        final ReadPropertyAck lengthAck = (ReadPropertyAck) localDevice.send(remoteDevice,
+                new ReadPropertyRequest(deviceIdentifier, PropertyIdentifier.objectList, new UnsignedInteger(0)))
+                .get();
+        final int length = ((UnsignedInteger) lengthAck.getValue()).intValue();
+
+        final PropertyReferences references = new PropertyReferences();
+        for (int i = 1; i <= length; i++) {
+            references.add(deviceIdentifier, new PropertyReference(PropertyIdentifier.objectList,
+                    new UnsignedInteger(i)));
+        }
+        final PropertyValues values = readProperties(references);
+
+        // a missing entry would shift the positions of all following objects
+        final int[] identifiers = new int[length];
+        for (int i = 1; i <= length; i++) {
+            final Encodable value = values.getNoErrorCheck(deviceIdentifier,
+                    new PropertyReference(PropertyIdentifier.objectList, new UnsignedInteger(i)));
+            if (!(value instanceof ObjectIdentifier))
+                throw new BACnetException("cannot read object list index " + i + " of remote device "
+                        + remoteDevice.getInstanceNumber() + ": " + value);
+            identifiers[i - 1] = BACnetUtils.packObjectIdentifier((ObjectIdentifier) value);
+        }
+
+        logger.trace("read {} entries of object list of remote device {} by index", length,
+                remoteDevice.getInstanceNumber());
+        return new ObjectIdentifierList(identifiers);
+    }
+
+    /**
+     * Gets the number of references packed into a single ReadPropertyMultiple request, as learned by the chunk size
+     * controller of this reader.
+     *
+     * @return the number of references per request
+     */
+    public int getReferencesPerRequest() {
+        return chunkSizeController.getChunkSize();
+    }
+
+    private boolean isReadPropertyMultipleSupported() {
+        return remoteDevice.getServicesSupported() != null
+                && remoteDevice.getServicesSupported().isReadPropertyMultiple();
+    }
+
+    /**
+     * Returns true if the exception indicates that the request or the response has been too big.
+     */
+    static boolean isSizeProblem(BACnetException e) {
+        if (e instanceof ServiceTooBigException)
+            return true;
+        if (e instanceof AbortAPDUException) {
+            int reason = ((AbortAPDUException) e).getApdu().getAbortReason();
+            return reason == AbortReason.bufferOverflow.intValue()
+                    || reason == AbortReason.segmentationNotSupported.intValue();
+        }
+        if (e instanceof RejectAPDUException) {
+            RejectReason reason = ((RejectAPDUException) e).getApdu().getRejectReason();
+            return RejectReason.bufferOverflow.equals(reason) || RejectReason.tooManyArguments.equals(reason);
+        }
+        return false;
+    }
+
+    private static ReadPropertyMultipleRequest createRequest(PropertyReferences partition) {
+        final Map<ObjectIdentifier, List<PropertyReference>> properties = partition.getProperties();
+        final List<ReadAccessSpecification> specs = new ArrayList<>(properties.size());
+        for (Map.Entry<ObjectIdentifier, List<PropertyReference>> entry : properties.entrySet()) {
+            specs.add(new ReadAccessSpecification(entry.getKey(),
+                    new SequenceOf<PropertyReference>(entry.getValue())));
+        }
+        return new ReadPropertyMultipleRequest(new SequenceOf<ReadAccessSpecification>(specs));
+    }
+
+    private static void addError(PropertyValues values, PropertyReferences partition, BACnetError error) {
+        for (Map.Entry<ObjectIdentifier, List<PropertyReference>> entry : partition.getProperties().entrySet()) {
+            for (PropertyReference reference : entry.getValue()) {
+                values.add(entry.getKey(), reference.getPropertyIdentifier(), reference.getPropertyArrayIndex(),
+                        error);
+            }
+        }
+    }
+
+    private class PartitionHandler implements RequestPipeline.Handler<PropertyReferences> {
+
+        private final PropertyValues values;
+        private final Listener listener;
+
+        PartitionHandler(PropertyValues values, Listener listener) {
+            this.values = values;
+            this.listener = listener;
+        }
+
+        @Override
+        public ConfirmedRequestService createRequest(PropertyReferences partition) {
+            return PropertyReader.createRequest(partition);
+        }
+
+        @Override
+        public void success(PropertyReferences partition, AcknowledgementService ack) {
+            for (ReadAccessResult objectResult : ((ReadPropertyMultipleAck) ack).getListOfReadAccessResults()) {
+                final ObjectIdentifier oid = objectResult.getObjectIdentifier();
+                for (Result result : objectResult.getListOfResults()) {
+                    final Encodable datum = result.getReadResult().getDatum();
+                    values.add(oid, result.getPropertyIdentifier(), result.getPropertyArrayIndex(), datum);
+                }
+            }
+            chunkSizeController.success(partition.size());
+            if (listener != null)
+                listener.partitionRead(partition, values);
+        }
+
+        @Override
+        public List<PropertyReferences> failure(PropertyReferences partition, BACnetException e)
+                throws BACnetException {
+
+            final int size = partition.size();
+
+            if (isSizeProblem(e) || e instanceof BACnetTimeoutException)
+                chunkSizeController.failure(size);
+
+            if (isSizeProblem(e) || e instanceof ErrorAPDUException) {
+                if (size > 1) {
+                    // fall back to smaller requests
+                    logger.debug("request with {} references to remote device {} failed ({}), splitting request",
+                            size, remoteDevice.getInstanceNumber(), e.getMessage());
+                    return partition.getPropertiesPartitioned((size + 1) / 2);
+                }
+
+                final BACnetError error = (e instanceof ErrorAPDUException) ? ((ErrorAPDUException) e).getBACnetError()
+                        : new BACnetError(ErrorClass.communication, ErrorCode.abortBufferOverflow);
+                addError(values, partition, error);
+                if (listener != null)
+                    listener.partitionRead(partition, values);
+                return Collections.emptyList();
+            }
+
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.Objects;
+
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.util.sero.ByteQueue;
+
+/**
+ * A single property value to be written to an object of a remote device.
+ */
+public class PropertyWrite {
+
+    private final ObjectIdentifier objectIdentifier;
+    private final PropertyValue propertyValue;
+
+    // number of bytes of the encoded property value, computed on demand
+    private int encodedSize = -1;
+
+    /**
+     * Constructs a new write.
+     *
+     * @param objectIdentifier
+     *            the object to write to
+     * @param propertyValue
+     *            the property, array index, value and priority to write
+     */
+    public PropertyWrite(ObjectIdentifier objectIdentifier, PropertyValue propertyValue) {
+        this.objectIdentifier = Objects.requireNonNull(objectIdentifier, "object identifier must not be null");
+        this.propertyValue = Objects.requireNonNull(propertyValue, "property value must not be null");
+    }
+
+    public ObjectIdentifier getObjectIdentifier() {
+        return objectIdentifier;
+    }
+
+    public PropertyValue getPropertyValue() {
+        return propertyValue;
+    }
+
+    /**
+     * Gets the number of bytes the property value takes in a WritePropertyMultiple request.
+     *
+     * @return the encoded size in bytes
+     */
+    public int getEncodedSize() {
+        if (encodedSize < 0) {
+            final ByteQueue queue = new ByteQueue();
+            propertyValue.write(queue);
+            encodedSize = queue.size();
+        }
+        return encodedSize;
+    }
+
+    @Override
+    public String toString() {
+        return objectIdentifier + "." + propertyValue.getPropertyIdentifier();
+    }
+}
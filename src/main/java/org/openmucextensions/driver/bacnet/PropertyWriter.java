@@ -0,0 +1,429 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import org.openmuc.framework.data.Flag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.ResponseConsumer;
+import com.serotonin.bacnet4j.apdu.Abort;
+import com.serotonin.bacnet4j.apdu.AckAPDU;
+import com.serotonin.bacnet4j.apdu.Reject;
+import com.serotonin.bacnet4j.exception.AbortAPDUException;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.exception.BACnetTimeoutException;
+import com.serotonin.bacnet4j.exception.ErrorAPDUException;
+import com.serotonin.bacnet4j.exception.RejectAPDUException;
+import com.serotonin.bacnet4j.service.acknowledgement.AcknowledgementService;
+import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
+import com.serotonin.bacnet4j.service.confirmed.WritePropertyMultipleRequest;
+import com.serotonin.bacnet4j.service.confirmed.WritePropertyRequest;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.constructed.WriteAccessSpecification;
+import com.serotonin.bacnet4j.type.enumerated.RejectReason;
+import com.serotonin.bacnet4j.type.error.BaseError;
+import com.serotonin.bacnet4j.type.error.WritePropertyMultipleError;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.util.sero.ByteQueue;
+
+/**
+ * Writes a large number of property values to a remote device. The values are packed into WritePropertyMultiple
+ * requests, each of them small enough to fit into a single APDU accepted by the remote device. Devices that don't
+ * support WritePropertyMultiple get a WriteProperty request per value. Several requests are kept in flight at the
+ * same time and the result of each write is reported as a {@link Flag}.
+ */
+public class PropertyWriter {
+
+    private final static Logger logger = LoggerFactory.getLogger(PropertyWriter.class);
+
+    /** Default time in milliseconds to wait for the acknowledgements of all writes */
+    public final static long DEFAULT_TIMEOUT = 10000;
+
+    // number of bytes of the confirmed request header (PDU type, max segments and APDU, invoke id, service choice)
+    private final static int REQUEST_HEADER_SIZE = 4;
+    // number of bytes of an object identifier with context tag plus the opening and closing tag of its values
+    private final static int SPECIFICATION_OVERHEAD = 7;
+
+    // opening and closing tags of context 0 and 1
+    private final static int OPENING_TAG_0 = 0x0E;
+    private final static int CLOSING_TAG_0 = 0x0F;
+    private final static int OPENING_TAG_1 = 0x1E;
+    private final static int CLOSING_TAG_1 = 0x1F;
+
+    private final LocalDevice localDevice;
+    private final RemoteDevice remoteDevice;
+    private final int maxRequestsInFlight;
+
+    /**
+     * Constructs a new writer for the specified remote device.
+     *
+     * @param localDevice
+     *            the local device instance to send requests with
+     * @param remoteDevice
+     *            the remote device instance to write to
+     * @param maxRequestsInFlight
+     *            the maximum number of requests outstanding at the same time
+     */
+    public PropertyWriter(LocalDevice localDevice, RemoteDevice remoteDevice, int maxRequestsInFlight) {
+        this.localDevice = Objects.requireNonNull(localDevice, "local device instance must not be null");
+        this.remoteDevice = Objects.requireNonNull(remoteDevice, "remote device instance must not be null");
+        this.maxRequestsInFlight = Math.max(1, maxRequestsInFlight);
+    }
+
+    /**
+     * Writes the specified values to the remote device in the given order and blocks until all of them have been
+     * acknowledged or the timeout has elapsed. Writes without acknowledgement at the end of the timeout are reported
+     * with {@link Flag#DRIVER_ERROR_TIMEOUT}.
+     *
+     * @param writes
+     *            the writes to send
+     * @param timeout
+     *            the time in milliseconds to wait for all acknowledgements
+     * @return the result of each write, in the order of the writes
+     */
+    public Flag[] writeProperties(List<PropertyWrite> writes, long timeout) {
+
+        final List<List<PropertyWrite>> partitions = isWritePropertyMultipleSupported()
+                ? partition(writes, remoteDevice.getMaxAPDULengthAccepted())
+                : partition(writes, 0);
+
+        logger.trace("writing {} properties to remote device {} with {} requests", writes.size(),
+                remoteDevice.getInstanceNumber(), partitions.size());
+
+        final Batch batch = new Batch(writes);
+        int from = 0;
+        for (List<PropertyWrite> partition : partitions) {
+            batch.pending.add(new Range(from, from + partition.size()));
+            from += partition.size();
+        }
+
+        try {
+            batch.execute(System.currentTimeMillis() + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return batch.flags;
+    }
+
+    private boolean isWritePropertyMultipleSupported() {
+        return remoteDevice.getServicesSupported() != null
+                && remoteDevice.getServicesSupported().isWritePropertyMultiple();
+    }
+
+    /**
+     * Gets the flag representing a failed write request that has not been answered with an error.
+     */
+    static Flag getFailureFlag(BACnetException e) {
+        if (e instanceof BACnetTimeoutException)
+            return Flag.DRIVER_ERROR_TIMEOUT;
+        if (e instanceof AbortAPDUException)
+            return Flag.DRIVER_ERROR_CHANNEL_TEMPORARILY_NOT_ACCESSIBLE;
+        if (e instanceof RejectAPDUException) {
+            final RejectReason reason = ((RejectAPDUException) e).getApdu().getRejectReason();
+            if (RejectReason.invalidParameterDataType.equals(reason)
+                    || RejectReason.parameterOutOfRange.equals(reason))
+                return Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION;
+            if (RejectReason.unrecognizedService.equals(reason))
+                return Flag.ACCESS_METHOD_NOT_SUPPORTED;
+        }
+        return Flag.DRIVER_ERROR_UNSPECIFIED;
+    }
+
+    private static boolean isUnrecognizedService(BACnetException e) {
+        return e instanceof RejectAPDUException
+                && RejectReason.unrecognizedService.equals(((RejectAPDUException) e).getApdu().getRejectReason());
+    }
+
+    /**
+     * Splits the writes into partitions whose WritePropertyMultiple requests don't exceed the specified APDU length.
+     * Consecutive writes to the same object share their object identifier. A write that doesn't fit into an empty
+     * request gets a partition of its own.
+     *
+     * @param writes
+     *            the writes to split
+     * @param maxApdu
+     *            the maximum APDU length accepted by the remote device, 0 or less for one write per partition
+     * @return the partitions in the order of the writes
+     */
+    static List<List<PropertyWrite>> partition(List<PropertyWrite> writes, int maxApdu) {
+
+        final List<List<PropertyWrite>> partitions = new ArrayList<>();
+        List<PropertyWrite> partition = null;
+        ObjectIdentifier lastObject = null;
+        int size = 0;
+
+        for (PropertyWrite write : writes) {
+            int writeSize = write.getEncodedSize();
+            if (!write.getObjectIdentifier().equals(lastObject))
+                writeSize += SPECIFICATION_OVERHEAD;
+
+            if (partition == null || size + writeSize > maxApdu) {
+                partition = new ArrayList<>();
+                partitions.add(partition);
+                writeSize = write.getEncodedSize() + SPECIFICATION_OVERHEAD;
+                size = REQUEST_HEADER_SIZE;
+            }
+
+            partition.add(write);
+            lastObject = write.getObjectIdentifier();
+            size += writeSize;
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Creates the request for a partition. A single write is sent as WriteProperty request, which is smaller and
+     * supported by every device.
+     */
+    static ConfirmedRequestService createRequest(List<PropertyWrite> partition) {
+
+        if (partition.size() == 1) {
+            final PropertyWrite write = partition.get(0);
+            final PropertyValue value = write.getPropertyValue();
+            return new WritePropertyRequest(write.getObjectIdentifier(), value.getPropertyIdentifier(),
+                    value.getPropertyArrayIndex(), value.getValue(), value.getPriority());
+        }
+
+        final SequenceOf<WriteAccessSpecification> specs = new SequenceOf<>();
+        ObjectIdentifier lastObject = null;
+        SequenceOf<PropertyValue> values = null;
+        for (PropertyWrite write : partition) {
+            if (!write.getObjectIdentifier().equals(lastObject)) {
+                values = new SequenceOf<>();
+                specs.add(new WriteAccessSpecification(write.getObjectIdentifier(), values));
+                lastObject = write.getObjectIdentifier();
+            }
+            values.add(write.getPropertyValue());
+        }
+        return new WritePropertyMultipleRequest(specs);
+    }
+
+    /**
+     * Returns the index of the write the first failed write attempt refers to or -1, if it is not part of the range.
+     */
+    static int indexOf(List<PropertyWrite> writes, int from, int to, ObjectPropertyReference reference) {
+        if (reference == null)
+            return -1;
+        for (int i = from; i < to; i++) {
+            final PropertyWrite write = writes.get(i);
+            final PropertyValue value = write.getPropertyValue();
+            if (write.getObjectIdentifier().equals(reference.getObjectIdentifier())
+                    && value.getPropertyIdentifier().equals(reference.getPropertyIdentifier())
+                    && Objects.equals(value.getPropertyArrayIndex(), reference.getPropertyArrayIndex()))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes of a partition, from inclusive to exclusive.
+     */
+    private static class Range {
+
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * State of a single {@link #writeProperties(List, long)} call. Responses are received on the transport thread of
+     * the local device; all fields are guarded by the batch itself.
+     */
+    private class Batch {
+
+        private final List<PropertyWrite> writes;
+        private final Flag[] flags;
+        private final Deque<Range> pending = new ArrayDeque<>();
+        private int inFlight = 0;
+        // set when the caller stopped waiting, later responses are ignored
+        private boolean closed = false;
+
+        Batch(List<PropertyWrite> writes) {
+            this.writes = writes;
+            this.flags = new Flag[writes.size()];
+        }
+
+        synchronized void execute(long deadline) throws InterruptedException {
+            try {
+                while (true) {
+                    while (inFlight < maxRequestsInFlight && !pending.isEmpty()) {
+                        final Range range = pending.poll();
+                        inFlight++;
+                        localDevice.send(remoteDevice, createRequest(writes.subList(range.from, range.to)),
+                                new RangeConsumer(this, range));
+                    }
+                    if (inFlight == 0 && pending.isEmpty())
+                        return;
+
+                    final long timeLeft = deadline - System.currentTimeMillis();
+                    if (timeLeft <= 0) {
+                        logger.debug("writes to remote device {} timed out with {} requests in flight",
+                                remoteDevice.getInstanceNumber(), inFlight);
+                        return;
+                    }
+                    wait(timeLeft);
+                }
+            } finally {
+                closed = true;
+                setFlags(0, flags.length, Flag.DRIVER_ERROR_TIMEOUT, true);
+            }
+        }
+
+        synchronized void completed(Range range, BACnetException e) {
+            if (closed)
+                return;
+            inFlight--;
+            if (e == null)
+                setFlags(range.from, range.to, Flag.VALID, false);
+            else
+                failed(range, e);
+            notifyAll();
+        }
+
+        private void failed(Range range, BACnetException e) {
+
+            final int size = range.size();
+            final boolean sizeProblem = PropertyReader.isSizeProblem(e);
+
+            if (size > 1 && (sizeProblem || isUnrecognizedService(e))) {
+                // smaller requests are sent before all other pending ranges, single WriteProperty requests if the
+                // device doesn't know WritePropertyMultiple
+                logger.debug("request with {} writes to remote device {} failed ({}), splitting request", size,
+                        remoteDevice.getInstanceNumber(), e.getMessage());
+                final int step = sizeProblem ? (size + 1) / 2 : 1;
+                for (int to = range.to; to > range.from; to -= step) {
+                    pending.addFirst(new Range(Math.max(range.from, to - step), to));
+                }
+                return;
+            }
+
+            if (!(e instanceof ErrorAPDUException)) {
+                setFlags(range.from, range.to, getFailureFlag(e), false);
+                return;
+            }
+
+            final BaseError error = ((ErrorAPDUException) e).getApdu().getError();
+            final Flag flag = ConversionUtil.getWriteErrorFlag(error.getError());
+            final int failed = (error instanceof WritePropertyMultipleError)
+                    ? indexOf(writes, range.from, range.to,
+                            getFirstFailedWriteAttempt((WritePropertyMultipleError) error))
+                    : -1;
+
+            if (failed < 0) {
+                setFlags(range.from, range.to, flag, false);
+                return;
+            }
+
+            // the writes before the failed one have been executed, the ones after it have not been tried
+            setFlags(range.from, failed, Flag.VALID, false);
+            flags[failed] = flag;
+            if (failed + 1 < range.to)
+                pending.addFirst(new Range(failed + 1, range.to));
+        }
+
+        private void setFlags(int from, int to, Flag flag, boolean onlyMissing) {
+            for (int i = from; i < to; i++) {
+                if (!onlyMissing || flags[i] == null)
+                    flags[i] = flag;
+            }
+        }
+    }
+
+    private static class RangeConsumer implements ResponseConsumer {
+
+        private final Batch batch;
+        private final Range range;
+
+        RangeConsumer(Batch batch, Range range) {
+            this.batch = batch;
+            this.range = range;
+        }
+
+        @Override
+        public void success(AcknowledgementService ack) {
+            batch.completed(range, null);
+        }
+
+        @Override
+        public void fail(AckAPDU ack) {
+            final BACnetException e;
+            if (ack instanceof com.serotonin.bacnet4j.apdu.Error)
+                e = new ErrorAPDUException((com.serotonin.bacnet4j.apdu.Error) ack);
+            else if (ack instanceof Reject)
+                e = new RejectAPDUException((Reject) ack);
+            else
+                e = new AbortAPDUException((Abort) ack);
+            batch.completed(range, e);
+        }
+
+        @Override
+        public void ex(BACnetException e) {
+            batch.completed(range, e);
+        }
+    }
+
+    /**
+     * Decodes the first failed write attempt of a WritePropertyMultiple error, which isn't accessible in the library.
+     * The error is encoded as choice, the error in context tag 0 and the reference in context tag 1.
+     *
+     * @return the reference of the first failed write attempt or null, if it cannot be decoded
+     */
+    static ObjectPropertyReference getFirstFailedWriteAttempt(WritePropertyMultipleError error) {
+        final ByteQueue queue = new ByteQueue();
+        error.write(queue);
+        try {
+            queue.pop(); // error choice
+            popTag(queue, OPENING_TAG_0);
+            new BACnetError(queue);
+            popTag(queue, CLOSING_TAG_0);
+            popTag(queue, OPENING_TAG_1);
+            final ObjectPropertyReference reference = new ObjectPropertyReference(queue);
+            popTag(queue, CLOSING_TAG_1);
+            return reference;
+        } catch (BACnetException e) {
+            logger.debug("cannot decode WritePropertyMultiple error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void popTag(ByteQueue queue, int tag) throws BACnetException {
+        if (queue.size() == 0 || (queue.pop() & 0xff) != tag)
+            throw new BACnetException("expected tag 0x" + Integer.toHexString(tag));
+    }
+}
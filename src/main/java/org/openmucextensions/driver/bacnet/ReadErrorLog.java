@@ -0,0 +1,118 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
+
+/**
+ * Collects the errors of property reads and logs them in aggregated form, at most once per interval. A device with
+ * many offline points produces a single log line with the number of errors per error code instead of one warning per
+ * property and poll cycle. Single errors are logged at debug level.
+ */
+public class ReadErrorLog {
+
+    private final static Logger logger = LoggerFactory.getLogger(ReadErrorLog.class);
+
+    /** Default minimum time in milliseconds between two aggregated log entries */
+    public final static long DEFAULT_INTERVAL = 60000;
+
+    private final int remoteInstance;
+    private final long interval;
+
+    // number of errors and an example channel by error code (null = no value received), guarded by this
+    private final Map<ErrorCode, ErrorCount> errors = new LinkedHashMap<>();
+    private long lastLog = 0;
+
+    /**
+     * Constructs a new error log.
+     *
+     * @param remoteInstance
+     *            the instance number of the remote device the errors belong to
+     * @param interval
+     *            the minimum time in milliseconds between two log entries
+     */
+    public ReadErrorLog(int remoteInstance, long interval) {
+        this.remoteInstance = remoteInstance;
+        this.interval = interval;
+    }
+
+    /**
+     * Adds a read error.
+     *
+     * @param channelId
+     *            the id of the channel that couldn't be read
+     * @param error
+     *            the error returned by the remote device or <code>null</code>, if no value has been received
+     */
+    public synchronized void add(String channelId, BACnetError error) {
+
+        final ErrorCode errorCode = (error != null) ? error.getErrorCode() : null;
+        logger.debug("error while reading property of channel {} on remote device {}: {}", channelId,
+                remoteInstance, (errorCode != null) ? error : "no value received");
+
+        ErrorCount count = errors.get(errorCode);
+        if (count == null) {
+            count = new ErrorCount(channelId);
+            errors.put(errorCode, count);
+        }
+        count.count++;
+    }
+
+    /**
+     * Logs the errors added since the last log entry, if the interval has elapsed.
+     *
+     * @param now
+     *            the actual time in milliseconds
+     */
+    public synchronized void flush(long now) {
+
+        if (errors.isEmpty() || now - lastLog < interval)
+            return;
+
+        int total = 0;
+        final StringBuilder summary = new StringBuilder();
+        for (Map.Entry<ErrorCode, ErrorCount> entry : errors.entrySet()) {
+            final ErrorCount count = entry.getValue();
+            total += count.count;
+            if (summary.length() > 0)
+                summary.append(", ");
+            summary.append((entry.getKey() != null) ? entry.getKey().toString() : "no value").append(": ")
+                    .append(count.count).append(" (e.g. channel ").append(count.channelId).append(')');
+        }
+        logger.warn("{} property read errors on remote device {}: {}", total, remoteInstance, summary);
+
+        errors.clear();
+        lastLog = now;
+    }
+
+    private static class ErrorCount {
+
+        private final String channelId;
+        private int count = 0;
+
+        ErrorCount(String channelId) {
+            this.channelId = channelId;
+        }
+    }
+}
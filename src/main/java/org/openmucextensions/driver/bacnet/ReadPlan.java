@@ -0,0 +1,151 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+
+import com.serotonin.bacnet4j.obj.ObjectProperties;
+import com.serotonin.bacnet4j.obj.PropertyTypeDefinition;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Compiled form of a container list of a read call. The plan holds for each container (by position) the property
+ * reference to read and the converter of the value, or the flag to report if the channel address cannot be read. It
+ * is returned as container list handle, so that subsequent reads of the same container list don't have to parse
+ * channel addresses or look up object handles and type definitions again.
+ */
+public class ReadPlan {
+
+    private final String[] channelAddresses;
+    private final ObjectPropertyReference[] references;
+    private final ValueConverter[] converters;
+    private final Flag[] errors;
+    // container positions by object, in the order of the property references
+    private final Map<ObjectIdentifier, List<Integer>> positions = new LinkedHashMap<>();
+
+    private int[] readOrder = null;
+    private int size = 0;
+    private int readable = 0;
+    private boolean unresolved = false;
+
+    ReadPlan(int capacity) {
+        channelAddresses = new String[capacity];
+        references = new ObjectPropertyReference[capacity];
+        converters = new ValueConverter[capacity];
+        errors = new Flag[capacity];
+    }
+
+    /**
+     * Appends a readable channel to this plan.
+     */
+    void add(String channelAddress, ObjectIdentifier objectIdentifier, PropertyIdentifier propertyIdentifier) {
+
+        final PropertyTypeDefinition typeDefinition = ObjectProperties
+                .getPropertyTypeDefinition(objectIdentifier.getObjectType(), propertyIdentifier);
+
+        channelAddresses[size] = channelAddress;
+        references[size] = new ObjectPropertyReference(objectIdentifier, propertyIdentifier);
+        // properties unknown to BACnet4J are reported as string
+        converters[size] = (typeDefinition != null) ? ConversionUtil.getConverter(typeDefinition)
+                : ValueConverters.STRING;
+        positions.computeIfAbsent(objectIdentifier, oid -> new ArrayList<>()).add(size);
+        readOrder = null;
+        readable++;
+        size++;
+    }
+
+    /**
+     * Appends a channel that cannot be read to this plan.
+     */
+    void addError(String channelAddress, Flag error) {
+        channelAddresses[size] = channelAddress;
+        errors[size] = error;
+        if (error == Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND)
+            unresolved = true;
+        size++;
+    }
+
+    /**
+     * Returns true if this plan has been compiled for the specified container list. Plans containing unresolved
+     * object names are never reused, so that objects added to the remote device are picked up by the next read.
+     * 
+     * @param containers
+     *            the container list of the read call
+     * @return true if the plan can be used to read the containers
+     */
+    public boolean isCompiledFor(List<ChannelRecordContainer> containers) {
+
+        if (unresolved || containers.size() != size)
+            return false;
+
+        for (int i = 0; i < size; i++) {
+            if (!channelAddresses[i].equals(containers.get(i).getChannelAddress()))
+                return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the container positions in the order of the property references. Results of the references are reported
+     * in this order by {@link PropertyReader}, also if a part of the references had to be split, so the n-th result
+     * read belongs to the container at position <code>getReadOrder()[n]</code>.
+     * 
+     * @return the container positions of all readable channels
+     */
+    public int[] getReadOrder() {
+        if (readOrder == null) {
+            final int[] order = new int[readable];
+            int n = 0;
+            for (List<Integer> objectPositions : positions.values()) {
+                for (Integer position : objectPositions) {
+                    order[n++] = position;
+                }
+            }
+            readOrder = order;
+        }
+        return readOrder;
+    }
+
+    public ObjectPropertyReference getReference(int index) {
+        return references[index];
+    }
+
+    public ValueConverter getConverter(int index) {
+        return converters[index];
+    }
+
+    /**
+     * Gets the flag to report for the container at the specified position.
+     * 
+     * @return the flag or <code>null</code>, if the channel can be read
+     */
+    public Flag getError(int index) {
+        return errors[index];
+    }
+}
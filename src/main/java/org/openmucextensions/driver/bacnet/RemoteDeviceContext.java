@@ -0,0 +1,91 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+
+/**
+ * State of a remote device that is shared by all connections to the device over the same local device. Instances are
+ * obtained from the {@link RemoteDeviceRegistry}.
+ */
+public class RemoteDeviceContext {
+
+    private final LocalDevice localDevice;
+    private final int remoteInstance;
+    private final ObjectCatalog objectCatalog = new ObjectCatalog();
+    private final InFlightReads inFlightReads = new InFlightReads();
+    private ChunkSizeController chunkSizeController = null;
+
+    // number of connections using this context, guarded by the registry
+    int references = 0;
+
+    RemoteDeviceContext(LocalDevice localDevice, int remoteInstance) {
+        this.localDevice = localDevice;
+        this.remoteInstance = remoteInstance;
+    }
+
+    /**
+     * Gets the local device the remote device is accessed with.
+     *
+     * @return the local device
+     */
+    public LocalDevice getLocalDevice() {
+        return localDevice;
+    }
+
+    /**
+     * Gets the instance number of the remote device.
+     *
+     * @return the remote device instance number
+     */
+    public int getRemoteInstance() {
+        return remoteInstance;
+    }
+
+    /**
+     * Gets the shared object catalog of the remote device.
+     *
+     * @return the object catalog
+     */
+    public ObjectCatalog getObjectCatalog() {
+        return objectCatalog;
+    }
+
+    /**
+     * Gets the registry of the property reads outstanding on the remote device.
+     *
+     * @return the in-flight reads
+     */
+    public InFlightReads getInFlightReads() {
+        return inFlightReads;
+    }
+
+    /**
+     * Gets the shared controller of the number of property references per read request. The controller is created
+     * with the capabilities of the specified remote device on the first call.
+     *
+     * @param remoteDevice
+     *            the remote device instance
+     * @return the chunk size controller
+     */
+    public synchronized ChunkSizeController getChunkSizeController(RemoteDevice remoteDevice) {
+        if (chunkSizeController == null)
+            chunkSizeController = ChunkSizeController.forDevice(remoteDevice);
+        return chunkSizeController;
+    }
+}
@@ -0,0 +1,123 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.LocalDevice;
+
+/**
+ * A singleton registry of the shared state of remote devices ({@link RemoteDeviceContext}), keyed by local device and
+ * remote device instance number. Contexts are reference counted: each connection obtains the context of its remote
+ * device and dismisses it on disconnect, and the context is dropped when the last connection has dismissed it.
+ */
+public class RemoteDeviceRegistry {
+
+    private RemoteDeviceRegistry() { } // private constructor for singleton
+
+    private static RemoteDeviceRegistry INSTANCE = null;
+
+    private final static Logger logger = LoggerFactory.getLogger(RemoteDeviceRegistry.class);
+    private final Map<Key, RemoteDeviceContext> contexts = new HashMap<>();
+
+    /**
+     * Gets a single <code>RemoteDeviceRegistry</code> instance.
+     *
+     * @return a single <code>RemoteDeviceRegistry</code> instance
+     */
+    public static RemoteDeviceRegistry getInstance() {
+        if (INSTANCE == null) {
+            synchronized (RemoteDeviceRegistry.class) {
+                if (INSTANCE == null)
+                    INSTANCE = new RemoteDeviceRegistry();
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the context of the specified remote device. The context might be created or a shared instance may be
+     * returned. The context must be dismissed if not used any more by calling
+     * {@link #dismissContext(RemoteDeviceContext)}.
+     *
+     * @param localDevice
+     *            the local device the remote device is accessed with
+     * @param remoteInstance
+     *            the instance number of the remote device
+     * @return the context of the remote device
+     */
+    public RemoteDeviceContext obtainContext(LocalDevice localDevice, int remoteInstance) {
+        Objects.requireNonNull(localDevice, "local device instance must not be null");
+        synchronized (contexts) {
+            final Key key = new Key(localDevice, remoteInstance);
+            RemoteDeviceContext context = contexts.get(key);
+            if (context == null) {
+                context = new RemoteDeviceContext(localDevice, remoteInstance);
+                contexts.put(key, context);
+                logger.debug("created context of remote device {}", remoteInstance);
+            }
+            context.references++;
+            return context;
+        }
+    }
+
+    /**
+     * Dismisses the usage of a context. If no references are left, the context is removed from the registry.
+     *
+     * @param context
+     *            the context to dismiss
+     */
+    public void dismissContext(RemoteDeviceContext context) {
+        synchronized (contexts) {
+            final Key key = new Key(context.getLocalDevice(), context.getRemoteInstance());
+            if (contexts.get(key) != context)
+                return;
+            if (--context.references <= 0) {
+                contexts.remove(key);
+                logger.debug("removed context of remote device {}", context.getRemoteInstance());
+            }
+        }
+    }
+
+    private static class Key {
+        private final LocalDevice localDevice;
+        private final int remoteInstance;
+
+        Key(LocalDevice localDevice, int remoteInstance) {
+            this.localDevice = localDevice;
+            this.remoteInstance = remoteInstance;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(localDevice) + remoteInstance;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return localDevice == other.localDevice && remoteInstance == other.remoteInstance;
+        }
+    }
+}
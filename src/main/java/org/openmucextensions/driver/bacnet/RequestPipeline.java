@@ -0,0 +1,147 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.ServiceFuture;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.service.acknowledgement.AcknowledgementService;
+import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
+
+/**
+ * Sends confirmed requests to a remote device while keeping a bounded number of them outstanding at the same time.
+ * Responses are handled in the order of the items, regardless of the order they arrive in. Failed items may be
+ * replaced by a list of new items (e.g. smaller partitions of the original one), which take the place of the failed
+ * item: they are sent before any other pending item, and the responses of later items are held back until the new
+ * items have been handled.
+ *
+ * @param <T>
+ *            type of the work items a request is created from
+ */
+public class RequestPipeline<T> {
+
+    /**
+     * Callback interface to create the requests of a {@link RequestPipeline} and to process their results.
+     */
+    public interface Handler<T> {
+
+        /**
+         * Creates the request for the given item.
+         */
+        ConfirmedRequestService createRequest(T item);
+
+        /**
+         * Called with the acknowledgement of the request created for the given item.
+         */
+        void success(T item, AcknowledgementService ack) throws BACnetException;
+
+        /**
+         * Called if the request for the given item failed. The returned items will be sent instead of the failed
+         * one. To abort the whole pipeline, the exception may be rethrown.
+         *
+         * @return items to send instead of the failed one, never <code>null</code>
+         */
+        List<T> failure(T item, BACnetException e) throws BACnetException;
+    }
+
+    private final LocalDevice localDevice;
+    private final RemoteDevice remoteDevice;
+    private final int maxInFlight;
+    private final Handler<T> handler;
+
+    /**
+     * Constructs a new pipeline for the specified remote device.
+     *
+     * @param localDevice
+     *            the local device to send requests with
+     * @param remoteDevice
+     *            the remote device the requests will be sent to
+     * @param maxInFlight
+     *            maximum number of outstanding requests (at least 1)
+     * @param handler
+     *            the handler creating requests and processing responses
+     */
+    public RequestPipeline(LocalDevice localDevice, RemoteDevice remoteDevice, int maxInFlight, Handler<T> handler) {
+        this.localDevice = Objects.requireNonNull(localDevice, "local device must not be null");
+        this.remoteDevice = Objects.requireNonNull(remoteDevice, "remote device must not be null");
+        this.handler = Objects.requireNonNull(handler, "handler must not be null");
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Sends a request for each of the specified items and blocks until all of them have been handled.
+     *
+     * @param items
+     *            the items to send requests for
+     * @throws BACnetException
+     *             if the handler rethrows an exception of a failed request
+     */
+    public void execute(Collection<T> items) throws BACnetException {
+
+        // items in the order they are handled, the requests of the first ones may have been sent already
+        final Deque<Slot> slots = new ArrayDeque<>(items.size());
+        for (T item : items) {
+            slots.add(new Slot(item));
+        }
+        int inFlight = 0;
+
+        while (!slots.isEmpty()) {
+
+            // the sent slots are not necessarily a prefix after a retry, but there are at most maxInFlight of them
+            for (Slot slot : slots) {
+                if (inFlight >= maxInFlight)
+                    break;
+                if (slot.future == null) {
+                    slot.future = localDevice.send(remoteDevice, handler.createRequest(slot.item));
+                    inFlight++;
+                }
+            }
+
+            final Slot next = slots.poll();
+            inFlight--;
+            final AcknowledgementService ack;
+            try {
+                ack = next.future.get();
+            } catch (BACnetException e) {
+                final List<T> retries = handler.failure(next.item, e);
+                // the retries take the place of the failed item
+                for (int i = retries.size() - 1; i >= 0; i--) {
+                    slots.addFirst(new Slot(retries.get(i)));
+                }
+                continue;
+            }
+            handler.success(next.item, ack);
+        }
+    }
+
+    private class Slot {
+        private final T item;
+        // null until the request has been sent
+        private ServiceFuture future = null;
+
+        Slot(T item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import org.openmuc.framework.config.ScanException;
+
+/**
+ * Signals that a channel scan failed after a part of the objects has been scanned. The scan can be resumed by passing
+ * the resume index as setting <i>startIndex</i> to the next scan.
+ */
+public class ResumableScanException extends ScanException {
+
+    private static final long serialVersionUID = -4211843457261938370L;
+
+    private final int resumeIndex;
+
+    /**
+     * Constructs a new exception.
+     *
+     * @param message
+     *            the detail message
+     * @param cause
+     *            the cause of the failure
+     * @param resumeIndex
+     *            index in the object list of the first object that hasn't been scanned
+     */
+    public ResumableScanException(String message, Throwable cause, int resumeIndex) {
+        super(message, cause);
+        this.resumeIndex = resumeIndex;
+    }
+
+    /**
+     * Gets the index in the object list of the first object that hasn't been scanned.
+     *
+     * @return the index to resume the scan at
+     */
+    public int getResumeIndex() {
+        return resumeIndex;
+    }
+}
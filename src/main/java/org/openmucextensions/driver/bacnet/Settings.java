@@ -42,6 +42,46 @@ public class Settings extends HashMap<String, String> {
     public final static String SETTING_WRITE_PRIORITY = "writePriority";
     /** Setting-name for time synchronization request flag */
     public final static String SETTING_TIME_SYNC = "timeSync";
+    /** Setting-name for the maximum number of requests outstanding at the same time per remote device */
+    public final static String SETTING_MAX_REQUESTS_IN_FLIGHT = "maxRequestsInFlight";
+    /** Setting-name for the time in milliseconds to wait for the acknowledgements of a write */
+    public final static String SETTING_WRITE_TIMEOUT = "writeTimeout";
+    /** Setting-name for the time in milliseconds writes are held back to send only the latest value (0 = off) */
+    public final static String SETTING_WRITE_COALESCE_WINDOW = "writeCoalesceWindow";
+    /** Setting-name for the time in milliseconds after which an unchanged value is written again (0 = always write) */
+    public final static String SETTING_WRITE_REFRESH_INTERVAL = "writeRefreshInterval";
+    /** Setting-name for the maximum difference of real values that counts as unchanged while suppressing writes */
+    public final static String SETTING_WRITE_DEADBAND = "writeDeadband";
+    /** Setting-name for the directory of the persistent object catalog */
+    public final static String SETTING_CATALOG_DIRECTORY = "catalogDirectory";
+    /** Setting-name for the time in milliseconds to wait for I-Have answers when resolving object names (0 = off) */
+    public final static String SETTING_WHO_HAS_TIMEOUT = "whoHasTimeout";
+    /** Setting-name for the maximum number of unknown object names of a call that are resolved with Who-Has */
+    public final static String SETTING_WHO_HAS_MAX_NAMES = "whoHasMaxNames";
+    /** Setting-name for the object list index a channel scan starts at */
+    public final static String SETTING_SCAN_START_INDEX = "startIndex";
+    /** Setting-name for the object types a channel scan is restricted to (comma separated) */
+    public final static String SETTING_SCAN_OBJECT_TYPES = "objectTypes";
+    /** Setting-name for the range of instance numbers a channel scan is restricted to (e.g. 100-199) */
+    public final static String SETTING_SCAN_INSTANCE_RANGE = "instanceRange";
+    /** Setting-name for the object name glob a channel scan is restricted to (wildcards * and ?) */
+    public final static String SETTING_SCAN_NAME_PATTERN = "namePattern";
+    /** Setting-name for the object name regular expression a channel scan is restricted to */
+    public final static String SETTING_SCAN_NAME_REGEX = "nameRegex";
+    /** Setting-name for the maximum age in milliseconds of COV values returned by read (0 = off) */
+    public final static String SETTING_COV_CACHE_MAX_AGE = "covCacheMaxAge";
+    /** Setting-name for the maximum number of COV records waiting to be passed to the listener */
+    public final static String SETTING_COV_QUEUE_CAPACITY = "covQueueCapacity";
+    /** Setting-name for the lifetime in seconds of COV subscriptions, renewed before expiration (0 = indefinite) */
+    public final static String SETTING_COV_LIFETIME = "covLifetime";
+    /** Setting-name for the flag whether COV notifications have to be confirmed by the driver (default true) */
+    public final static String SETTING_COV_CONFIRMED_NOTIFICATIONS = "covConfirmedNotifications";
+    /** Setting-name for the time in milliseconds between two reconciliations of the COV values (0 = off) */
+    public final static String SETTING_COV_RECONCILE_INTERVAL = "covReconcileInterval";
+    /** Setting-name for the time in milliseconds between two reads of the trend log channels */
+    public final static String SETTING_TREND_LOG_INTERVAL = "trendLogInterval";
+    /** Setting-name for the flag to always read the object list of the remote device by index */
+    public final static String SETTING_INDEXED_OBJECT_LIST = "indexedObjectList";
 
     /** Setting-name for the local UDP port which has to be used (for local BACnet server) */
     @Deprecated
@@ -0,0 +1,235 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel executing a large number of delayed tasks on a single thread. The wheel is an array of buckets,
+ * each covering one tick. A task is put into the bucket of its deadline together with the number of full wheel
+ * rotations left until it is due, so scheduling and cancelling are constant time operations regardless of the number
+ * of tasks. Tasks are executed with the precision of one tick and must not block.
+ */
+public class TimingWheel {
+
+    private final static Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickDuration;
+    private final Deque<Timeout>[] buckets;
+    private final int mask;
+    private final long startTime;
+
+    // tasks scheduled since the last tick, moved to their buckets by the wheel thread
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    // last tick that has been processed, accessed by the wheel thread only
+    private long tick = 0;
+
+    private Thread thread = null;
+    private volatile boolean running = false;
+
+    /**
+     * Constructs a new timing wheel.
+     *
+     * @param tickDuration
+     *            the duration of a tick in milliseconds
+     * @param ticksPerWheel
+     *            the number of buckets, will be rounded up to a power of two
+     * @param startTime
+     *            the time in milliseconds of tick 0
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public TimingWheel(long tickDuration, int ticksPerWheel, long startTime) {
+        if (tickDuration <= 0)
+            throw new IllegalArgumentException("tick duration must be positive");
+        if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30))
+            throw new IllegalArgumentException("invalid number of ticks per wheel " + ticksPerWheel);
+
+        int size = 1;
+        while (size < ticksPerWheel)
+            size <<= 1;
+
+        this.tickDuration = tickDuration;
+        this.buckets = new Deque[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Starts a daemon thread advancing the wheel once per tick.
+     *
+     * @param name
+     *            the name of the thread
+     */
+    public synchronized void start(String name) {
+        if (thread != null)
+            return;
+        running = true;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the thread of the wheel. Pending tasks will not be executed.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task
+     *            the task to execute
+     * @param delay
+     *            the delay in milliseconds
+     * @return the handle of the scheduled task
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        return scheduleAt(task, System.currentTimeMillis() + Math.max(0, delay));
+    }
+
+    /**
+     * Schedules a task for the specified time.
+     *
+     * @param task
+     *            the task to execute
+     * @param deadline
+     *            the time in milliseconds the task is due
+     * @return the handle of the scheduled task
+     */
+    public Timeout scheduleAt(Runnable task, long deadline) {
+        final Timeout timeout = new Timeout(Objects.requireNonNull(task, "task must not be null"), deadline);
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Processes all ticks up to the specified time and executes the due tasks. Called by the thread of the wheel;
+     * must not be called concurrently.
+     *
+     * @param now
+     *            the actual time in milliseconds
+     */
+    void advance(long now) {
+        final long lastTick = (now - startTime) / tickDuration;
+        while (tick < lastTick) {
+            tick++;
+            transferScheduled();
+            expire(buckets[(int) (tick & mask)]);
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.cancelled)
+                continue;
+            // tasks that are already due are executed with the actual tick
+            final long dueTick = Math.max(tick, (timeout.deadline - startTime + tickDuration - 1) / tickDuration);
+            timeout.rounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Deque<Timeout> bucket) {
+        final Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            final Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            }
+            else if (timeout.rounds <= 0) {
+                iterator.remove();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.warn("timing wheel task failed", e);
+                }
+            }
+            else {
+                timeout.rounds--;
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                advance(System.currentTimeMillis());
+                final long nextTick = startTime + (tick + 1) * tickDuration;
+                final long sleep = nextTick - System.currentTimeMillis();
+                if (sleep > 0)
+                    Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private volatile boolean cancelled = false;
+        // full rotations of the wheel left, accessed by the wheel thread only
+        private long rounds;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Cancels the task. The task will not be executed, unless it is already running.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Persists the sequence number of the last record read from each trend log of a remote device, so that trend log
+ * channels continue after a restart where they stopped. The cursors of a device are stored as JSON file in a
+ * directory, next to the object catalog of the device.
+ */
+public class TrendLogCursorStore {
+
+    private final static Logger logger = LoggerFactory.getLogger(TrendLogCursorStore.class);
+
+    private final Path directory;
+    private final Gson gson = new Gson();
+
+    /**
+     * Constructs a new store for the specified directory. The directory will be created on the first save, if it
+     * doesn't exist.
+     *
+     * @param directory
+     *            the directory containing the cursor files
+     */
+    public TrendLogCursorStore(Path directory) {
+        this.directory = Objects.requireNonNull(directory, "directory must not be null");
+    }
+
+    /**
+     * Loads the cursors of the specified remote device.
+     *
+     * @param deviceInstance
+     *            the instance number of the remote device
+     * @return the sequence numbers of the last records read by trend log, empty if there are no (readable) cursors
+     */
+    public Map<ObjectIdentifier, Long> load(int deviceInstance) {
+
+        final Map<ObjectIdentifier, Long> cursors = new HashMap<>();
+        final Path file = getFile(deviceInstance);
+        if (!Files.isReadable(file))
+            return cursors;
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            final Map<String, Long> entries = gson.fromJson(reader, new TypeToken<Map<String, Long>>() {
+            }.getType());
+            if (entries != null) {
+                for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                    final String[] id = entry.getKey().split(":");
+                    cursors.put(new ObjectIdentifier(new ObjectType(Integer.parseInt(id[0])), Integer.parseInt(id[1])),
+                            entry.getValue());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("cannot read trend log cursor file {}: {}", file, e.getMessage());
+            cursors.clear();
+        }
+        return cursors;
+    }
+
+    /**
+     * Saves the cursors of the specified remote device. Existing cursors will be replaced.
+     *
+     * @param deviceInstance
+     *            the instance number of the remote device
+     * @param cursors
+     *            the sequence numbers of the last records read by trend log
+     * @throws IOException
+     *             if the cursor file cannot be written
+     */
+    public void save(int deviceInstance, Map<ObjectIdentifier, Long> cursors) throws IOException {
+
+        final Map<String, Long> entries = new LinkedHashMap<>();
+        for (Map.Entry<ObjectIdentifier, Long> entry : cursors.entrySet()) {
+            final ObjectIdentifier id = entry.getKey();
+            entries.put(id.getObjectType().intValue() + ":" + id.getInstanceNumber(), entry.getValue());
+        }
+
+        Files.createDirectories(directory);
+
+        // write to a temporary file first, so that a crash cannot leave a corrupt file
+        final Path file = getFile(deviceInstance);
+        final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                gson.toJson(entries, writer);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Path getFile(int deviceInstance) {
+        return directory.resolve("trendlogs-" + deviceInstance + ".json");
+    }
+}
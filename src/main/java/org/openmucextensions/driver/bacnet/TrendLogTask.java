@@ -0,0 +1,228 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TimerTask;
+
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.data.Record;
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+import org.openmuc.framework.driver.spi.RecordsReceivedListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyAck;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadRangeAck;
+import com.serotonin.bacnet4j.service.confirmed.ReadPropertyRequest;
+import com.serotonin.bacnet4j.service.confirmed.ReadRangeRequest;
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.LogRecord;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.SignedInteger;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+/**
+ * Reads the new records of trend log objects with ReadRange and delivers them with their original timestamps to a
+ * {@link RecordsReceivedListener}. The position in each log is kept as the sequence number of the last record read,
+ * which is persisted with a {@link TrendLogCursorStore} if one is set. Logs without a cursor are read from their
+ * oldest record, as are logs whose records after the cursor have already been overwritten.
+ */
+public class TrendLogTask extends TimerTask {
+
+    private final static Logger logger = LoggerFactory.getLogger(TrendLogTask.class);
+
+    /** Default time between two reads of the trend logs in milliseconds */
+    public final static long DEFAULT_INTERVAL = 60000;
+
+    /** Maximum number of records requested with a single ReadRange request */
+    public final static int MAX_RECORDS_PER_REQUEST = 500;
+
+    private final LocalDevice localDevice;
+    private final RemoteDevice remoteDevice;
+    private final Map<ObjectIdentifier, List<ChannelRecordContainer>> logs;
+    private final RecordsReceivedListener listener;
+    private final TrendLogCursorStore cursorStore;
+
+    // sequence number of the last record read by log
+    private final Map<ObjectIdentifier, Long> cursors;
+    // logs that cannot be read by sequence number
+    private final Set<ObjectIdentifier> unsupported = new HashSet<>();
+
+    /**
+     * Constructs a new task.
+     *
+     * @param localDevice
+     *            the local device instance to communicate with
+     * @param remoteDevice
+     *            the remote device instance with the trend logs
+     * @param logs
+     *            the containers of the trend log channels by trend log object, the records of a log are delivered to
+     *            all of its channels
+     * @param listener
+     *            the listener to deliver the records to
+     * @param cursorStore
+     *            the store to persist the cursors with or <code>null</code>, if cursors are only kept in memory
+     */
+    public TrendLogTask(LocalDevice localDevice, RemoteDevice remoteDevice,
+            Map<ObjectIdentifier, List<ChannelRecordContainer>> logs, RecordsReceivedListener listener,
+            TrendLogCursorStore cursorStore) {
+        this.localDevice = Objects.requireNonNull(localDevice, "local device instance must not be null");
+        this.remoteDevice = Objects.requireNonNull(remoteDevice, "remote device instance must not be null");
+        this.logs = Objects.requireNonNull(logs, "logs must not be null");
+        this.listener = Objects.requireNonNull(listener, "listener must not be null");
+        this.cursorStore = cursorStore;
+        this.cursors = (cursorStore != null) ? cursorStore.load(remoteDevice.getInstanceNumber()) : new HashMap<>();
+    }
+
+    @Override
+    public void run() {
+        for (Map.Entry<ObjectIdentifier, List<ChannelRecordContainer>> log : logs.entrySet()) {
+            if (unsupported.contains(log.getKey()))
+                continue;
+            try {
+                readNewRecords(log.getKey(), log.getValue());
+            } catch (BACnetException e) {
+                logger.warn("cannot read trend log {} of remote device {}: {}", log.getKey(),
+                        remoteDevice.getInstanceNumber(), e.getMessage());
+            }
+        }
+    }
+
+    private void readNewRecords(ObjectIdentifier log, List<ChannelRecordContainer> containers)
+            throws BACnetException {
+
+        // the total record count is the sequence number of the newest record
+        final long total = ((UnsignedInteger) ((ReadPropertyAck) localDevice
+                .send(remoteDevice, new ReadPropertyRequest(log, PropertyIdentifier.totalRecordCount)).get())
+                        .getValue()).longValue();
+
+        Long cursor = cursors.get(log);
+        if (cursor != null && total < cursor) {
+            logger.info("trend log {} of remote device {} has been reset, reading all records", log,
+                    remoteDevice.getInstanceNumber());
+            cursor = null;
+        }
+        if (cursor != null && total == cursor)
+            return;
+
+        // sequence number of the last record already delivered when reading by position after a loss
+        long delivered = 0;
+        boolean moreItems = true;
+        while (moreItems) {
+            final SignedInteger count = new SignedInteger(MAX_RECORDS_PER_REQUEST);
+            final ReadRangeRequest request = (cursor == null)
+                    ? new ReadRangeRequest(log, PropertyIdentifier.logBuffer, null,
+                            new ReadRangeRequest.ByPosition(new UnsignedInteger(1), count))
+                    : new ReadRangeRequest(log, PropertyIdentifier.logBuffer, null,
+                            new ReadRangeRequest.BySequenceNumber(new UnsignedInteger(cursor + 1), count));
+            final ReadRangeAck ack = (ReadRangeAck) localDevice.send(remoteDevice, request).get();
+
+            final int itemCount = ack.getItemCount().intValue();
+            if (itemCount == 0 && cursor != null && total > cursor) {
+                // the records after the cursor have been overwritten, continue with the oldest one still in the log
+                logger.warn("records after sequence number {} of trend log {} of remote device {} have been lost, "
+                        + "reading from the oldest record", cursor, log, remoteDevice.getInstanceNumber());
+                delivered = cursor;
+                cursor = null;
+                continue;
+            }
+            if (itemCount == 0)
+                return;
+            if (ack.getFirstSequenceNumber() == null) {
+                logger.warn("trend log {} of remote device {} doesn't provide sequence numbers and will be ignored",
+                        log, remoteDevice.getInstanceNumber());
+                unsupported.add(log);
+                return;
+            }
+
+            final List<ChannelRecordContainer> records = new ArrayList<>(itemCount * containers.size());
+            long sequenceNumber = ack.getFirstSequenceNumber().longValue();
+            for (Encodable item : ack.getItemData()) {
+                if (sequenceNumber++ <= delivered)
+                    continue;
+                if (item instanceof LogRecord) {
+                    final Record record = toRecord((LogRecord) item);
+                    if (record != null) {
+                        for (ChannelRecordContainer container : containers) {
+                            final ChannelRecordContainer copy = container.copy();
+                            copy.setRecord(record);
+                            records.add(copy);
+                        }
+                    }
+                }
+            }
+            if (!records.isEmpty())
+                listener.newRecords(records);
+
+            cursor = ack.getFirstSequenceNumber().longValue() + itemCount - 1;
+            cursors.put(log, cursor);
+            saveCursors();
+
+            logger.trace("read {} records of trend log {} of remote device {} up to sequence number {}", itemCount,
+                    log, remoteDevice.getInstanceNumber(), cursor);
+            moreItems = ack.getResultFlags().isMoreItems();
+        }
+    }
+
+    private void saveCursors() {
+        if (cursorStore == null)
+            return;
+        try {
+            cursorStore.save(remoteDevice.getInstanceNumber(), cursors);
+        } catch (IOException e) {
+            logger.warn("cannot save trend log cursors of remote device {}: {}", remoteDevice.getInstanceNumber(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a trend log record. Records without a value (status changes, time changes and empty records) are
+     * skipped.
+     *
+     * @param logRecord
+     *            the trend log record
+     * @return the record with the timestamp of the log record or <code>null</code>, if the record has no value
+     */
+    static Record toRecord(LogRecord logRecord) {
+
+        final long timestamp = logRecord.getTimestamp().getGC().getTimeInMillis();
+
+        switch (logRecord.getChoiceType()) {
+        case 0: // log status
+        case 7: // null
+        case 9: // time change
+            return null;
+        case 8:
+            return new Record(null, timestamp, ConversionUtil.getReadErrorFlag(logRecord.getBACnetError()));
+        default:
+            final Encodable datum = logRecord.getEncodable();
+            return new Record(ValueConverters.forType(datum.getClass()).convert(datum), timestamp, Flag.VALID);
+        }
+    }
+}
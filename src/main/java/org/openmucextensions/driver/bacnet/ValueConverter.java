@@ -0,0 +1,46 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import org.openmuc.framework.data.Value;
+import org.openmuc.framework.data.ValueType;
+
+import com.serotonin.bacnet4j.type.Encodable;
+
+/**
+ * Converts a BACnet value of a known type to its OpenMUC representation. Converters are selected once per property
+ * type from the {@link ValueConverters} registry, so that a conversion doesn't have to look up the type mapping
+ * again.
+ */
+public interface ValueConverter {
+
+    /**
+     * Converts the specified BACnet value.
+     * 
+     * @param value
+     *            the BACnet value (must be an instance of the type the converter has been selected for)
+     * @return the OpenMUC representation of the value
+     */
+    Value convert(Encodable value);
+
+    /**
+     * Gets the type of the converted values.
+     * 
+     * @return the OpenMUC value type
+     */
+    ValueType getValueType();
+}
@@ -0,0 +1,244 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openmuc.framework.data.BooleanValue;
+import org.openmuc.framework.data.DoubleValue;
+import org.openmuc.framework.data.FloatValue;
+import org.openmuc.framework.data.IntValue;
+import org.openmuc.framework.data.LongValue;
+import org.openmuc.framework.data.StringValue;
+import org.openmuc.framework.data.Value;
+import org.openmuc.framework.data.ValueType;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.enumerated.BinaryPV;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.BitString;
+import com.serotonin.bacnet4j.type.primitive.Boolean;
+import com.serotonin.bacnet4j.type.primitive.CharacterString;
+import com.serotonin.bacnet4j.type.primitive.Double;
+import com.serotonin.bacnet4j.type.primitive.Enumerated;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.type.primitive.SignedInteger;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+/**
+ * Registry of the converters from BACnet values to OpenMUC values. Each supported BACnet type has a dedicated
+ * converter; subclasses of a supported type (e.g. the enumerations of BACnet4J) use the converter of their nearest
+ * registered superclass. Values of other types are converted to their string representation.
+ * <p>
+ * Enumerations and bit strings are converted to numbers only if they are the present value of an object. Other
+ * properties such as eventState, reliability, units or statusFlags keep their string representation (e.g.
+ * "normal"), which is what channels of these properties have always delivered.
+ */
+public abstract class ValueConverters {
+    private ValueConverters() {}
+
+    /** Converter for values of types without a dedicated converter */
+    public static final ValueConverter STRING = new ToStringConverter();
+
+    private static final ValueConverter ENUMERATED = new EnumeratedConverter();
+    private static final ValueConverter BIT_STRING = new BitStringConverter();
+
+    private static final Map<Class<? extends Encodable>, ValueConverter> CONVERTERS;
+
+    static {
+        CONVERTERS = new HashMap<Class<? extends Encodable>, ValueConverter>();
+        CONVERTERS.put(Real.class, new RealConverter());
+        CONVERTERS.put(Double.class, new DoubleConverter());
+        CONVERTERS.put(BinaryPV.class, new BinaryPVConverter());
+        CONVERTERS.put(Boolean.class, new BooleanConverter());
+        CONVERTERS.put(UnsignedInteger.class, new UnsignedIntegerConverter());
+        CONVERTERS.put(SignedInteger.class, new SignedIntegerConverter());
+        CONVERTERS.put(Enumerated.class, ENUMERATED);
+        CONVERTERS.put(BitString.class, BIT_STRING);
+        CONVERTERS.put(CharacterString.class, new CharacterStringConverter());
+    }
+
+    /**
+     * Gets the converter for values of the specified BACnet type.
+     * 
+     * @param bacnetType
+     *            the class of the BACnet values
+     * @return the converter of the type or of its nearest registered superclass, {@link #STRING} if there is none
+     */
+    public static ValueConverter forType(Class<? extends Encodable> bacnetType) {
+        for (Class<?> type = bacnetType; type != null; type = type.getSuperclass()) {
+            final ValueConverter converter = CONVERTERS.get(type);
+            if (converter != null)
+                return converter;
+        }
+        return STRING;
+    }
+
+    /**
+     * Gets the converter for values of the specified property.
+     * 
+     * @param propertyIdentifier
+     *            the property the values are read from
+     * @param bacnetType
+     *            the class of the BACnet values
+     * @return the converter of the type, {@link #STRING} for enumerations and bit strings other than the present
+     *         value
+     */
+    public static ValueConverter forProperty(PropertyIdentifier propertyIdentifier,
+            Class<? extends Encodable> bacnetType) {
+        final ValueConverter converter = forType(bacnetType);
+        if ((converter == ENUMERATED || converter == BIT_STRING)
+                && !PropertyIdentifier.presentValue.equals(propertyIdentifier))
+            return STRING;
+        return converter;
+    }
+
+    private static final class RealConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new FloatValue(((Real) value).floatValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.FLOAT;
+        }
+    }
+
+    private static final class DoubleConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new DoubleValue(((Double) value).doubleValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.DOUBLE;
+        }
+    }
+
+    private static final class BinaryPVConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new BooleanValue(((BinaryPV) value).intValue() != 0);
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.BOOLEAN;
+        }
+    }
+
+    private static final class BooleanConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new BooleanValue(((Boolean) value).booleanValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.BOOLEAN;
+        }
+    }
+
+    private static final class UnsignedIntegerConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new IntValue(((UnsignedInteger) value).intValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.INTEGER;
+        }
+    }
+
+    private static final class SignedIntegerConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new IntValue(((SignedInteger) value).intValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.INTEGER;
+        }
+    }
+
+    /**
+     * Converts enumerations to their numeric value.
+     */
+    private static final class EnumeratedConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new IntValue(((Enumerated) value).intValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.INTEGER;
+        }
+    }
+
+    /**
+     * Converts bit strings to a bit mask, the first bit of the string is the least significant bit of the mask. Bits
+     * beyond the 64th are ignored.
+     */
+    private static final class BitStringConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            final boolean[] bits = ((BitString) value).getValue();
+            final int length = Math.min(bits.length, Long.SIZE);
+            long mask = 0;
+            for (int i = 0; i < length; i++) {
+                if (bits[i])
+                    mask |= 1L << i;
+            }
+            return new LongValue(mask);
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.LONG;
+        }
+    }
+
+    private static final class CharacterStringConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new StringValue(((CharacterString) value).getValue());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.STRING;
+        }
+    }
+
+    private static final class ToStringConverter implements ValueConverter {
+        @Override
+        public Value convert(Encodable value) {
+            return new StringValue(value.toString());
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.STRING;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import org.openmuc.framework.data.Flag;
+
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+/**
+ * Coalesces the writes of concurrent callers. The first write opens a batch that stays open for a short window; all
+ * writes arriving within the window join the batch. If a property is written more than once within the window, only
+ * the latest value is sent (last value wins). When the window has elapsed, the caller that opened the batch sends all
+ * writes together and every caller gets the result of the write that carried its value.
+ */
+public class WriteCoalescer {
+
+    /**
+     * Sends the writes of a closed batch.
+     */
+    public interface Sender {
+
+        /**
+         * Sends the specified writes.
+         *
+         * @return the result of each write, in the order of the writes
+         */
+        Flag[] send(List<PropertyWrite> writes);
+    }
+
+    private final long window;
+    private final Sender sender;
+
+    // batch accepting writes or null, guarded by this
+    private Batch openBatch = null;
+
+    /**
+     * Constructs a new coalescer.
+     *
+     * @param window
+     *            the time in milliseconds a batch accepts writes
+     * @param sender
+     *            the sender of closed batches
+     */
+    public WriteCoalescer(long window, Sender sender) {
+        if (window <= 0)
+            throw new IllegalArgumentException("window must be positive");
+        this.window = window;
+        this.sender = Objects.requireNonNull(sender, "sender must not be null");
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Adds the specified writes to the open batch and blocks until the batch has been sent.
+     *
+     * @param writes
+     *            the writes to send
+     * @return the result of each write, in the order of the writes
+     */
+    public Flag[] write(List<PropertyWrite> writes) {
+
+        if (writes.isEmpty())
+            return new Flag[0];
+
+        final Batch batch;
+        final int[] slots = new int[writes.size()];
+        final boolean owner;
+
+        synchronized (this) {
+            owner = (openBatch == null);
+            if (owner)
+                openBatch = new Batch(System.currentTimeMillis() + window);
+            batch = openBatch;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = batch.add(writes.get(i));
+            }
+        }
+
+        if (owner)
+            send(batch);
+
+        final Flag[] batchFlags = batch.result.join();
+        final Flag[] flags = new Flag[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            flags[i] = batchFlags[slots[i]];
+        }
+        return flags;
+    }
+
+    private void send(Batch batch) {
+
+        boolean interrupted = false;
+        long timeLeft;
+        while ((timeLeft = batch.deadline - System.currentTimeMillis()) > 0 && !interrupted) {
+            try {
+                Thread.sleep(timeLeft);
+            } catch (InterruptedException e) {
+                // the other callers of the batch are waiting, send it right away
+                interrupted = true;
+            }
+        }
+
+        synchronized (this) {
+            openBatch = null;
+        }
+
+        try {
+            batch.result.complete(sender.send(batch.writes));
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Identifies the target of a write, writes with equal keys replace each other.
+     */
+    private static class Key {
+
+        private final ObjectIdentifier objectIdentifier;
+        private final PropertyIdentifier propertyIdentifier;
+        private final UnsignedInteger propertyArrayIndex;
+        private final UnsignedInteger priority;
+
+        Key(PropertyWrite write) {
+            final PropertyValue value = write.getPropertyValue();
+            this.objectIdentifier = write.getObjectIdentifier();
+            this.propertyIdentifier = value.getPropertyIdentifier();
+            this.propertyArrayIndex = value.getPropertyArrayIndex();
+            this.priority = value.getPriority();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(objectIdentifier, propertyIdentifier, propertyArrayIndex, priority);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return objectIdentifier.equals(other.objectIdentifier)
+                    && propertyIdentifier.equals(other.propertyIdentifier)
+                    && Objects.equals(propertyArrayIndex, other.propertyArrayIndex)
+                    && Objects.equals(priority, other.priority);
+        }
+    }
+
+    private static class Batch {
+
+        private final long deadline;
+        private final List<PropertyWrite> writes = new ArrayList<>();
+        private final Map<Key, Integer> slots = new HashMap<>();
+        private final CompletableFuture<Flag[]> result = new CompletableFuture<>();
+
+        Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Adds a write and returns its slot. A later value replaces the value of an earlier write to the same
+         * property, both share the slot of the earlier write.
+         */
+        int add(PropertyWrite write) {
+            final Key key = new Key(write);
+            final Integer slot = slots.get(key);
+            if (slot != null) {
+                writes.set(slot, write);
+                return slot;
+            }
+            slots.put(key, writes.size());
+            writes.add(write);
+            return writes.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*  OpenMUC Extensions BACnet Driver
+ *  Copyright (C) 2014-2017
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmucextensions.driver.bacnet;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+/**
+ * Suppresses writes of values the remote device already has. The last acknowledged value is remembered per property
+ * and write priority. A write is suppressed if its value equals the remembered value or, for real and double values,
+ * lies within a deadband around it. Each value is written again after a refresh interval, so that a value changed by
+ * someone else cannot stay unnoticed. Values received with COV notifications that differ from a remembered value
+ * discard it, so that the next write is sent.
+ */
+public class WriteSuppressor {
+
+    // priority key of writes without priority
+    private final static int NO_PRIORITY = 0;
+
+    private final double deadband;
+    private final long refreshInterval;
+
+    // last acknowledged values by property and priority
+    private final ConcurrentMap<ObjectPropertyReference, ConcurrentMap<Integer, WrittenValue>> values = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new suppressor.
+     *
+     * @param deadband
+     *            the maximum difference of real and double values that counts as unchanged (0 = equal values only)
+     * @param refreshInterval
+     *            the time in milliseconds after which an unchanged value is written again
+     */
+    public WriteSuppressor(double deadband, long refreshInterval) {
+        if (deadband < 0 || Double.isNaN(deadband))
+            throw new IllegalArgumentException("deadband must not be negative");
+        if (refreshInterval <= 0)
+            throw new IllegalArgumentException("refresh interval must be positive");
+        this.deadband = deadband;
+        this.refreshInterval = refreshInterval;
+    }
+
+    public double getDeadband() {
+        return deadband;
+    }
+
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * Returns true if the specified write doesn't need to be sent.
+     *
+     * @param write
+     *            the write to check
+     * @param now
+     *            the actual time in milliseconds
+     * @return true if the remote device has been sent the same value recently
+     */
+    public boolean isSuppressed(PropertyWrite write, long now) {
+        final ConcurrentMap<Integer, WrittenValue> priorities = values.get(getReference(write));
+        if (priorities == null)
+            return false;
+        final WrittenValue written = priorities.get(getPriority(write.getPropertyValue()));
+        return written != null && now - written.timestamp < refreshInterval
+                && isUnchanged(written.value, write.getPropertyValue().getValue(), deadband);
+    }
+
+    /**
+     * Remembers the value of a write that has been acknowledged by the remote device.
+     *
+     * @param write
+     *            the acknowledged write
+     * @param now
+     *            the time of the acknowledgement in milliseconds
+     */
+    public void acknowledged(PropertyWrite write, long now) {
+        values.computeIfAbsent(getReference(write), reference -> new ConcurrentHashMap<>())
+                .put(getPriority(write.getPropertyValue()), new WrittenValue(write.getPropertyValue().getValue(), now));
+    }
+
+    /**
+     * Passes a value received from the remote device (e.g. with a COV notification). Remembered values of the property
+     * that differ from the received value are discarded.
+     *
+     * @param objectIdentifier
+     *            the object the value belongs to
+     * @param propertyIdentifier
+     *            the property the value belongs to
+     * @param value
+     *            the actual value of the property
+     */
+    public void valueReceived(ObjectIdentifier objectIdentifier, PropertyIdentifier propertyIdentifier,
+            Encodable value) {
+        final ConcurrentMap<Integer, WrittenValue> priorities = values
+                .get(new ObjectPropertyReference(objectIdentifier, propertyIdentifier));
+        if (priorities != null)
+            priorities.values().removeIf(written -> !isUnchanged(written.value, value, deadband));
+    }
+
+    /**
+     * Returns true if both values are equal or, for real and double values, differ by the deadband at most.
+     */
+    static boolean isUnchanged(Encodable oldValue, Encodable newValue, double deadband) {
+        if (Objects.equals(oldValue, newValue))
+            return true;
+        if (deadband == 0)
+            return false;
+        if (oldValue instanceof Real && newValue instanceof Real)
+            return Math.abs(((Real) oldValue).floatValue() - ((Real) newValue).floatValue()) <= deadband;
+        if (oldValue instanceof com.serotonin.bacnet4j.type.primitive.Double
+                && newValue instanceof com.serotonin.bacnet4j.type.primitive.Double)
+            return Math.abs(((com.serotonin.bacnet4j.type.primitive.Double) oldValue).doubleValue()
+                    - ((com.serotonin.bacnet4j.type.primitive.Double) newValue).doubleValue()) <= deadband;
+        return false;
+    }
+
+    private static ObjectPropertyReference getReference(PropertyWrite write) {
+        final PropertyValue value = write.getPropertyValue();
+        return new ObjectPropertyReference(write.getObjectIdentifier(), value.getPropertyIdentifier(),
+                value.getPropertyArrayIndex());
+    }
+
+    private static int getPriority(PropertyValue value) {
+        return (value.getPriority() == null) ? NO_PRIORITY : value.getPriority().intValue();
+    }
+
+    private static class WrittenValue {
+
+        private final Encodable value;
+        private final long timestamp;
+
+        WrittenValue(Encodable value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+}
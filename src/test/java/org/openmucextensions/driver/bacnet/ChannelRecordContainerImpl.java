@@ -52,7 +52,10 @@ public class ChannelRecordContainerImpl implements ChannelRecordContainer {
 
 	@Override
 	public ChannelRecordContainer copy() {
-		return null;
+		ChannelRecordContainerImpl copy = new ChannelRecordContainerImpl(channelAddress);
+		copy.setChannelHandle(channelHandle);
+		copy.setRecord(record);
+		return copy;
 	}
 	
 }
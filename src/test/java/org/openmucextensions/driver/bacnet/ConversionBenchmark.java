@@ -0,0 +1,93 @@
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openmuc.framework.data.FloatValue;
+import org.openmuc.framework.data.StringValue;
+import org.openmuc.framework.data.Value;
+import org.openmuc.framework.data.ValueType;
+
+import com.serotonin.bacnet4j.obj.ObjectProperties;
+import com.serotonin.bacnet4j.obj.PropertyTypeDefinition;
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.enumerated.BinaryPV;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+/**
+ * Compares the cost per value of the former conversion (type lookup and switch per value) with a converter selected
+ * once per property. Run as plain Java program, results are printed to stdout.
+ */
+public class ConversionBenchmark {
+
+	private static final int VALUES = 10_000;
+	private static final int ROUNDS = 20;
+	private static final int ITERATIONS = 200;
+
+	private static final Map<Class<? extends Encodable>, ValueType> TYPEMAPPING = new HashMap<>();
+
+	static {
+		TYPEMAPPING.put(Real.class, ValueType.FLOAT);
+		TYPEMAPPING.put(BinaryPV.class, ValueType.BOOLEAN);
+		TYPEMAPPING.put(UnsignedInteger.class, ValueType.INTEGER);
+	}
+
+	// former implementation of ConversionUtil.convertValue, reduced to the types used here
+	private static Value convertPerValue(Encodable value, PropertyTypeDefinition typeDefinition) {
+		final Class<? extends Encodable> bacnetType = typeDefinition.getClazz();
+		final ValueType openMUCType = TYPEMAPPING.get(bacnetType);
+		if (openMUCType == null)
+			return new StringValue(value.toString());
+		switch (openMUCType) {
+		case FLOAT:
+			if (bacnetType.equals(Real.class))
+				return new FloatValue(((Real) value).floatValue());
+			break;
+		default:
+			break;
+		}
+		throw new InternalError();
+	}
+
+	public static void main(String[] args) {
+
+		final PropertyTypeDefinition definition = ObjectProperties.getPropertyTypeDefinition(ObjectType.analogInput,
+				PropertyIdentifier.presentValue);
+		final ValueConverter converter = ConversionUtil.getConverter(definition);
+
+		final Encodable[] values = new Encodable[VALUES];
+		for (int i = 0; i < VALUES; i++) {
+			values[i] = new Real(i * 0.5f);
+		}
+
+		double sink = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+
+			long start = System.nanoTime();
+			for (int n = 0; n < ITERATIONS; n++) {
+				for (Encodable value : values) {
+					sink += convertPerValue(value, definition).asFloat();
+				}
+			}
+			final double perValueLookup = (System.nanoTime() - start) / (double) (ITERATIONS * VALUES);
+
+			start = System.nanoTime();
+			for (int n = 0; n < ITERATIONS; n++) {
+				for (Encodable value : values) {
+					sink += converter.convert(value).asFloat();
+				}
+			}
+			final double selectedConverter = (System.nanoTime() - start) / (double) (ITERATIONS * VALUES);
+
+			// the first rounds are warm-up
+			if (round >= ROUNDS / 2) {
+				System.out.printf("round %2d: lookup per value %6.2f ns/value, selected converter %6.2f ns/value%n",
+						round, perValueLookup, selectedConverter);
+			}
+		}
+		System.out.println("(checksum " + sink + ")");
+	}
+}
@@ -0,0 +1,49 @@
+package org.openmucextensions.driver.bacnet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+/**
+ * Compares the retained heap of the object handles of a large site in a <code>HashMap</code> and in an
+ * {@link ObjectHandleMap}. The heap is measured with the runtime, so the results vary between runs. Run as plain Java
+ * program, results are printed to stdout.
+ */
+public class HandleMapFootprint {
+
+	private static final int HANDLES = 100000;
+
+	public static void main(String[] args) {
+
+		// the names are shared by both structures and not part of the comparison
+		String[] names = new String[HANDLES];
+		for (int i = 0; i < HANDLES; i++) {
+			names[i] = ("Building'Floor" + (i / 1000) + "'Room" + (i % 1000) + "'Temp").intern();
+		}
+
+		long before = usedMemory();
+		Map<String, ObjectIdentifier> hashMap = new HashMap<>();
+		for (int i = 0; i < HANDLES; i++) {
+			hashMap.put(names[i], new ObjectIdentifier(new ObjectType(i % 20), i));
+		}
+		long hashMapSize = usedMemory() - before;
+
+		before = usedMemory();
+		ObjectHandleMap compact = ObjectHandleMap.of(hashMap);
+		long compactSize = usedMemory() - before;
+
+		System.out.println(String.format("memory footprint of %d handles: HashMap %d bytes, ObjectHandleMap %d bytes",
+				compact.size(), hashMapSize, compactSize));
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,152 @@
+package org.openmucextensions.driver.bacnet;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.serotonin.bacnet4j.LocalDevice;
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.ResponseConsumer;
+import com.serotonin.bacnet4j.ServiceFuture;
+import com.serotonin.bacnet4j.apdu.AckAPDU;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.service.acknowledgement.AcknowledgementService;
+import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
+import com.serotonin.bacnet4j.service.unconfirmed.UnconfirmedRequestService;
+import com.serotonin.bacnet4j.transport.Transport;
+import com.serotonin.bacnet4j.type.constructed.Address;
+
+/**
+ * Local device for testing purposes that doesn't send anything. The confirmed requests are queued, so that a test
+ * can complete them in any order.
+ */
+public class StubLocalDevice extends LocalDevice {
+
+	/**
+	 * A confirmed request sent with the stub.
+	 */
+	public static class Request {
+
+		private final ConfirmedRequestService service;
+		private final ResponseConsumer consumer;
+		private final CompletableFuture<AcknowledgementService> result = new CompletableFuture<>();
+
+		Request(ConfirmedRequestService service, ResponseConsumer consumer) {
+			this.service = service;
+			this.consumer = consumer;
+		}
+
+		public ConfirmedRequestService getService() {
+			return service;
+		}
+
+		public void complete(AcknowledgementService ack) {
+			result.complete(ack);
+			if (consumer != null)
+				consumer.success(ack);
+		}
+
+		public void fail(BACnetException e) {
+			result.completeExceptionally(e);
+			if (consumer != null)
+				consumer.ex(e);
+		}
+
+		/**
+		 * Answers the request with an error, reject or abort.
+		 */
+		public void fail(AckAPDU ack) {
+			result.completeExceptionally(new BACnetException(ack.toString()));
+			if (consumer != null)
+				consumer.fail(ack);
+		}
+	}
+
+	private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+	private final BlockingQueue<UnconfirmedRequestService> unconfirmedRequests = new LinkedBlockingQueue<>();
+
+	public StubLocalDevice() {
+		super(0, (Transport) Proxy.newProxyInstance(Transport.class.getClassLoader(), new Class<?>[] { Transport.class },
+				(proxy, method, args) -> {
+					final Class<?> type = method.getReturnType();
+					if (type == int.class || type == long.class)
+						return 0;
+					if (type == boolean.class)
+						return false;
+					return null;
+				}));
+	}
+
+	@Override
+	public ServiceFuture send(RemoteDevice d, ConfirmedRequestService serviceRequest) {
+		final Request request = new Request(serviceRequest, null);
+		requests.add(request);
+		return new ServiceFuture() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T extends AcknowledgementService> T get() throws BACnetException {
+				try {
+					return (T) request.result.get();
+				} catch (ExecutionException e) {
+					throw (BACnetException) e.getCause();
+				} catch (InterruptedException e) {
+					throw new BACnetException(e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public <T extends AcknowledgementService> void send(RemoteDevice d, ConfirmedRequestService serviceRequest,
+			ResponseConsumer consumer) {
+		requests.add(new Request(serviceRequest, consumer));
+	}
+
+	@Override
+	public void send(Address address, UnconfirmedRequestService serviceRequest) {
+		unconfirmedRequests.add(serviceRequest);
+	}
+
+	@Override
+	public void sendGlobalBroadcast(UnconfirmedRequestService serviceRequest) {
+		unconfirmedRequests.add(serviceRequest);
+	}
+
+	/**
+	 * Returns the next confirmed request, waiting up to five seconds for it to be sent.
+	 */
+	public Request nextRequest() throws InterruptedException {
+		final Request request = requests.poll(5, TimeUnit.SECONDS);
+		if (request == null)
+			throw new AssertionError("no request sent");
+		return request;
+	}
+
+	/**
+	 * Returns the next unconfirmed request, waiting up to five seconds for it to be sent.
+	 */
+	public UnconfirmedRequestService nextUnconfirmedRequest() throws InterruptedException {
+		final UnconfirmedRequestService request = unconfirmedRequests.poll(5, TimeUnit.SECONDS);
+		if (request == null)
+			throw new AssertionError("no unconfirmed request sent");
+		return request;
+	}
+
+	/**
+	 * Returns true, if confirmed requests have been sent that haven't been fetched with {@link #nextRequest()}.
+	 */
+	public boolean hasNewRequests() {
+		return !requests.isEmpty();
+	}
+
+	/**
+	 * Returns true, if unconfirmed requests have been sent that haven't been fetched with
+	 * {@link #nextUnconfirmedRequest()}.
+	 */
+	public boolean hasNewUnconfirmedRequests() {
+		return !unconfirmedRequests.isEmpty();
+	}
+}
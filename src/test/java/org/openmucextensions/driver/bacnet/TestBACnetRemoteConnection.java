@@ -0,0 +1,166 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+import org.openmuc.framework.driver.spi.ConnectionException;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.exception.ServiceTooBigException;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyMultipleAck;
+import com.serotonin.bacnet4j.service.unconfirmed.WhoHasRequest;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessResult;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessResult.Result;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.constructed.ServicesSupported;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.enumerated.Segmentation;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestBACnetRemoteConnection {
+
+	private final StubLocalDevice localDevice = new StubLocalDevice();
+	private BACnetRemoteConnection connection;
+
+	@Before
+	public void setUp() {
+		final RemoteDevice remoteDevice = new RemoteDevice(1, new Address(new byte[] { 1 }));
+		final ServicesSupported servicesSupported = new ServicesSupported();
+		servicesSupported.setReadPropertyMultiple(true);
+		servicesSupported.setWhoHas(true);
+		remoteDevice.setServicesSupported(servicesSupported);
+		remoteDevice.setSegmentationSupported(Segmentation.noSegmentation);
+		// room for two references per request
+		remoteDevice.setMaxAPDULengthAccepted(72);
+		connection = new BACnetRemoteConnection(localDevice, remoteDevice);
+	}
+
+	@After
+	public void tearDown() {
+		localDevice.terminate();
+	}
+
+	private static ChannelRecordContainer container(int instance) {
+		final ChannelRecordContainer container = new ChannelRecordContainerImpl("AV" + instance + "#presentValue");
+		container.setChannelHandle(new ObjectIdentifier(ObjectType.analogValue, instance));
+		return container;
+	}
+
+	private static ReadPropertyMultipleAck ack(int... instances) {
+		final List<ReadAccessResult> results = new ArrayList<>();
+		for (int instance : instances) {
+			final SequenceOf<Result> result = new SequenceOf<>();
+			result.add(new Result(PropertyIdentifier.presentValue, null, new Real(instance)));
+			results.add(new ReadAccessResult(new ObjectIdentifier(ObjectType.analogValue, instance), result));
+		}
+		return new ReadPropertyMultipleAck(new SequenceOf<>(results));
+	}
+
+	@Test
+	public void readsPartitionsSplitWhileLaterOnesAreInFlight() throws Exception {
+		final List<ChannelRecordContainer> containers = new ArrayList<>();
+		for (int instance = 1; instance <= 4; instance++) {
+			containers.add(container(instance));
+		}
+
+		final CompletableFuture<Object> read = CompletableFuture.supplyAsync(() -> {
+			try {
+				return connection.read(containers, null, null);
+			} catch (ConnectionException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		final StubLocalDevice.Request first = localDevice.nextRequest();
+		final StubLocalDevice.Request second = localDevice.nextRequest();
+		second.complete(ack(3, 4));
+		first.fail(new ServiceTooBigException("too big"));
+		localDevice.nextRequest().complete(ack(1));
+		localDevice.nextRequest().complete(ack(2));
+
+		read.get(5, TimeUnit.SECONDS);
+		for (int i = 0; i < 4; i++) {
+			assertThat(containers.get(i).getRecord().getFlag(), is(Flag.VALID));
+			assertThat(containers.get(i).getRecord().getValue().asInt(), is(i + 1));
+		}
+	}
+
+	private CompletableFuture<Void> readUnknown(String... channelAddresses) {
+		final List<ChannelRecordContainer> containers = new ArrayList<>();
+		for (String channelAddress : channelAddresses) {
+			containers.add(new ChannelRecordContainerImpl(channelAddress));
+		}
+		return CompletableFuture.runAsync(() -> {
+			try {
+				connection.read(containers, null, null);
+			} catch (ConnectionException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private void completeCatalog() {
+		RemoteDeviceRegistry.getInstance().obtainContext(localDevice, 1).getObjectCatalog()
+				.replace(Collections.singletonMap("AV1", new ObjectIdentifier(ObjectType.analogValue, 1)), false);
+	}
+
+	/**
+	 * Fails the first request of the channel scan and waits for the read to end.
+	 */
+	private void failScan(CompletableFuture<Void> read) throws Exception {
+		localDevice.nextRequest().fail(new BACnetException("no object list"));
+		try {
+			read.get(5, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			// the read fails, since the names cannot be resolved
+		}
+	}
+
+	@Test
+	public void scansWithoutWhoHasIfCatalogIsIncomplete() throws Exception {
+		connection.setNameResolutionTimeout(50);
+		final CompletableFuture<Void> read = readUnknown("AV2#presentValue");
+
+		failScan(read);
+		assertFalse(localDevice.hasNewUnconfirmedRequests());
+	}
+
+	@Test
+	public void scansWithoutWhoHasIfTooManyNamesAreUnknown() throws Exception {
+		completeCatalog();
+		connection.setNameResolutionTimeout(50);
+		connection.setNameResolutionLimit(1);
+		final CompletableFuture<Void> read = readUnknown("AV2#presentValue", "AV3#presentValue");
+
+		failScan(read);
+		assertFalse(localDevice.hasNewUnconfirmedRequests());
+	}
+
+	@Test
+	public void resolvesFewNamesWithWhoHasIfCatalogIsComplete() throws Exception {
+		completeCatalog();
+		connection.setNameResolutionTimeout(50);
+		final CompletableFuture<Void> read = readUnknown("AV2#presentValue");
+
+		assertThat(localDevice.nextUnconfirmedRequest(), instanceOf(WhoHasRequest.class));
+		failScan(read);
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openmuc.framework.config.ArgumentSyntaxException;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+public class TestChannelScanFilter {
+
+	@Test
+	public void testEmptyFilter() throws Exception {
+		assertTrue(ChannelScanFilter.parse((String) null).isEmpty());
+		assertTrue(ChannelScanFilter.parse("").isEmpty());
+		assertTrue(ChannelScanFilter.parse("startIndex=10").isEmpty());
+	}
+
+	@Test
+	public void testObjectTypesAndInstanceRange() throws Exception {
+		ChannelScanFilter filter = ChannelScanFilter.parse("objectTypes=analogInput,5;instanceRange=100-199");
+
+		assertFalse(filter.isEmpty());
+		assertFalse(filter.hasNameFilter());
+		assertTrue(filter.acceptsObject(new ObjectIdentifier(ObjectType.analogInput, 100)));
+		assertTrue(filter.acceptsObject(new ObjectIdentifier(ObjectType.binaryValue, 199)));
+		assertFalse(filter.acceptsObject(new ObjectIdentifier(ObjectType.analogValue, 150)));
+		assertFalse(filter.acceptsObject(new ObjectIdentifier(ObjectType.analogInput, 200)));
+	}
+
+	@Test
+	public void testNamePattern() throws Exception {
+		ChannelScanFilter filter = ChannelScanFilter.parse("namePattern=AHU1'T?.*");
+
+		assertTrue(filter.hasNameFilter());
+		assertTrue(filter.acceptsName("AHU1'T1.Value"));
+		assertFalse(filter.acceptsName("AHU1'T12"));
+		assertFalse(filter.acceptsName("AHU2'T1.Value"));
+	}
+
+	@Test
+	public void testNameRegex() throws Exception {
+		ChannelScanFilter filter = ChannelScanFilter.parse("nameRegex=AI[0-9]+");
+
+		assertTrue(filter.acceptsName("AI12"));
+		assertFalse(filter.acceptsName("AI12x"));
+	}
+
+	@Test(expected = ArgumentSyntaxException.class)
+	public void testUnknownObjectType() throws Exception {
+		ChannelScanFilter.parse("objectTypes=analogFoo");
+	}
+
+	@Test(expected = ArgumentSyntaxException.class)
+	public void testInvalidInstanceRange() throws Exception {
+		ChannelScanFilter.parse("instanceRange=200-100");
+	}
+
+	@Test(expected = ArgumentSyntaxException.class)
+	public void testInvalidSettingsString() throws Exception {
+		ChannelScanFilter.parse("objectTypes analogInput");
+	}
+
+}
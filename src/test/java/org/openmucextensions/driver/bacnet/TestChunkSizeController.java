@@ -0,0 +1,61 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class TestChunkSizeController {
+
+	@Test
+	public void testFailureHalvesChunkSize() {
+		ChunkSizeController controller = new ChunkSizeController(1, 40, 160);
+
+		controller.failure(40);
+		assertThat(controller.getChunkSize(), is(20));
+		controller.failure(40);
+		// a failure of a request bigger than the actual chunk size must not grow it again
+		assertThat(controller.getChunkSize(), is(20));
+		controller.failure(1);
+		assertThat(controller.getChunkSize(), is(1));
+	}
+
+	@Test
+	public void testSlowIncreaseUpToMaximum() {
+		ChunkSizeController controller = new ChunkSizeController(1, 10, 11);
+
+		for (int i = 1; i < ChunkSizeController.SUCCESSES_PER_INCREASE; i++) {
+			controller.success(10);
+		}
+		assertThat(controller.getChunkSize(), is(10));
+
+		// smaller requests don't count
+		controller.success(5);
+		assertThat(controller.getChunkSize(), is(10));
+
+		controller.success(10);
+		assertThat(controller.getChunkSize(), is(11));
+
+		for (int i = 0; i < 2 * ChunkSizeController.SUCCESSES_PER_INCREASE; i++) {
+			controller.success(11);
+		}
+		assertThat(controller.getChunkSize(), is(11));
+	}
+
+	@Test
+	public void testFailureResetsSuccesses() {
+		ChunkSizeController controller = new ChunkSizeController(1, 10, 100);
+
+		for (int i = 1; i < ChunkSizeController.SUCCESSES_PER_INCREASE; i++) {
+			controller.success(10);
+		}
+		controller.failure(30);
+		controller.success(10);
+		assertThat(controller.getChunkSize(), is(10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInitialSize() {
+		new ChunkSizeController(1, 0, 10);
+	}
+}
@@ -0,0 +1,106 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+import org.openmuc.framework.driver.spi.Connection;
+import org.openmuc.framework.driver.spi.RecordsReceivedListener;
+
+public class TestCovDispatcher {
+
+	private CovDispatcher instance = null;
+
+	private static RecordsReceivedListener listener(final Consumer<List<ChannelRecordContainer>> consumer) {
+		return new RecordsReceivedListener() {
+			@Override
+			public void newRecords(List<ChannelRecordContainer> containers) {
+				consumer.accept(containers);
+			}
+
+			@Override
+			public void connectionInterrupted(String driverId, Connection connection) {
+			}
+		};
+	}
+
+	@After
+	public void tearDown() {
+		if (instance != null)
+			instance.stop();
+	}
+
+	@Test
+	public void testRecordsAreDispatchedInOrder() throws Exception {
+
+		final List<ChannelRecordContainer> received = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch done = new CountDownLatch(100);
+		instance = new CovDispatcher(4711, 1000, listener(containers -> {
+			received.addAll(containers);
+			for (int i = 0; i < containers.size(); i++)
+				done.countDown();
+		}));
+
+		for (int i = 0; i < 100; i++) {
+			assertTrue(instance.offer(new ChannelRecordContainerImpl("AV" + i)));
+		}
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertThat(received.get(0).getChannelAddress(), is("AV0"));
+		assertThat(received.get(99).getChannelAddress(), is("AV99"));
+		awaitDispatched(100);
+		assertThat(instance.getQueueDepth(), is(0));
+	}
+
+	@Test
+	public void testSlowListenerDropsRecords() throws Exception {
+
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		instance = new CovDispatcher(4711, 10, listener(containers -> {
+			blocked.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+
+		// the first record blocks the dispatcher thread
+		instance.offer(new ChannelRecordContainerImpl("AV0"));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+		for (int i = 1; i <= 10; i++) {
+			assertTrue(instance.offer(new ChannelRecordContainerImpl("AV" + i)));
+		}
+		assertFalse(instance.offer(new ChannelRecordContainerImpl("AV11")));
+		assertThat(instance.getQueueDepth(), is(10));
+		assertThat(instance.getDropped(), is(1L));
+
+		release.countDown();
+		awaitDispatched(11);
+		// the waiting records are passed with a single call
+		assertThat(instance.getBatches(), is(2L));
+	}
+
+	private void awaitDispatched(long count) throws InterruptedException {
+		// the counter is updated after the listener has returned
+		long deadline = System.currentTimeMillis() + 5000;
+		while (instance.getDispatched() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(instance.getDispatched(), is(count));
+	}
+
+}
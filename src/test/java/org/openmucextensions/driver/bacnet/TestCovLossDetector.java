@@ -0,0 +1,100 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestCovLossDetector {
+
+	private static final long START = 1000000;
+
+	private final ObjectIdentifier object = new ObjectIdentifier(ObjectType.analogValue, 1);
+
+	@Test
+	public void reportsMissingInitialNotification() {
+		final CovLossDetector detector = new CovLossDetector(0, 10000);
+		detector.subscribed(object, START);
+
+		assertTrue(detector.collectSuspects(START + 10000).isEmpty());
+		assertThat(detector.collectSuspects(START + 10001), is(Collections.singletonList(object)));
+		assertThat(detector.getLostNotifications(), is(1L));
+
+		// reported once until subscribed again
+		assertTrue(detector.collectSuspects(START + 20000).isEmpty());
+	}
+
+	@Test
+	public void acceptsInitialNotification() {
+		final CovLossDetector detector = new CovLossDetector(0, 10000);
+		detector.subscribed(object, START);
+
+		assertTrue(detector.notificationReceived(object, 0, new Real(1), START + 500));
+		assertTrue(detector.collectSuspects(START + 60000).isEmpty());
+	}
+
+	@Test
+	public void checksTimeRemainingAgainstLifetime() {
+		final CovLossDetector detector = new CovLossDetector(300, 10000);
+		detector.subscribed(object, START);
+
+		assertTrue(detector.notificationReceived(object, 300, new Real(1), START));
+		assertTrue(detector.notificationReceived(object, 200, new Real(2), START + 100000));
+		// initial notification of a renewal, received before its acknowledgement
+		assertTrue(detector.notificationReceived(object, 299, new Real(2), START + 150000));
+
+		// the remote device counts down a subscription it shouldn't have
+		assertFalse(detector.notificationReceived(object, 30, new Real(3), START + 160000));
+		assertThat(detector.getInconsistentNotifications(), is(1L));
+		assertThat(detector.collectSuspects(START + 160000), is(Collections.singletonList(object)));
+	}
+
+	@Test
+	public void reportsIndefiniteSubscriptionWithTimeRemaining() {
+		final CovLossDetector detector = new CovLossDetector(0, 10000);
+		detector.subscribed(object, START);
+
+		assertFalse(detector.notificationReceived(object, 120, new Real(1), START));
+	}
+
+	@Test
+	public void reportsLapsedSubscription() {
+		final CovLossDetector detector = new CovLossDetector(300, 10000);
+		detector.subscribed(object, START);
+		detector.notificationReceived(object, 300, new Real(1), START);
+
+		assertTrue(detector.collectSuspects(START + 300000).isEmpty());
+		assertThat(detector.collectSuspects(START + 306000), is(Collections.singletonList(object)));
+		assertThat(detector.getLapsedSubscriptions(), is(1L));
+	}
+
+	@Test
+	public void reconcilesNotifiedValues() {
+		final CovLossDetector detector = new CovLossDetector(0, 10000);
+		detector.subscribed(object, START);
+		detector.notificationReceived(object, 0, new Real(1), START);
+
+		assertFalse(detector.reconcile(object, new Real(1)));
+		assertTrue(detector.reconcile(object, new Real(2)));
+		assertFalse(detector.reconcile(object, new Real(2)));
+		assertThat(detector.getMissedChanges(), is(1L));
+	}
+
+	@Test
+	public void ignoresUnknownObjects() {
+		final CovLossDetector detector = new CovLossDetector(0, 10000);
+
+		assertTrue(detector.notificationReceived(object, 60, new Real(1), START));
+		assertFalse(detector.reconcile(object, new Real(1)));
+		assertTrue(detector.collectSuspects(START).isEmpty());
+	}
+
+}
@@ -0,0 +1,97 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+public class TestCovSubscriptionRenewer {
+
+	private static final int LIFETIME = 600;
+
+	private final long start = System.currentTimeMillis();
+	private final TimingWheel wheel = new TimingWheel(1000, 64, start);
+	private final List<ObjectIdentifier> renewed = new ArrayList<>();
+	private final CovSubscriptionRenewer renewer = new CovSubscriptionRenewer(wheel, LIFETIME, renewed::add);
+
+	private final ObjectIdentifier object = new ObjectIdentifier(ObjectType.analogValue, 1);
+
+	@Test
+	public void renewalDelaysAreSpreadWithinTheLifetime() {
+		final long lifetime = LIFETIME * 1000L;
+		final int[] histogram = new int[10];
+		for (int i = 0; i < 10000; i++) {
+			final long delay = renewer.getRenewalDelay(new ObjectIdentifier(ObjectType.analogInput, i));
+			assertTrue(delay >= lifetime / 2 && delay <= lifetime * 3 / 4);
+			histogram[(int) ((delay - lifetime / 2) * 10 / (lifetime / 4 + 1))]++;
+		}
+		for (int count : histogram) {
+			assertTrue("uneven distribution " + count, count > 800 && count < 1200);
+		}
+	}
+
+	@Test
+	public void retryDelayGrowsUpToTheLifetime() {
+		assertThat(renewer.getRetryDelay(1), is(75000L));
+		assertThat(renewer.getRetryDelay(2), is(150000L));
+		assertThat(renewer.getRetryDelay(4), is(600000L));
+		assertThat(renewer.getRetryDelay(10), is(600000L));
+	}
+
+	@Test
+	public void renewsAfterSuccess() {
+		renewer.add(object);
+		renewer.succeeded(object);
+
+		final CovSubscriptionRenewer.Renewal renewal = renewer.getRenewal(object);
+		assertThat(renewal.getSuccesses(), is(1L));
+		final long delay = renewer.getRenewalDelay(object);
+
+		wheel.advance(start + delay - 2000);
+		assertTrue(renewed.isEmpty());
+		wheel.advance(start + delay + 2000);
+		assertThat(renewed.size(), is(1));
+	}
+
+	@Test
+	public void retriesAfterFailure() {
+		renewer.add(object);
+		renewer.failed(object, "refused");
+		renewer.failed(object, "timeout");
+
+		final CovSubscriptionRenewer.Renewal renewal = renewer.getRenewal(object);
+		assertThat(renewal.getFailures(), is(2L));
+		assertThat(renewal.getConsecutiveFailures(), is(2));
+		assertThat(renewal.getLastError(), is("timeout"));
+		assertThat(renewer.getFailedSubscriptions(), is(1));
+
+		// only the latest retry is scheduled
+		wheel.advance(start + renewer.getRetryDelay(2) + 2000);
+		assertThat(renewed.size(), is(1));
+
+		renewer.succeeded(object);
+		assertThat(renewal.getConsecutiveFailures(), is(0));
+		assertThat(renewer.getFailedSubscriptions(), is(0));
+	}
+
+	@Test
+	public void stopsRenewingRemovedObjects() {
+		renewer.add(object);
+		renewer.succeeded(object);
+		renewer.removeAll();
+		renewer.succeeded(object);
+
+		wheel.advance(start + LIFETIME * 1000L);
+		assertTrue(renewed.isEmpty());
+		assertThat(renewer.getRenewal(object), nullValue());
+	}
+
+}
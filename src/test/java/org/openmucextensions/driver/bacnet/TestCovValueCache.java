@@ -0,0 +1,74 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestCovValueCache {
+
+	private static final ObjectIdentifier AI1 = new ObjectIdentifier(ObjectType.analogInput, 1);
+	private static final ObjectPropertyReference AI1_PV = new ObjectPropertyReference(AI1,
+			PropertyIdentifier.presentValue);
+
+	@Test
+	public void testValuesServedOnlyWhenConfirmed() {
+		CovValueCache cache = new CovValueCache(1000);
+
+		cache.subscribed(AI1);
+		cache.put(AI1, PropertyIdentifier.presentValue, new Real(1), 0);
+		assertThat(cache.isInactive(), is(true));
+		assertThat(cache.get(AI1_PV, 0), is(nullValue()));
+
+		cache.confirmed(AI1);
+		assertThat(cache.isInactive(), is(false));
+		assertThat(cache.get(AI1_PV, 0).getValue(), is(new Real(1)));
+	}
+
+	@Test
+	public void testValuesOfUnsubscribedObjectsAreIgnored() {
+		CovValueCache cache = new CovValueCache(1000);
+
+		cache.put(AI1_PV, new Real(1), 0);
+		cache.subscribed(AI1);
+		cache.confirmed(AI1);
+		assertThat(cache.get(AI1_PV, 0), is(nullValue()));
+	}
+
+	@Test
+	public void testMaxAge() {
+		CovValueCache cache = new CovValueCache(1000);
+		cache.subscribed(AI1);
+		cache.confirmed(AI1);
+		cache.put(AI1_PV, new Real(1), 5000);
+
+		assertThat(cache.get(AI1_PV, 6000), is(notNullValue()));
+		assertThat(cache.get(AI1_PV, 6001), is(nullValue()));
+
+		cache.setMaxAge(0);
+		assertThat(cache.isInactive(), is(true));
+	}
+
+	@Test
+	public void testUnsubscribeRemovesValues() {
+		CovValueCache cache = new CovValueCache(1000);
+		cache.subscribed(AI1);
+		cache.confirmed(AI1);
+		cache.put(AI1_PV, new Real(1), 0);
+
+		cache.unsubscribed(AI1);
+		assertThat(cache.isInactive(), is(true));
+
+		cache.subscribed(AI1);
+		cache.confirmed(AI1);
+		assertThat(cache.get(AI1_PV, 0), is(nullValue()));
+	}
+}
@@ -0,0 +1,115 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.RemoteObject;
+import com.serotonin.bacnet4j.event.DeviceEventAdapter;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+public class TestEventDemultiplexer {
+
+	private static final ObjectIdentifier AV1 = new ObjectIdentifier(ObjectType.analogValue, 1);
+	private static final ObjectIdentifier AV2 = new ObjectIdentifier(ObjectType.analogValue, 2);
+
+	private static final RemoteDevice DEVICE_1 = new RemoteDevice(1, new Address(new byte[] { 1 }));
+	private static final RemoteDevice DEVICE_2 = new RemoteDevice(2, new Address(new byte[] { 2 }));
+
+	private EventDemultiplexer instance = null;
+
+	@Before
+	public void setUp() {
+		instance = new EventDemultiplexer(null);
+	}
+
+	private static class RecordingListener extends DeviceEventAdapter {
+
+		private final List<ObjectIdentifier> notifications = new ArrayList<>();
+		private int iHaves = 0;
+
+		@Override
+		public void covNotificationReceived(UnsignedInteger subscriberProcessIdentifier,
+				RemoteDevice initiatingDevice, ObjectIdentifier monitoredObjectIdentifier,
+				UnsignedInteger timeRemaining, SequenceOf<PropertyValue> listOfValues) {
+			notifications.add(monitoredObjectIdentifier);
+		}
+
+		@Override
+		public void iHaveReceived(RemoteDevice d, RemoteObject o) {
+			iHaves++;
+		}
+	}
+
+	private void notify(UnsignedInteger processIdentifier, RemoteDevice device, ObjectIdentifier object) {
+		instance.covNotificationReceived(processIdentifier, device, object, new UnsignedInteger(0),
+				new SequenceOf<PropertyValue>());
+	}
+
+	@Test
+	public void testProcessIdentifiersAreUnique() {
+		assertThat(instance.allocateProcessIdentifier().equals(instance.allocateProcessIdentifier()), is(false));
+	}
+
+	@Test
+	public void testCovNotificationsAreRouted() {
+
+		UnsignedInteger process1 = instance.allocateProcessIdentifier();
+		UnsignedInteger process2 = instance.allocateProcessIdentifier();
+		RecordingListener listener1 = new RecordingListener();
+		RecordingListener listener2 = new RecordingListener();
+
+		instance.addCovListener(1, process1, AV1, listener1);
+		instance.addCovListener(1, process2, AV1, listener2);
+		instance.addCovListener(2, process2, AV2, listener2);
+
+		notify(process1, DEVICE_1, AV1);
+		notify(process2, DEVICE_1, AV1);
+		notify(process2, DEVICE_2, AV2);
+		// wrong device, object or process
+		notify(process1, DEVICE_2, AV1);
+		notify(process1, DEVICE_1, AV2);
+		notify(new UnsignedInteger(0), DEVICE_1, AV1);
+
+		assertThat(listener1.notifications.size(), is(1));
+		assertThat(listener2.notifications.size(), is(2));
+		assertThat(instance.getUnroutedNotifications(), is(3L));
+
+		instance.removeCovListener(1, process1, AV1);
+		notify(process1, DEVICE_1, AV1);
+		assertThat(listener1.notifications.size(), is(1));
+	}
+
+	@Test
+	public void testIHaveIsRoutedByDevice() {
+
+		RecordingListener listener = new RecordingListener();
+		instance.addDeviceListener(1, listener);
+
+		instance.iHaveReceived(DEVICE_1, new RemoteObject(AV1));
+		instance.iHaveReceived(DEVICE_2, new RemoteObject(AV1));
+		assertThat(listener.iHaves, is(1));
+
+		instance.removeDeviceListener(1, listener);
+		instance.iHaveReceived(DEVICE_1, new RemoteObject(AV1));
+		assertThat(listener.iHaves, is(1));
+	}
+
+	@Test
+	public void testPropertyWritesAreVetoed() {
+		assertFalse(instance.allowPropertyWrite(DEVICE_1.getAddress(), null, null));
+	}
+
+}
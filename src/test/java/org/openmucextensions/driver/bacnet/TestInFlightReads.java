@@ -0,0 +1,52 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestInFlightReads {
+
+	private static final ObjectPropertyReference AI1_PV = new ObjectPropertyReference(
+			new ObjectIdentifier(ObjectType.analogInput, 1), PropertyIdentifier.presentValue);
+
+	@Test
+	public void testConcurrentReadsShareFuture() throws Exception {
+		InFlightReads reads = new InFlightReads();
+		CompletableFuture<Encodable> first = new CompletableFuture<>();
+		CompletableFuture<Encodable> second = new CompletableFuture<>();
+
+		assertThat(reads.register(AI1_PV, first), is(nullValue()));
+		CompletableFuture<Encodable> outstanding = reads.register(AI1_PV, second);
+		assertThat(outstanding, is(sameInstance(first)));
+
+		reads.complete(AI1_PV, first, new Real(1));
+		assertThat(outstanding.get(), is(new Real(1)));
+		assertThat(reads.size(), is(0));
+
+		// the next read sends a new request
+		assertThat(reads.register(AI1_PV, second), is(nullValue()));
+	}
+
+	@Test
+	public void testFailedReadIsRemoved() {
+		InFlightReads reads = new InFlightReads();
+		CompletableFuture<Encodable> future = new CompletableFuture<>();
+
+		reads.register(AI1_PV, future);
+		reads.fail(AI1_PV, future, new IllegalStateException());
+		assertThat(future.isCompletedExceptionally(), is(true));
+		assertThat(reads.size(), is(0));
+	}
+}
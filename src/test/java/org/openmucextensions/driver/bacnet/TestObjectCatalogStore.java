@@ -0,0 +1,77 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+public class TestObjectCatalogStore {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ObjectCatalogStore instance = null;
+
+	@Before
+	public void setUp() throws Exception {
+		instance = new ObjectCatalogStore(folder.getRoot().toPath().resolve("catalog"));
+	}
+
+	@Test
+	public void testLoadMissingCatalog() {
+		assertNull(instance.load(4711));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+
+		Map<String, ObjectIdentifier> handles = new HashMap<>();
+		handles.put("AI1", new ObjectIdentifier(ObjectType.analogInput, 1));
+		handles.put("BV'Pump", new ObjectIdentifier(ObjectType.binaryValue, 4194302));
+
+		instance.save(4711, new ObjectCatalogStore.Catalog(42L, null, handles));
+
+		ObjectCatalogStore.Catalog catalog = instance.load(4711);
+		assertThat(catalog.getHandles(), is(handles));
+		assertThat(catalog.getDatabaseRevision(), is(42L));
+		assertNull(instance.load(4712));
+	}
+
+	@Test
+	public void testValidation() {
+
+		Map<String, ObjectIdentifier> handles = new HashMap<>();
+
+		ObjectCatalogStore.Catalog byRevision = new ObjectCatalogStore.Catalog(42L, null, handles);
+		assertTrue(byRevision.isValidFor(42L, null));
+		assertFalse(byRevision.isValidFor(43L, null));
+		assertFalse(byRevision.isValidFor(null, 42));
+
+		ObjectCatalogStore.Catalog byHash = new ObjectCatalogStore.Catalog(null, 1234, handles);
+		assertTrue(byHash.isValidFor(null, 1234));
+		assertFalse(byHash.isValidFor(null, 1235));
+		assertFalse(byHash.isValidFor(1234L, null));
+	}
+
+	@Test
+	public void testCorruptCatalog() throws Exception {
+		Files.createDirectories(instance.getDirectory());
+		Files.write(instance.getDirectory().resolve("device-4711.json"), "{ no json".getBytes(StandardCharsets.UTF_8));
+		assertNull(instance.load(4711));
+	}
+
+}
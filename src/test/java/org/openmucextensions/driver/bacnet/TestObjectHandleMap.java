@@ -0,0 +1,55 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+public class TestObjectHandleMap {
+
+	@Test
+	public void testGetAndWithAll() {
+		Map<String, ObjectIdentifier> handles = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			handles.put("AI" + i, new ObjectIdentifier(ObjectType.analogInput, i));
+		}
+
+		ObjectHandleMap instance = ObjectHandleMap.of(handles);
+		assertThat(instance.size(), is(1000));
+		assertThat(instance.get("AI500"), is(new ObjectIdentifier(ObjectType.analogInput, 500)));
+		assertThat(instance.get("AI1000"), is(nullValue()));
+
+		Map<String, ObjectIdentifier> added = new HashMap<>();
+		added.put("AI1000", new ObjectIdentifier(ObjectType.analogValue, 1));
+		added.put("AI0", new ObjectIdentifier(ObjectType.binaryValue, 7));
+		ObjectHandleMap modified = instance.withAll(added);
+		assertThat(modified.size(), is(1001));
+		assertThat(modified.get("AI1000"), is(new ObjectIdentifier(ObjectType.analogValue, 1)));
+		assertThat(modified.get("AI0"), is(new ObjectIdentifier(ObjectType.binaryValue, 7)));
+		// copy-on-write: the original map is not modified
+		assertThat(instance.get("AI1000"), is(nullValue()));
+		assertThat(instance.get("AI0"), is(new ObjectIdentifier(ObjectType.analogInput, 0)));
+
+		assertThat(modified.toMap().size(), is(1001));
+	}
+
+	@Test
+	public void testNamesAreShared() {
+		ObjectIdentifier identifier = new ObjectIdentifier(ObjectType.analogInput, 1);
+		ObjectHandleMap first = ObjectHandleMap.of(Collections.singletonMap(new String("AHU1'T1"), identifier));
+		ObjectHandleMap second = ObjectHandleMap.of(Collections.singletonMap(new String("AHU1'T1"), identifier));
+
+		assertThat(second.toMap().keySet().iterator().next(),
+				is(sameInstance(first.toMap().keySet().iterator().next())));
+	}
+
+}
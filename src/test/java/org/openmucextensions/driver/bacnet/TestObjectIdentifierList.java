@@ -0,0 +1,45 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+public class TestObjectIdentifierList {
+
+	@Test
+	public void testPackAndUnpack() {
+		ObjectIdentifier[] identifiers = { new ObjectIdentifier(ObjectType.analogInput, 0),
+				new ObjectIdentifier(ObjectType.device, 4194302), new ObjectIdentifier(new ObjectType(1023), 4194303) };
+
+		for (ObjectIdentifier identifier : identifiers) {
+			assertThat(BACnetUtils.unpackObjectIdentifier(BACnetUtils.packObjectIdentifier(identifier)), is(identifier));
+		}
+	}
+
+	@Test
+	public void testListEqualsObjectList() {
+		List<ObjectIdentifier> objectList = Arrays.asList(new ObjectIdentifier(ObjectType.device, 4711),
+				new ObjectIdentifier(ObjectType.binaryValue, 3), new ObjectIdentifier(ObjectType.schedule, 1));
+
+		ObjectIdentifierList instance = new ObjectIdentifierList(objectList);
+
+		assertThat(instance.size(), is(3));
+		assertThat(instance.get(1), is(objectList.get(1)));
+		assertThat(instance.equals(objectList), is(true));
+		// the hash is used to validate persisted catalogs
+		assertThat(instance.hashCode(), is(objectList.hashCode()));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		new ObjectIdentifierList(new int[] { 1 }).get(1);
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.RemoteObject;
+import com.serotonin.bacnet4j.service.unconfirmed.WhoHasRequest;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+
+public class TestObjectNameResolver {
+
+	private static final ObjectIdentifier AV1 = new ObjectIdentifier(ObjectType.analogValue, 1);
+	private static final ObjectIdentifier AV2 = new ObjectIdentifier(ObjectType.analogValue, 2);
+	private static final ObjectIdentifier AV3 = new ObjectIdentifier(ObjectType.analogValue, 3);
+
+	private final StubLocalDevice localDevice = new StubLocalDevice();
+	private final RemoteDevice remoteDevice = new RemoteDevice(1, new Address(new byte[] { 1 }));
+	private final ObjectNameResolver resolver = new ObjectNameResolver(localDevice, remoteDevice, 500);
+
+	@After
+	public void tearDown() {
+		localDevice.terminate();
+	}
+
+	private static RemoteObject object(ObjectIdentifier identifier, String name) {
+		final RemoteObject object = new RemoteObject(identifier);
+		object.setObjectName(name);
+		return object;
+	}
+
+	private CompletableFuture<Map<String, List<ObjectIdentifier>>> resolve(String... names) {
+		return CompletableFuture.supplyAsync(() -> resolver.resolve(Arrays.asList(names)));
+	}
+
+	@Test
+	public void resolvesAllNamesInOneRound() throws Exception {
+		final CompletableFuture<Map<String, List<ObjectIdentifier>>> result = resolve("T1", "T2", "T3");
+
+		// all requests are sent before any answer has arrived
+		for (int i = 0; i < 3; i++) {
+			assertThat(localDevice.nextUnconfirmedRequest(), instanceOf(WhoHasRequest.class));
+		}
+		resolver.iHaveReceived(remoteDevice, object(AV2, "T2"));
+		resolver.iHaveReceived(remoteDevice, object(AV1, "T1"));
+
+		final Map<String, List<ObjectIdentifier>> identifiers = result.get(5, TimeUnit.SECONDS);
+		assertThat(identifiers.get("T1"), is(Collections.singletonList(AV1)));
+		assertThat(identifiers.get("T2"), is(Collections.singletonList(AV2)));
+		assertTrue(identifiers.get("T3").isEmpty());
+	}
+
+	@Test
+	public void collectsAllAnswersWithinTimeout() throws Exception {
+		final CompletableFuture<Map<String, List<ObjectIdentifier>>> result = resolve("T1");
+
+		localDevice.nextUnconfirmedRequest();
+		resolver.iHaveReceived(remoteDevice, object(AV1, "T1"));
+		Thread.sleep(50);
+		// the first answer doesn't complete the lookup
+		assertFalse(result.isDone());
+		resolver.iHaveReceived(remoteDevice, object(AV3, "T1"));
+
+		assertThat(result.get(5, TimeUnit.SECONDS).get("T1"), is(Arrays.asList(AV1, AV3)));
+	}
+
+	@Test
+	public void ignoresAnswersOfOtherDevices() throws Exception {
+		final CompletableFuture<Map<String, List<ObjectIdentifier>>> result = resolve("T1");
+
+		localDevice.nextUnconfirmedRequest();
+		resolver.iHaveReceived(new RemoteDevice(2, new Address(new byte[] { 2 })), object(AV1, "T1"));
+
+		assertTrue(result.get(5, TimeUnit.SECONDS).get("T1").isEmpty());
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.apdu.Error;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.exception.BACnetTimeoutException;
+import com.serotonin.bacnet4j.exception.ErrorAPDUException;
+import com.serotonin.bacnet4j.exception.ServiceTooBigException;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyMultipleAck;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessResult;
+import com.serotonin.bacnet4j.type.constructed.ReadAccessResult.Result;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.constructed.ServicesSupported;
+import com.serotonin.bacnet4j.type.enumerated.ErrorClass;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.error.BaseError;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.util.PropertyReferences;
+import com.serotonin.bacnet4j.util.PropertyValues;
+
+public class TestPropertyReader {
+
+	private static final ObjectIdentifier AV1 = new ObjectIdentifier(ObjectType.analogValue, 1);
+	private static final ObjectIdentifier AV2 = new ObjectIdentifier(ObjectType.analogValue, 2);
+	private static final ObjectIdentifier AV3 = new ObjectIdentifier(ObjectType.analogValue, 3);
+	private static final ObjectIdentifier AV4 = new ObjectIdentifier(ObjectType.analogValue, 4);
+
+	private final StubLocalDevice localDevice = new StubLocalDevice();
+	private final RemoteDevice remoteDevice = new RemoteDevice(1, new Address(new byte[] { 1 }));
+
+	private final List<String> partitions = Collections.synchronizedList(new ArrayList<>());
+	private PropertyReader reader;
+
+	@Before
+	public void setUp() {
+		final ServicesSupported servicesSupported = new ServicesSupported();
+		servicesSupported.setReadPropertyMultiple(true);
+		remoteDevice.setServicesSupported(servicesSupported);
+		reader = new PropertyReader(localDevice, remoteDevice, 2, new ChunkSizeController(1, 2, 2));
+	}
+
+	@After
+	public void tearDown() {
+		localDevice.terminate();
+	}
+
+	private static ReadPropertyMultipleAck ack(ObjectIdentifier... objects) {
+		final List<ReadAccessResult> results = new ArrayList<>();
+		for (ObjectIdentifier object : objects) {
+			final SequenceOf<Result> result = new SequenceOf<>();
+			result.add(new Result(PropertyIdentifier.presentValue, null, new Real(object.getInstanceNumber())));
+			results.add(new ReadAccessResult(object, result));
+		}
+		return new ReadPropertyMultipleAck(new SequenceOf<>(results));
+	}
+
+	private CompletableFuture<PropertyValues> read(ObjectIdentifier... objects) {
+		final PropertyReferences references = new PropertyReferences();
+		for (ObjectIdentifier object : objects) {
+			references.add(object, PropertyIdentifier.presentValue);
+		}
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return reader.readProperties(references, (partition, values) -> {
+					final StringBuilder builder = new StringBuilder();
+					partition.getProperties().forEach((object, properties) -> {
+						// every reference of the partition is part of the values when it is reported
+						assertTrue(values.getNoErrorCheck(object, PropertyIdentifier.presentValue) != null);
+						builder.append(object.getInstanceNumber());
+					});
+					partitions.add(builder.toString());
+				});
+			} catch (BACnetException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	@Test
+	public void reportsSplitPartitionsInOrder() throws Exception {
+		final CompletableFuture<PropertyValues> result = read(AV1, AV2, AV3, AV4);
+
+		final StubLocalDevice.Request first = localDevice.nextRequest();
+		final StubLocalDevice.Request second = localDevice.nextRequest();
+
+		// the second partition is answered while the first one is split
+		second.complete(ack(AV3, AV4));
+		first.fail(new ServiceTooBigException("too big"));
+
+		localDevice.nextRequest().complete(ack(AV1));
+		final Error error = new Error((byte) 0,
+				new BaseError((byte) 12, new BACnetError(ErrorClass.property, ErrorCode.unknownProperty)));
+		localDevice.nextRequest().fail(new ErrorAPDUException(error));
+
+		final PropertyValues values = result.get(5, TimeUnit.SECONDS);
+		assertThat(partitions.toString(), is("[1, 2, 34]"));
+		assertThat(values.getNoErrorCheck(AV1, PropertyIdentifier.presentValue), is(new Real(1)));
+		assertThat(values.getNoErrorCheck(AV2, PropertyIdentifier.presentValue), instanceOf(BACnetError.class));
+		assertThat(values.getNoErrorCheck(AV4, PropertyIdentifier.presentValue), is(new Real(4)));
+	}
+
+	@Test
+	public void abortsOnOtherFailures() throws Exception {
+		final CompletableFuture<PropertyValues> result = read(AV1, AV2, AV3);
+
+		localDevice.nextRequest().fail(new BACnetTimeoutException("timeout"));
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			throw new AssertionError("read succeeded");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause().getCause(), instanceOf(BACnetTimeoutException.class));
+		}
+		assertTrue(partitions.isEmpty());
+	}
+
+}
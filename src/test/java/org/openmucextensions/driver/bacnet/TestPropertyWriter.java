@@ -0,0 +1,206 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.everyItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmuc.framework.data.Flag;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.apdu.Reject;
+import com.serotonin.bacnet4j.exception.BACnetTimeoutException;
+import com.serotonin.bacnet4j.exception.RejectAPDUException;
+import com.serotonin.bacnet4j.exception.ServiceTooBigException;
+import com.serotonin.bacnet4j.service.confirmed.WritePropertyMultipleRequest;
+import com.serotonin.bacnet4j.service.confirmed.WritePropertyRequest;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.constructed.ObjectPropertyReference;
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.constructed.ServicesSupported;
+import com.serotonin.bacnet4j.type.enumerated.ErrorClass;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.enumerated.RejectReason;
+import com.serotonin.bacnet4j.type.error.WritePropertyMultipleError;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+import com.serotonin.bacnet4j.util.sero.ByteQueue;
+
+public class TestPropertyWriter {
+
+	private final StubLocalDevice localDevice = new StubLocalDevice();
+	private final RemoteDevice remoteDevice = new RemoteDevice(1, new Address(new byte[] { 1 }));
+
+	@After
+	public void tearDown() {
+		localDevice.terminate();
+	}
+
+	private CompletableFuture<Flag[]> writeProperties(List<PropertyWrite> writes, boolean multiple, long timeout) {
+		final ServicesSupported servicesSupported = new ServicesSupported();
+		servicesSupported.setWritePropertyMultiple(multiple);
+		remoteDevice.setServicesSupported(servicesSupported);
+		remoteDevice.setMaxAPDULengthAccepted(480);
+		final PropertyWriter writer = new PropertyWriter(localDevice, remoteDevice, 4);
+		return CompletableFuture.supplyAsync(() -> writer.writeProperties(writes, timeout));
+	}
+
+	private static PropertyWrite write(int instance, float value) {
+		return new PropertyWrite(new ObjectIdentifier(ObjectType.analogValue, instance),
+				new PropertyValue(PropertyIdentifier.presentValue, null, new Real(value), new UnsignedInteger(8)));
+	}
+
+	private static List<PropertyWrite> writes(int count) {
+		List<PropertyWrite> writes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			writes.add(write(i, i));
+		}
+		return writes;
+	}
+
+	@Test
+	public void testPartitionsFitIntoApdu() {
+
+		List<PropertyWrite> writes = writes(200);
+		List<List<PropertyWrite>> partitions = PropertyWriter.partition(writes, 480);
+
+		int count = 0;
+		for (List<PropertyWrite> partition : partitions) {
+			ByteQueue queue = new ByteQueue();
+			PropertyWriter.createRequest(partition).write(queue);
+			// the service request plus the confirmed request header
+			assertThat(queue.size() + 4 <= 480, is(true));
+			count += partition.size();
+		}
+		assertThat(count, is(200));
+		assertThat(partitions.size() < 10, is(true));
+		assertThat(partitions.get(0).get(0), is(writes.get(0)));
+	}
+
+	@Test
+	public void testSameObjectSharesSpecification() {
+
+		List<PropertyWrite> writes = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			writes.add(write(1, i));
+		}
+		// each write to another object needs its own object identifier
+		assertThat(PropertyWriter.partition(writes, 480).size() < PropertyWriter.partition(writes(200), 480).size(),
+				is(true));
+	}
+
+	@Test
+	public void testSingleWrites() {
+
+		List<List<PropertyWrite>> partitions = PropertyWriter.partition(writes(5), 0);
+		assertThat(partitions.size(), is(5));
+		assertThat(PropertyWriter.createRequest(partitions.get(0)), instanceOf(WritePropertyRequest.class));
+		assertThat(PropertyWriter.createRequest(writes(2)), instanceOf(WritePropertyMultipleRequest.class));
+	}
+
+	@Test
+	public void testFirstFailedWriteAttempt() {
+
+		List<PropertyWrite> writes = writes(4);
+		ObjectPropertyReference reference = new ObjectPropertyReference(
+				new ObjectIdentifier(ObjectType.analogValue, 2), PropertyIdentifier.presentValue);
+		WritePropertyMultipleError error = new WritePropertyMultipleError((byte) 16,
+				new BACnetError(ErrorClass.property, ErrorCode.writeAccessDenied), reference);
+
+		ObjectPropertyReference decoded = PropertyWriter.getFirstFailedWriteAttempt(error);
+		assertThat(decoded, is(reference));
+		assertThat(PropertyWriter.indexOf(writes, 0, 4, decoded), is(2));
+		assertThat(PropertyWriter.indexOf(writes, 3, 4, decoded), is(-1));
+		assertThat(PropertyWriter.indexOf(writes, 0, 4, null), is(-1));
+	}
+
+	@Test
+	public void testErrorFlags() {
+		assertThat(ConversionUtil.getWriteErrorFlag(new BACnetError(ErrorClass.property, ErrorCode.writeAccessDenied)),
+				is(Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE));
+		assertThat(ConversionUtil.getWriteErrorFlag(new BACnetError(ErrorClass.property, ErrorCode.valueOutOfRange)),
+				is(Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION));
+		assertThat(ConversionUtil.getWriteErrorFlag(new BACnetError(ErrorClass.object, ErrorCode.unknownObject)),
+				is(Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND));
+		assertThat(ConversionUtil.getWriteErrorFlag(new BACnetError(ErrorClass.device, ErrorCode.other)),
+				is(Flag.DRIVER_ERROR_UNSPECIFIED));
+
+		assertThat(PropertyWriter.getFailureFlag(new BACnetTimeoutException("timeout")), is(Flag.DRIVER_ERROR_TIMEOUT));
+		assertThat(PropertyWriter.getFailureFlag(
+				new RejectAPDUException(new Reject((byte) 1, RejectReason.invalidParameterDataType))),
+				is(Flag.DRIVER_ERROR_CHANNEL_VALUE_TYPE_CONVERSION_EXCEPTION));
+	}
+
+	@Test
+	public void testSplitOnSizeProblem() throws Exception {
+
+		CompletableFuture<Flag[]> result = writeProperties(writes(4), true, 5000);
+		localDevice.nextRequest().fail(new ServiceTooBigException("too big"));
+
+		StubLocalDevice.Request first = localDevice.nextRequest();
+		StubLocalDevice.Request second = localDevice.nextRequest();
+		assertThat(first.getService(), instanceOf(WritePropertyMultipleRequest.class));
+		second.complete(null);
+		first.complete(null);
+
+		assertThat(Arrays.asList(result.get(5, TimeUnit.SECONDS)), everyItem(is(Flag.VALID)));
+	}
+
+	@Test
+	public void testFallbackOnUnrecognizedService() throws Exception {
+
+		CompletableFuture<Flag[]> result = writeProperties(writes(3), true, 5000);
+		localDevice.nextRequest().fail(new Reject((byte) 0, RejectReason.unrecognizedService));
+
+		for (int i = 0; i < 3; i++) {
+			StubLocalDevice.Request request = localDevice.nextRequest();
+			assertThat(request.getService(), instanceOf(WritePropertyRequest.class));
+			request.complete(null);
+		}
+
+		assertThat(Arrays.asList(result.get(5, TimeUnit.SECONDS)), everyItem(is(Flag.VALID)));
+	}
+
+	@Test
+	public void testResendWritesAfterFailedOne() throws Exception {
+
+		CompletableFuture<Flag[]> result = writeProperties(writes(4), true, 5000);
+		ObjectPropertyReference reference = new ObjectPropertyReference(
+				new ObjectIdentifier(ObjectType.analogValue, 1), PropertyIdentifier.presentValue);
+		localDevice.nextRequest().fail(new com.serotonin.bacnet4j.apdu.Error((byte) 0, new WritePropertyMultipleError(
+				(byte) 16, new BACnetError(ErrorClass.property, ErrorCode.writeAccessDenied), reference)));
+
+		// the writes after the failed one have not been tried
+		StubLocalDevice.Request resent = localDevice.nextRequest();
+		assertThat(resent.getService(), instanceOf(WritePropertyMultipleRequest.class));
+		resent.complete(null);
+
+		Flag[] flags = result.get(5, TimeUnit.SECONDS);
+		assertThat(Arrays.asList(flags), is(Arrays.asList(Flag.VALID, Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE,
+				Flag.VALID, Flag.VALID)));
+	}
+
+	@Test
+	public void testMissingAcknowledgementsTimeOut() throws Exception {
+
+		CompletableFuture<Flag[]> result = writeProperties(writes(2), false, 200);
+		localDevice.nextRequest().complete(null);
+		localDevice.nextRequest();
+
+		Flag[] flags = result.get(5, TimeUnit.SECONDS);
+		assertThat(Arrays.asList(flags), is(Arrays.asList(Flag.VALID, Flag.DRIVER_ERROR_TIMEOUT)));
+	}
+
+}
@@ -0,0 +1,38 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.openmuc.framework.data.Flag;
+
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.enumerated.ErrorClass;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
+
+public class TestReadErrorFlags {
+
+	@Test
+	public void testMappedErrorCodes() {
+		assertThat(ConversionUtil.getReadErrorFlag(new BACnetError(ErrorClass.object, ErrorCode.unknownObject)),
+				is(Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND));
+		assertThat(ConversionUtil.getReadErrorFlag(new BACnetError(ErrorClass.property, ErrorCode.readAccessDenied)),
+				is(Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE));
+		assertThat(ConversionUtil.getReadErrorFlag(new BACnetError(ErrorClass.device, ErrorCode.deviceBusy)),
+				is(Flag.DEVICE_OR_INTERFACE_BUSY));
+	}
+
+	@Test
+	public void testCommunicationErrors() {
+		assertThat(
+				ConversionUtil.getReadErrorFlag(new BACnetError(ErrorClass.communication, ErrorCode.abortBufferOverflow)),
+				is(Flag.DRIVER_ERROR_CHANNEL_TEMPORARILY_NOT_ACCESSIBLE));
+	}
+
+	@Test
+	public void testOtherErrors() {
+		assertThat(ConversionUtil.getReadErrorFlag(new BACnetError(ErrorClass.property, ErrorCode.valueOutOfRange)),
+				is(Flag.DRIVER_ERROR_READ_FAILURE));
+		assertThat(ConversionUtil.getReadErrorFlag(null), is(Flag.DRIVER_ERROR_READ_FAILURE));
+	}
+}
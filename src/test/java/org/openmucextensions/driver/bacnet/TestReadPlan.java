@@ -0,0 +1,78 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.data.FloatValue;
+import org.openmuc.framework.data.StringValue;
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.CharacterString;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestReadPlan {
+
+	private static List<ChannelRecordContainer> containers(String... channelAddresses) {
+		ChannelRecordContainer[] containers = new ChannelRecordContainer[channelAddresses.length];
+		for (int i = 0; i < channelAddresses.length; i++) {
+			containers[i] = new ChannelRecordContainerImpl(channelAddresses[i]);
+		}
+		return Arrays.asList(containers);
+	}
+
+	@Test
+	public void testCompiledEntries() {
+		ReadPlan plan = new ReadPlan(3);
+		plan.add("AI1", new ObjectIdentifier(ObjectType.analogInput, 1), PropertyIdentifier.presentValue);
+		plan.add("AI1#objectName", new ObjectIdentifier(ObjectType.analogInput, 1), PropertyIdentifier.objectName);
+		plan.addError("AI1#noSuchProperty", Flag.DRIVER_ERROR_CHANNEL_ADDRESS_SYNTAX_INVALID);
+
+		assertThat(plan.size(), is(3));
+		assertThat(plan.getReadOrder().length, is(2));
+		assertThat(plan.getError(0), is(nullValue()));
+		assertThat(plan.getConverter(0).convert(new Real(1.5f)), instanceOf(FloatValue.class));
+		assertThat(plan.getConverter(1).convert(new CharacterString("AI1")), instanceOf(StringValue.class));
+		assertThat(plan.getError(2), is(Flag.DRIVER_ERROR_CHANNEL_ADDRESS_SYNTAX_INVALID));
+	}
+
+	@Test
+	public void testIsCompiledFor() {
+		ReadPlan plan = new ReadPlan(2);
+		plan.add("AI1", new ObjectIdentifier(ObjectType.analogInput, 1), PropertyIdentifier.presentValue);
+		plan.add("AI2", new ObjectIdentifier(ObjectType.analogInput, 2), PropertyIdentifier.presentValue);
+
+		assertThat(plan.isCompiledFor(containers("AI1", "AI2")), is(true));
+		assertThat(plan.isCompiledFor(containers("AI2", "AI1")), is(false));
+		assertThat(plan.isCompiledFor(containers("AI1")), is(false));
+	}
+
+	@Test
+	public void testReadOrderFollowsReferences() {
+		ReadPlan plan = new ReadPlan(4);
+		plan.add("AI1", new ObjectIdentifier(ObjectType.analogInput, 1), PropertyIdentifier.presentValue);
+		plan.add("AI2", new ObjectIdentifier(ObjectType.analogInput, 2), PropertyIdentifier.presentValue);
+		plan.addError("AI3", Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND);
+		plan.add("AI1#objectName", new ObjectIdentifier(ObjectType.analogInput, 1), PropertyIdentifier.objectName);
+
+		// references are grouped by object
+		assertThat(plan.getReadOrder(), is(new int[] { 0, 3, 1 }));
+	}
+
+	@Test
+	public void testUnresolvedPlanIsNotReused() {
+		ReadPlan plan = new ReadPlan(1);
+		plan.addError("AI1", Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND);
+
+		assertThat(plan.isCompiledFor(containers("AI1")), is(false));
+	}
+}
@@ -0,0 +1,162 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.exception.BACnetException;
+import com.serotonin.bacnet4j.service.acknowledgement.AcknowledgementService;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyAck;
+import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
+import com.serotonin.bacnet4j.service.confirmed.ReadPropertyRequest;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestRequestPipeline {
+
+	private static final RemoteDevice DEVICE = new RemoteDevice(1, new Address(new byte[] { 1 }));
+	private static final ObjectIdentifier OBJECT = new ObjectIdentifier(ObjectType.analogValue, 1);
+	private static final AcknowledgementService ACK = new ReadPropertyAck(OBJECT, PropertyIdentifier.presentValue,
+			null, new Real(0));
+
+	private final StubLocalDevice localDevice = new StubLocalDevice();
+
+	/**
+	 * Records the handled items. Items starting with "split" are replaced by two items on failure.
+	 */
+	private static class RecordingHandler implements RequestPipeline.Handler<String> {
+
+		// the requests are equal, so they are told apart by identity
+		private final Map<ConfirmedRequestService, String> items = Collections
+				.synchronizedMap(new IdentityHashMap<>());
+		private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public ConfirmedRequestService createRequest(String item) {
+			final ConfirmedRequestService request = new ReadPropertyRequest(OBJECT, PropertyIdentifier.presentValue);
+			items.put(request, item);
+			return request;
+		}
+
+		@Override
+		public void success(String item, AcknowledgementService ack) {
+			handled.add(item);
+		}
+
+		@Override
+		public List<String> failure(String item, BACnetException e) throws BACnetException {
+			if (item.startsWith("split"))
+				return Arrays.asList(item + ".1", item + ".2");
+			throw e;
+		}
+
+		String itemOf(StubLocalDevice.Request request) {
+			return items.get(request.getService());
+		}
+	}
+
+	@After
+	public void tearDown() {
+		localDevice.terminate();
+	}
+
+	private CompletableFuture<Void> execute(RecordingHandler handler, int maxInFlight, String... items) {
+		final RequestPipeline<String> pipeline = new RequestPipeline<>(localDevice, DEVICE, maxInFlight, handler);
+		return CompletableFuture.runAsync(() -> {
+			try {
+				pipeline.execute(Arrays.asList(items));
+			} catch (BACnetException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	@Test
+	public void handlesResponsesInItemOrder() throws Exception {
+		final RecordingHandler handler = new RecordingHandler();
+		final CompletableFuture<Void> done = execute(handler, 3, "a", "b", "c");
+
+		final StubLocalDevice.Request a = localDevice.nextRequest();
+		final StubLocalDevice.Request b = localDevice.nextRequest();
+		final StubLocalDevice.Request c = localDevice.nextRequest();
+		assertThat(handler.itemOf(a), is("a"));
+
+		c.complete(ACK);
+		b.complete(ACK);
+		Thread.sleep(50);
+		assertTrue(handler.handled.isEmpty());
+
+		a.complete(ACK);
+		done.get(5, TimeUnit.SECONDS);
+		assertThat(handler.handled, is(Arrays.asList("a", "b", "c")));
+	}
+
+	@Test
+	public void keepsNumberOfRequestsInFlight() throws Exception {
+		final RecordingHandler handler = new RecordingHandler();
+		final CompletableFuture<Void> done = execute(handler, 2, "a", "b", "c");
+
+		final StubLocalDevice.Request a = localDevice.nextRequest();
+		final StubLocalDevice.Request b = localDevice.nextRequest();
+		Thread.sleep(50);
+		assertFalse(localDevice.hasNewRequests());
+
+		a.complete(ACK);
+		final StubLocalDevice.Request c = localDevice.nextRequest();
+		assertThat(handler.itemOf(c), is("c"));
+		b.complete(ACK);
+		c.complete(ACK);
+
+		done.get(5, TimeUnit.SECONDS);
+		assertThat(handler.handled, is(Arrays.asList("a", "b", "c")));
+	}
+
+	@Test
+	public void handlesSplitItemsBeforeLaterItemsInFlight() throws Exception {
+		final RecordingHandler handler = new RecordingHandler();
+		final CompletableFuture<Void> done = execute(handler, 2, "split", "b", "c");
+
+		final StubLocalDevice.Request split = localDevice.nextRequest();
+		final StubLocalDevice.Request b = localDevice.nextRequest();
+
+		// the later item completes while the first one is split and sent again
+		b.complete(ACK);
+		split.fail(new BACnetException("too big"));
+
+		final StubLocalDevice.Request first = localDevice.nextRequest();
+		assertThat(handler.itemOf(first), is("split.1"));
+		Thread.sleep(50);
+		// the completed item still counts until it is handled
+		assertFalse(localDevice.hasNewRequests());
+
+		first.complete(ACK);
+		final StubLocalDevice.Request second = localDevice.nextRequest();
+		assertThat(handler.itemOf(second), is("split.2"));
+		second.complete(ACK);
+
+		final StubLocalDevice.Request c = localDevice.nextRequest();
+		assertThat(handler.itemOf(c), is("c"));
+		c.complete(ACK);
+
+		done.get(5, TimeUnit.SECONDS);
+		assertThat(handler.handled, is(Arrays.asList("split.1", "split.2", "b", "c")));
+	}
+
+}
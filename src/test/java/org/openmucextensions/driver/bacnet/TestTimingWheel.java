@@ -0,0 +1,87 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestTimingWheel {
+
+	private static final long START = 1000000;
+
+	@Test
+	public void executesTasksAtTheirTick() {
+		final TimingWheel wheel = new TimingWheel(100, 8, START);
+		final List<String> executed = new ArrayList<>();
+
+		wheel.scheduleAt(() -> executed.add("a"), START + 250);
+		wheel.scheduleAt(() -> executed.add("b"), START + 100);
+
+		wheel.advance(START + 199);
+		assertThat(executed.toString(), is("[b]"));
+		wheel.advance(START + 299);
+		assertThat(executed.toString(), is("[b]"));
+		wheel.advance(START + 300);
+		assertThat(executed.toString(), is("[b, a]"));
+	}
+
+	@Test
+	public void executesTasksBeyondOneRotation() {
+		final TimingWheel wheel = new TimingWheel(100, 4, START);
+		final List<String> executed = new ArrayList<>();
+
+		// falls into the same bucket as tick 2, but two rotations later
+		wheel.scheduleAt(() -> executed.add("late"), START + 1000);
+		wheel.scheduleAt(() -> executed.add("early"), START + 200);
+
+		wheel.advance(START + 200);
+		assertThat(executed.toString(), is("[early]"));
+		wheel.advance(START + 999);
+		assertThat(executed.toString(), is("[early]"));
+		wheel.advance(START + 1000);
+		assertThat(executed.toString(), is("[early, late]"));
+	}
+
+	@Test
+	public void skipsCancelledTasks() {
+		final TimingWheel wheel = new TimingWheel(100, 8, START);
+		final List<String> executed = new ArrayList<>();
+
+		final TimingWheel.Timeout timeout = wheel.scheduleAt(() -> executed.add("a"), START + 300);
+		wheel.advance(START + 100);
+		timeout.cancel();
+		wheel.advance(START + 1000);
+
+		assertThat(executed.isEmpty(), is(true));
+	}
+
+	@Test
+	public void executesOverdueTasksWithTheNextTick() {
+		final TimingWheel wheel = new TimingWheel(100, 8, START);
+		final List<String> executed = new ArrayList<>();
+
+		wheel.advance(START + 500);
+		wheel.scheduleAt(() -> executed.add("a"), START + 200);
+		wheel.advance(START + 600);
+
+		assertThat(executed.toString(), is("[a]"));
+	}
+
+	@Test
+	public void continuesAfterFailingTask() {
+		final TimingWheel wheel = new TimingWheel(100, 8, START);
+		final List<String> executed = new ArrayList<>();
+
+		wheel.scheduleAt(() -> {
+			throw new IllegalStateException("test");
+		}, START + 100);
+		wheel.scheduleAt(() -> executed.add("a"), START + 100);
+		wheel.advance(START + 100);
+
+		assertThat(executed.toString(), is("[a]"));
+	}
+
+}
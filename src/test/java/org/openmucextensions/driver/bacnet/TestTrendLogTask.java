@@ -0,0 +1,210 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.data.Record;
+import org.openmuc.framework.driver.spi.ChannelRecordContainer;
+import org.openmuc.framework.driver.spi.Connection;
+import org.openmuc.framework.driver.spi.RecordsReceivedListener;
+
+import com.serotonin.bacnet4j.RemoteDevice;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadPropertyAck;
+import com.serotonin.bacnet4j.service.acknowledgement.ReadRangeAck;
+import com.serotonin.bacnet4j.service.confirmed.ConfirmedRequestService;
+import com.serotonin.bacnet4j.service.confirmed.ReadRangeRequest;
+import com.serotonin.bacnet4j.type.constructed.Address;
+import com.serotonin.bacnet4j.type.constructed.BACnetError;
+import com.serotonin.bacnet4j.type.constructed.DateTime;
+import com.serotonin.bacnet4j.type.constructed.LogRecord;
+import com.serotonin.bacnet4j.type.constructed.LogStatus;
+import com.serotonin.bacnet4j.type.constructed.ResultFlags;
+import com.serotonin.bacnet4j.type.constructed.SequenceOf;
+import com.serotonin.bacnet4j.type.constructed.StatusFlags;
+import com.serotonin.bacnet4j.type.enumerated.ErrorClass;
+import com.serotonin.bacnet4j.type.enumerated.ErrorCode;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.type.primitive.SignedInteger;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+import com.serotonin.bacnet4j.util.sero.ByteQueue;
+
+public class TestTrendLogTask {
+
+	private static final long TIMESTAMP = 1500000000000L;
+	private static final StatusFlags FLAGS = new StatusFlags(false, false, false, false);
+	private static final ObjectIdentifier LOG = new ObjectIdentifier(ObjectType.trendLog, 1);
+	private static final SignedInteger COUNT = new SignedInteger(TrendLogTask.MAX_RECORDS_PER_REQUEST);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final StubLocalDevice localDevice = new StubLocalDevice();
+	private final RemoteDevice remoteDevice = new RemoteDevice(1, new Address(new byte[] { 1 }));
+	private final List<ChannelRecordContainer> received = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void tearDown() {
+		localDevice.terminate();
+	}
+
+	private TrendLogTask task(Map<ObjectIdentifier, Long> cursors, String... channels) throws Exception {
+		final TrendLogCursorStore store = new TrendLogCursorStore(folder.getRoot().toPath().resolve("catalog"));
+		store.save(remoteDevice.getInstanceNumber(), cursors);
+		final List<ChannelRecordContainer> containers = new ArrayList<>();
+		for (String channel : channels) {
+			containers.add(new ChannelRecordContainerImpl(channel));
+		}
+		return new TrendLogTask(localDevice, remoteDevice, Collections.singletonMap(LOG, containers),
+				new RecordsReceivedListener() {
+					@Override
+					public void newRecords(List<ChannelRecordContainer> containers) {
+						received.addAll(containers);
+					}
+
+					@Override
+					public void connectionInterrupted(String driverId, Connection connection) {
+					}
+				}, store);
+	}
+
+	private static ReadRangeAck ack(long firstSequenceNumber, float... values) {
+		final List<LogRecord> records = new ArrayList<>();
+		for (int i = 0; i < values.length; i++) {
+			records.add(new LogRecord(new DateTime(TIMESTAMP + i), false, new Real(values[i]), FLAGS));
+		}
+		return new ReadRangeAck(LOG, PropertyIdentifier.logBuffer, null, new ResultFlags(true, true, false),
+				new UnsignedInteger(values.length), new SequenceOf<>(records),
+				(values.length > 0) ? new UnsignedInteger(firstSequenceNumber) : null);
+	}
+
+	private static byte[] encode(ConfirmedRequestService request) {
+		final ByteQueue queue = new ByteQueue();
+		request.write(queue);
+		return queue.popAll();
+	}
+
+	private static void assertRequest(StubLocalDevice.Request request, ReadRangeRequest expected) {
+		// ranges have no value based equals, so the encoded requests are compared
+		assertThat(encode(request.getService()), is(encode(expected)));
+	}
+
+	private void answerTotalRecordCount(long total) throws Exception {
+		localDevice.nextRequest().complete(
+				new ReadPropertyAck(LOG, PropertyIdentifier.totalRecordCount, null, new UnsignedInteger(total)));
+	}
+
+	private List<Object> receivedValues() {
+		final List<Object> values = new ArrayList<>();
+		for (ChannelRecordContainer container : received) {
+			values.add(container.getChannelAddress() + "=" + container.getRecord().getValue().asFloat());
+		}
+		return values;
+	}
+
+	@Test
+	public void testValueRecord() {
+		Record record = TrendLogTask.toRecord(new LogRecord(new DateTime(TIMESTAMP), false, new Real(21.5f), FLAGS));
+		assertThat(record.getFlag(), is(Flag.VALID));
+		assertThat(record.getTimestamp(), is(TIMESTAMP));
+		assertThat(record.getValue().asFloat(), is(21.5f));
+
+		record = TrendLogTask.toRecord(new LogRecord(new DateTime(TIMESTAMP), new UnsignedInteger(7), FLAGS));
+		assertThat(record.getValue().asLong(), is(7L));
+	}
+
+	@Test
+	public void testErrorRecord() {
+		Record record = TrendLogTask.toRecord(new LogRecord(new DateTime(TIMESTAMP),
+				new BACnetError(ErrorClass.property, ErrorCode.unknownProperty), FLAGS));
+		assertNull(record.getValue());
+		assertThat(record.getTimestamp(), is(TIMESTAMP));
+		assertThat(record.getFlag(), is(Flag.DRIVER_ERROR_CHANNEL_WITH_THIS_ADDRESS_NOT_FOUND));
+	}
+
+	@Test
+	public void testStatusRecordsAreSkipped() {
+		assertNull(TrendLogTask.toRecord(new LogRecord(new DateTime(TIMESTAMP), new LogStatus(false, true), FLAGS)));
+		assertNull(TrendLogTask.toRecord(new LogRecord(new DateTime(TIMESTAMP), true, new Real(60f), FLAGS)));
+	}
+
+	@Test
+	public void testReadsFromOldestRecordAfterLoss() throws Exception {
+		final TrendLogTask task = task(Collections.singletonMap(LOG, 10L), "TL1#logBuffer");
+		final CompletableFuture<Void> done = CompletableFuture.runAsync(task);
+
+		answerTotalRecordCount(30);
+		StubLocalDevice.Request request = localDevice.nextRequest();
+		assertRequest(request, new ReadRangeRequest(LOG, PropertyIdentifier.logBuffer, null,
+				new ReadRangeRequest.BySequenceNumber(new UnsignedInteger(11), COUNT)));
+		request.complete(ack(0));
+
+		// records 11 to 19 have been overwritten
+		request = localDevice.nextRequest();
+		assertRequest(request, new ReadRangeRequest(LOG, PropertyIdentifier.logBuffer, null,
+				new ReadRangeRequest.ByPosition(new UnsignedInteger(1), COUNT)));
+		request.complete(ack(20, 20f, 21f));
+
+		done.get(5, TimeUnit.SECONDS);
+		assertThat(receivedValues(), is(Arrays.<Object> asList("TL1#logBuffer=20.0", "TL1#logBuffer=21.0")));
+	}
+
+	@Test
+	public void testSkipsDeliveredRecordsAfterFallback() throws Exception {
+		final TrendLogTask task = task(Collections.singletonMap(LOG, 10L), "TL1#logBuffer");
+		final CompletableFuture<Void> done = CompletableFuture.runAsync(task);
+
+		answerTotalRecordCount(12);
+		localDevice.nextRequest().complete(ack(0));
+		localDevice.nextRequest().complete(ack(9, 9f, 10f, 11f, 12f));
+
+		done.get(5, TimeUnit.SECONDS);
+		assertThat(receivedValues(), is(Arrays.<Object> asList("TL1#logBuffer=11.0", "TL1#logBuffer=12.0")));
+	}
+
+	@Test
+	public void testDeliversRecordsToAllChannelsOfLog() throws Exception {
+		final TrendLogTask task = task(Collections.emptyMap(), "TL1#logBuffer", "room#logBuffer");
+		final CompletableFuture<Void> done = CompletableFuture.runAsync(task);
+
+		answerTotalRecordCount(1);
+		localDevice.nextRequest().complete(ack(1, 5f));
+
+		done.get(5, TimeUnit.SECONDS);
+		assertThat(receivedValues(), is(Arrays.<Object> asList("TL1#logBuffer=5.0", "room#logBuffer=5.0")));
+	}
+
+	@Test
+	public void testCursorStore() throws Exception {
+
+		TrendLogCursorStore store = new TrendLogCursorStore(folder.getRoot().toPath().resolve("catalog"));
+		assertTrue(store.load(4711).isEmpty());
+
+		Map<ObjectIdentifier, Long> cursors = new HashMap<>();
+		cursors.put(new ObjectIdentifier(ObjectType.trendLog, 1), 42L);
+		cursors.put(new ObjectIdentifier(ObjectType.trendLog, 4194302), 4294967295L);
+		store.save(4711, cursors);
+
+		assertThat(store.load(4711), is(cursors));
+		assertTrue(store.load(4712).isEmpty());
+	}
+
+}
@@ -0,0 +1,63 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.openmuc.framework.data.ValueType;
+
+import com.serotonin.bacnet4j.type.constructed.DateTime;
+import com.serotonin.bacnet4j.type.enumerated.BinaryPV;
+import com.serotonin.bacnet4j.type.enumerated.EventState;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.BitString;
+import com.serotonin.bacnet4j.type.primitive.CharacterString;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.type.primitive.SignedInteger;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+public class TestValueConverters {
+
+	@Test
+	public void testDedicatedConverters() {
+		assertThat(ValueConverters.forType(Real.class).convert(new Real(21.5f)).asFloat(), is(21.5f));
+		assertThat(ValueConverters.forType(BinaryPV.class).convert(BinaryPV.active).asBoolean(), is(true));
+		assertThat(ValueConverters.forType(UnsignedInteger.class).convert(new UnsignedInteger(3)).asInt(), is(3));
+		assertThat(ValueConverters.forType(SignedInteger.class).convert(new SignedInteger(-3)).asInt(), is(-3));
+		assertThat(ValueConverters.forType(CharacterString.class).convert(new CharacterString("AI1")).asString(),
+				is("AI1"));
+	}
+
+	@Test
+	public void testEnumerationsUseEnumeratedConverter() {
+		assertThat(ValueConverters.forType(EventState.class).getValueType(), is(ValueType.INTEGER));
+		assertThat(ValueConverters.forType(EventState.class).convert(EventState.offnormal).asInt(),
+				is(EventState.offnormal.intValue()));
+		// binary values keep their dedicated converter
+		assertThat(ValueConverters.forType(BinaryPV.class).getValueType(), is(ValueType.BOOLEAN));
+	}
+
+	@Test
+	public void testBitStringToMask() {
+		BitString statusFlags = new BitString(new boolean[] { true, false, true, false });
+		assertThat(ValueConverters.forType(BitString.class).convert(statusFlags).asLong(), is(5L));
+	}
+
+	@Test
+	public void testOtherPropertiesKeepStrings() {
+		assertThat(ValueConverters.forProperty(PropertyIdentifier.eventState, EventState.class).convert(EventState.normal)
+				.asString(), is(EventState.normal.toString()));
+		assertThat(ValueConverters.forProperty(PropertyIdentifier.statusFlags, BitString.class),
+				is(sameInstance(ValueConverters.STRING)));
+		assertThat(ValueConverters.forProperty(PropertyIdentifier.presentValue, EventState.class).getValueType(),
+				is(ValueType.INTEGER));
+		assertThat(ValueConverters.forProperty(PropertyIdentifier.relinquishDefault, BinaryPV.class).getValueType(),
+				is(ValueType.BOOLEAN));
+	}
+
+	@Test
+	public void testUnknownTypeIsString() {
+		assertThat(ValueConverters.forType(DateTime.class), is(sameInstance(ValueConverters.STRING)));
+	}
+}
@@ -0,0 +1,73 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.openmuc.framework.data.Flag;
+
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+
+public class TestWriteCoalescer {
+
+	private final List<List<PropertyWrite>> sent = Collections.synchronizedList(new ArrayList<List<PropertyWrite>>());
+
+	private Flag[] send(List<PropertyWrite> writes) {
+		sent.add(new ArrayList<>(writes));
+		Flag[] flags = new Flag[writes.size()];
+		for (int i = 0; i < flags.length; i++) {
+			// fail the writes to object 2
+			flags[i] = (writes.get(i).getObjectIdentifier().getInstanceNumber() == 2)
+					? Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE : Flag.VALID;
+		}
+		return flags;
+	}
+
+	private static PropertyWrite write(int instance, float value) {
+		return new PropertyWrite(new ObjectIdentifier(ObjectType.analogValue, instance),
+				new PropertyValue(PropertyIdentifier.presentValue, null, new Real(value), null));
+	}
+
+	@Test
+	public void testLastValueWins() {
+
+		WriteCoalescer coalescer = new WriteCoalescer(10, this::send);
+		Flag[] flags = coalescer.write(Arrays.asList(write(1, 1f), write(2, 2f), write(1, 3f)));
+
+		assertThat(flags, is(new Flag[] { Flag.VALID, Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE, Flag.VALID }));
+		assertThat(sent.size(), is(1));
+		assertThat(sent.get(0).size(), is(2));
+		assertThat(sent.get(0).get(0).getPropertyValue().getValue(), is(new Real(3f)));
+	}
+
+	@Test
+	public void testConcurrentWritesShareBatch() throws Exception {
+
+		final WriteCoalescer coalescer = new WriteCoalescer(500, this::send);
+		CompletableFuture<Flag[]> first = CompletableFuture
+				.supplyAsync(() -> coalescer.write(Arrays.asList(write(1, 1f), write(3, 1f))));
+		Thread.sleep(100);
+		Flag[] flags = coalescer.write(Arrays.asList(write(1, 2f), write(2, 2f)));
+
+		assertThat(flags, is(new Flag[] { Flag.VALID, Flag.DRIVER_ERROR_CHANNEL_NOT_ACCESSIBLE }));
+		assertThat(first.get(), is(new Flag[] { Flag.VALID, Flag.VALID }));
+		assertThat(sent.size(), is(1));
+		assertThat(sent.get(0).size(), is(3));
+		assertThat(sent.get(0).get(0).getPropertyValue().getValue(), is(new Real(2f)));
+
+		// the next write opens a new batch
+		coalescer.write(Arrays.asList(write(1, 3f)));
+		assertThat(sent.size(), is(2));
+	}
+
+}
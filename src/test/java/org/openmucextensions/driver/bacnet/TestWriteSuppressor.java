@@ -0,0 +1,66 @@
+package org.openmucextensions.driver.bacnet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.serotonin.bacnet4j.type.Encodable;
+import com.serotonin.bacnet4j.type.constructed.PropertyValue;
+import com.serotonin.bacnet4j.type.enumerated.BinaryPV;
+import com.serotonin.bacnet4j.type.enumerated.ObjectType;
+import com.serotonin.bacnet4j.type.enumerated.PropertyIdentifier;
+import com.serotonin.bacnet4j.type.primitive.ObjectIdentifier;
+import com.serotonin.bacnet4j.type.primitive.Real;
+import com.serotonin.bacnet4j.type.primitive.UnsignedInteger;
+
+public class TestWriteSuppressor {
+
+	private static final ObjectIdentifier AV1 = new ObjectIdentifier(ObjectType.analogValue, 1);
+
+	private static PropertyWrite write(Encodable value, int priority) {
+		return new PropertyWrite(AV1, new PropertyValue(PropertyIdentifier.presentValue, null, value,
+				new UnsignedInteger(priority)));
+	}
+
+	@Test
+	public void testUnchangedValueIsSuppressed() {
+
+		WriteSuppressor suppressor = new WriteSuppressor(0.5, 1000);
+		assertFalse(suppressor.isSuppressed(write(new Real(20f), 8), 0));
+
+		suppressor.acknowledged(write(new Real(20f), 8), 0);
+		assertTrue(suppressor.isSuppressed(write(new Real(20f), 8), 10));
+		assertTrue(suppressor.isSuppressed(write(new Real(20.4f), 8), 10));
+		assertFalse(suppressor.isSuppressed(write(new Real(20.6f), 8), 10));
+
+		// other priorities are independent
+		assertFalse(suppressor.isSuppressed(write(new Real(20f), 9), 10));
+
+		// refresh
+		assertFalse(suppressor.isSuppressed(write(new Real(20f), 8), 1000));
+	}
+
+	@Test
+	public void testReceivedValueDiscardsWrittenValue() {
+
+		WriteSuppressor suppressor = new WriteSuppressor(0, 1000);
+		suppressor.acknowledged(write(new Real(20f), 8), 0);
+
+		suppressor.valueReceived(AV1, PropertyIdentifier.presentValue, new Real(20f));
+		assertTrue(suppressor.isSuppressed(write(new Real(20f), 8), 10));
+
+		suppressor.valueReceived(AV1, PropertyIdentifier.presentValue, new Real(21f));
+		assertFalse(suppressor.isSuppressed(write(new Real(20f), 8), 10));
+	}
+
+	@Test
+	public void testDeadbandOnlyForRealValues() {
+		assertTrue(WriteSuppressor.isUnchanged(BinaryPV.active, BinaryPV.active, 5));
+		assertFalse(WriteSuppressor.isUnchanged(BinaryPV.active, BinaryPV.inactive, 5));
+		assertFalse(WriteSuppressor.isUnchanged(new UnsignedInteger(1), new UnsignedInteger(2), 5));
+		assertTrue(WriteSuppressor.isUnchanged(new com.serotonin.bacnet4j.type.primitive.Double(1.0),
+				new com.serotonin.bacnet4j.type.primitive.Double(1.1), 0.5));
+	}
+
+}